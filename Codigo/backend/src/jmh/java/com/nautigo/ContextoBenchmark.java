@@ -0,0 +1,101 @@
+package com.nautigo;
+
+import com.nautigo.entity.Marinheiro;
+import com.nautigo.entity.Passageiro;
+import com.nautigo.entity.Usuario;
+import com.nautigo.entity.Viagem;
+import com.nautigo.entity.ViagemRecusada;
+import com.nautigo.repository.MarinheiroRepository;
+import com.nautigo.repository.PassageiroRepository;
+import com.nautigo.repository.UsuarioRepository;
+import com.nautigo.repository.ViagemRecusadaRepository;
+import com.nautigo.repository.ViagemRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contexto Spring completo sobre o H2 em memória (perfil "benchmark") e dados de apoio para os benchmarks
+public final class ContextoBenchmark {
+
+    public static final double LATITUDE_CENTRO = -20.3;
+    public static final double LONGITUDE_CENTRO = -40.3;
+
+    private static final AtomicLong SEQUENCIA = new AtomicLong();
+
+    private ContextoBenchmark() {
+    }
+
+    public static ConfigurableApplicationContext iniciar(String... perfisAdicionais) {
+        // O restart do DevTools troca o class loader e não faz sentido dentro do JMH
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(NautigoApplication.class)
+                .profiles("benchmark")
+                .profiles(perfisAdicionais)
+                .run();
+    }
+
+    public static Passageiro criarPassageiro(ConfigurableApplicationContext contexto) {
+        Passageiro passageiro = new Passageiro();
+        passageiro.setUsuario(criarUsuario(contexto, "passageiro"));
+        return contexto.getBean(PassageiroRepository.class).save(passageiro);
+    }
+
+    public static Marinheiro criarMarinheiro(ConfigurableApplicationContext contexto) {
+        Marinheiro marinheiro = new Marinheiro();
+        marinheiro.setUsuario(criarUsuario(contexto, "marinheiro"));
+        marinheiro.setNumeroDocumentoMarinha("DOC-" + marinheiro.getUsuario().getId());
+        marinheiro.setTipoEmbarcacao("Lancha");
+        marinheiro.setNomeEmbarcacao("Barco " + marinheiro.getUsuario().getId());
+        marinheiro.setNumeroRegistroEmbarcacao("REG-" + marinheiro.getUsuario().getId());
+        marinheiro.setCapacidadePassageiros(8);
+        marinheiro.setStatusAprovacao(Marinheiro.StatusAprovacao.APROVADO);
+        return contexto.getBean(MarinheiroRepository.class).save(marinheiro);
+    }
+
+    // Viagens pendentes, sem marinheiro, do passageiro informado, com embarque espalhado em uma área de
+    // 2° x 2° centrada em (LATITUDE_CENTRO, LONGITUDE_CENTRO)
+    public static List<Viagem> criarViagens(ConfigurableApplicationContext contexto, Passageiro passageiro, int quantidade) {
+        List<Viagem> viagens = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Viagem viagem = new Viagem();
+            viagem.setPassageiro(passageiro);
+            viagem.setOrigem("Marina " + i);
+            viagem.setDestino("Ilha " + i);
+            viagem.setOrigemLatitude(LATITUDE_CENTRO - 1.0 + (i * 37 % 200) / 100.0);
+            viagem.setOrigemLongitude(LONGITUDE_CENTRO - 1.0 + (i * 53 % 200) / 100.0);
+            viagem.setObservacoes("Viagem de benchmark " + i);
+            viagem.setMetodoPagamento(i % 2 == 0 ? Viagem.MetodoPagamento.PIX : Viagem.MetodoPagamento.DINHEIRO);
+            viagem.setNumeroPessoas(1 + i % 6);
+            viagem.setValorPropostoPassageiro(BigDecimal.valueOf(100 + i));
+            viagens.add(viagem);
+        }
+        return contexto.getBean(ViagemRepository.class).saveAll(viagens);
+    }
+
+    public static void recusar(ConfigurableApplicationContext contexto, List<Viagem> viagens, Marinheiro marinheiro) {
+        List<ViagemRecusada> recusas = new ArrayList<>(viagens.size());
+        for (Viagem viagem : viagens) {
+            ViagemRecusada recusa = new ViagemRecusada();
+            recusa.setViagem(viagem);
+            recusa.setMarinheiro(marinheiro);
+            recusas.add(recusa);
+        }
+        contexto.getBean(ViagemRecusadaRepository.class).saveAll(recusas);
+    }
+
+    private static Usuario criarUsuario(ConfigurableApplicationContext contexto, String prefixo) {
+        long numero = SEQUENCIA.incrementAndGet();
+        Usuario usuario = new Usuario();
+        usuario.setEmail(prefixo + numero + "@benchmark.nautigo");
+        usuario.setSenha("nao-usada");
+        usuario.setNome(prefixo + " " + numero);
+        usuario.setTelefone("00000000000");
+        usuario.setSomaAvaliacoes(4 * numero);
+        usuario.setQuantidadeAvaliacoes(numero);
+        return contexto.getBean(UsuarioRepository.class).save(usuario);
+    }
+}
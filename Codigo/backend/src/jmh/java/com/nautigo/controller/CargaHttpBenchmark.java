@@ -0,0 +1,90 @@
+package com.nautigo.controller;
+
+import com.nautigo.ContextoBenchmark;
+import com.nautigo.entity.Passageiro;
+import com.nautigo.security.JwtUtil;
+import com.nautigo.security.TipoUsuario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Teste de carga HTTP do modo com threads virtuais contra o padrão (threads de plataforma), na mesma máquina:
+// a aplicação sobe em cada modo e as threads do JMH fazem requisições autenticadas ao histórico do passageiro
+// (filtros, JWT, uma consulta paginada). Throughput em req/s e distribuição de latência (p50, p99) por modo.
+//   mvn -Pbenchmark test-compile exec:exec -Djmh.args="CargaHttpBenchmark -t 256"
+// O modo "virtual" exige Java 21. Para medir com o PostgreSQL em vez do H2, acrescente
+// -jvmArgsAppend "-Dspring.datasource.url=... -Dspring.flyway.enabled=true -Dspring.jpa.hibernate.ddl-auto=validate"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(64)
+@Fork(1)
+public class CargaHttpBenchmark {
+
+    private static final int VIAGENS_DO_PASSAGEIRO = 200;
+
+    @Param({"plataforma", "virtual"})
+    String modo;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient cliente;
+    private HttpRequest historico;
+
+    @Setup
+    public void setup() {
+        if (modo.equals("virtual") && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Threads virtuais exigem Java 21 (em execução: " + Runtime.version() + ")");
+        }
+        contexto = modo.equals("virtual") ? ContextoBenchmark.iniciar("virtual") : ContextoBenchmark.iniciar();
+        Passageiro passageiro = ContextoBenchmark.criarPassageiro(contexto);
+        ContextoBenchmark.criarViagens(contexto, passageiro, VIAGENS_DO_PASSAGEIRO);
+        String token = contexto.getBean(JwtUtil.class).generateToken(passageiro.getUsuario().getEmail(),
+                passageiro.getUsuario().getId(), false, TipoUsuario.PASSAGEIRO, passageiro.getId(), null);
+
+        String porta = contexto.getEnvironment().getProperty("local.server.port");
+        cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        historico = HttpRequest.newBuilder(URI.create("http://localhost:" + porta + "/api/passageiro/viagens?page=0&size=10"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public int listarHistorico() throws IOException, InterruptedException {
+        HttpResponse<byte[]> resposta = cliente.send(historico, HttpResponse.BodyHandlers.ofByteArray());
+        if (resposta.statusCode() != 200) {
+            throw new IllegalStateException("Resposta inesperada: " + resposta.statusCode());
+        }
+        return resposta.body().length;
+    }
+}
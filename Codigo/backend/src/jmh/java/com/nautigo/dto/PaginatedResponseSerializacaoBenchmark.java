@@ -0,0 +1,63 @@
+package com.nautigo.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nautigo.entity.Viagem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serialização JSON de uma página de viagens, como feita pelo MessageConverter do Spring MVC
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginatedResponseSerializacaoBenchmark {
+
+    @Param({"10", "100"})
+    int tamanhoPagina;
+
+    private ObjectMapper objectMapper;
+    private PaginatedResponse<ViagemResponse> pagina;
+
+    @Setup
+    public void setup() {
+        // Mesma configuração base do ObjectMapper do Spring Boot (módulos java.time, datas em ISO-8601)
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<ViagemResponse> viagens = new ArrayList<>(tamanhoPagina);
+        LocalDateTime agora = LocalDateTime.now();
+        for (long i = 0; i < tamanhoPagina; i++) {
+            viagens.add(new ViagemResponse(
+                    i, 10L, "Passageiro " + i, 20L, "Marinheiro " + i,
+                    "Marina " + i, "Ilha " + i, -20.3, -40.3, "Observações da viagem " + i,
+                    agora, agora.plusHours(2), null, null,
+                    Viagem.StatusViagem.ACEITA, Viagem.MetodoPagamento.PIX, 4,
+                    "Barco " + i, 4.5, 5.0,
+                    BigDecimal.valueOf(150), BigDecimal.valueOf(120), null,
+                    agora, agora));
+        }
+        pagina = new PaginatedResponse<>(viagens, 0, tamanhoPagina, 1000, 1000 / tamanhoPagina, true, false);
+    }
+
+    @Benchmark
+    public byte[] serializarPagina() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(pagina);
+    }
+}
@@ -0,0 +1,73 @@
+package com.nautigo.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Emissão e validação de tokens: com o cache de tokens verificados (requisições seguintes do mesmo
+// cliente) e sem ele (primeira requisição com o token, parse + HMAC)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    // Tokens distintos o bastante para que nenhum seja encontrado no cache de tamanho zero
+    private static final int TOKENS_DISTINTOS = 100_000;
+
+    private JwtUtil jwtUtil;
+    private JwtUtil jwtUtilSemCache;
+    private String token;
+    private String[] tokensDistintos;
+    private int proximoToken;
+
+    @Setup
+    public void setup() {
+        jwtUtil = criar(10_000);
+        jwtUtilSemCache = criar(0);
+        token = jwtUtil.generateToken("marinheiro@nautigo.com", 42L, false, TipoUsuario.MARINHEIRO, null, 7L);
+        tokensDistintos = new String[TOKENS_DISTINTOS];
+        for (int i = 0; i < TOKENS_DISTINTOS; i++) {
+            tokensDistintos[i] = jwtUtil.generateToken("marinheiro@nautigo.com", (long) i, false,
+                    TipoUsuario.MARINHEIRO, null, 7L);
+        }
+    }
+
+    @Benchmark
+    public String gerarToken() {
+        return jwtUtil.generateToken("marinheiro@nautigo.com", 42L, false, TipoUsuario.MARINHEIRO, null, 7L);
+    }
+
+    @Benchmark
+    public UsuarioAutenticado validarTokenEmCache() {
+        return jwtUtil.validarToken(token);
+    }
+
+    @Benchmark
+    public UsuarioAutenticado validarTokenSemCache() {
+        String proximo = tokensDistintos[proximoToken];
+        proximoToken = (proximoToken + 1) % TOKENS_DISTINTOS;
+        return jwtUtilSemCache.validarToken(proximo);
+    }
+
+    private static JwtUtil criar(long tamanhoMaximoCache) {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "secret", "nautigo-secret-key-change-in-production-minimum-256-bits");
+        ReflectionTestUtils.setField(util, "expiration", 86_400_000L);
+        ReflectionTestUtils.setField(util, "tamanhoMaximoCache", tamanhoMaximoCache);
+        util.inicializar();
+        return util;
+    }
+}
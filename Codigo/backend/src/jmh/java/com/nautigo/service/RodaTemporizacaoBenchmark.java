@@ -0,0 +1,54 @@
+package com.nautigo.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Agendar e cancelar na roda da AgendaViagens com dezenas de milhares de viagens agendadas para os
+// próximos dias: o custo não deve depender de quantas tarefas já estão na roda
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RodaTemporizacaoBenchmark {
+
+    private static final int VIAGENS_AGENDADAS = 50_000;
+    private static final long SETE_DIAS_MS = TimeUnit.DAYS.toMillis(7);
+
+    private RodaTemporizacao roda;
+
+    @Setup
+    public void setup() {
+        roda = new RodaTemporizacao("benchmark", 1000, 4096);
+        long agora = System.currentTimeMillis();
+        for (int i = 0; i < VIAGENS_AGENDADAS; i++) {
+            roda.agendar(agora + ThreadLocalRandom.current().nextLong(SETE_DIAS_MS), () -> { });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        roda.parar();
+    }
+
+    @Benchmark
+    public boolean agendarECancelar() {
+        RodaTemporizacao.Temporizador temporizador = roda.agendar(
+                System.currentTimeMillis() + ThreadLocalRandom.current().nextLong(SETE_DIAS_MS), () -> { });
+        temporizador.cancelar();
+        return temporizador.pendente();
+    }
+}
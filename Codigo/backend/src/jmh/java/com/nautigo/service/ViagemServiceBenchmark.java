@@ -0,0 +1,126 @@
+package com.nautigo.service;
+
+import com.nautigo.ContextoBenchmark;
+import com.nautigo.dto.PaginatedResponse;
+import com.nautigo.dto.ViagemResponse;
+import com.nautigo.entity.Marinheiro;
+import com.nautigo.entity.Passageiro;
+import com.nautigo.entity.Viagem;
+import com.nautigo.repository.ViagemRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Conversão de páginas de viagens em ViagemResponse, página do histórico via projeção e listagem
+// de viagens disponíveis (todas ou só as próximas) para um marinheiro que já recusou uma parte crescente do quadro
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ViagemServiceBenchmark {
+
+    private static final int VIAGENS_ABERTAS = 2_000;
+
+    @State(Scope.Benchmark)
+    public static class Conversao {
+
+        @Param({"10", "100"})
+        int tamanhoPagina;
+
+        ConfigurableApplicationContext contexto;
+        ViagemService viagemService;
+        Long passageiroId;
+        List<Viagem> pagina;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            contexto = ContextoBenchmark.iniciar();
+            viagemService = contexto.getBean(ViagemService.class);
+            Passageiro passageiro = ContextoBenchmark.criarPassageiro(contexto);
+            passageiroId = passageiro.getId();
+            // Associações são LAZY: as viagens convertidas fora de transação vêm com o grafo de detalhe
+            ViagemRepository viagemRepository = contexto.getBean(ViagemRepository.class);
+            pagina = new ArrayList<>(tamanhoPagina);
+            for (Viagem viagem : ContextoBenchmark.criarViagens(contexto, passageiro, tamanhoPagina)) {
+                pagina.add(viagemRepository.findDetalheById(viagem.getId()).orElseThrow());
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            contexto.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Quadro {
+
+        @Param({"0", "100", "1000"})
+        int recusas;
+
+        ConfigurableApplicationContext contexto;
+        ViagemService viagemService;
+        Long marinheiroId;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            contexto = ContextoBenchmark.iniciar();
+            viagemService = contexto.getBean(ViagemService.class);
+            Passageiro passageiro = ContextoBenchmark.criarPassageiro(contexto);
+            Marinheiro marinheiro = ContextoBenchmark.criarMarinheiro(contexto);
+            List<Viagem> viagens = ContextoBenchmark.criarViagens(contexto, passageiro, VIAGENS_ABERTAS);
+            ContextoBenchmark.recusar(contexto, viagens.subList(0, recusas), marinheiro);
+            marinheiroId = marinheiro.getId();
+            // As viagens foram gravadas direto pelos repositórios: recarregar o quadro a partir do banco
+            viagemService.carregarQuadroViagensDisponiveis();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            contexto.close();
+        }
+    }
+
+    @Benchmark
+    public List<ViagemResponse> converterPagina(Conversao estado) {
+        List<ViagemResponse> respostas = new ArrayList<>(estado.pagina.size());
+        for (Viagem viagem : estado.pagina) {
+            respostas.add(estado.viagemService.toResponse(viagem));
+        }
+        return respostas;
+    }
+
+    // Página montada pela projeção do repositório (consulta + DTO), para comparar com converterPagina
+    @Benchmark
+    public PaginatedResponse<ViagemResponse> listarPaginaDoPassageiro(Conversao estado) {
+        return estado.viagemService.listarViagensDoPassageiroPaginado(estado.passageiroId, 0, estado.tamanhoPagina);
+    }
+
+    @Benchmark
+    public List<ViagemResponse> listarViagensDisponiveis(Quadro estado) {
+        return estado.viagemService.listarViagensDisponiveis(estado.marinheiroId);
+    }
+
+    // Mesmo quadro, só as viagens a até 20 km do centro da área (índice em grade)
+    @Benchmark
+    public List<ViagemResponse> listarViagensProximas(Quadro estado) {
+        return estado.viagemService.listarViagensDisponiveisProximas(estado.marinheiroId,
+                ContextoBenchmark.LATITUDE_CENTRO, ContextoBenchmark.LONGITUDE_CENTRO, ViagemService.RAIO_PADRAO_KM);
+    }
+}
@@ -0,0 +1,113 @@
+package com.nautigo.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+// Cache de segundo nível do Hibernate (JCache sobre Caffeine, em memória de cada instância) para usuários,
+// passageiros e marinheiros, que mudam pouco e são carregados em quase toda requisição (findById, associações
+// das viagens), e para as consultas do login por email e por usuário. Cada região tem tamanho e TTL próprios;
+// o TTL limita quanto tempo uma alteração feita por outra instância pode demorar a aparecer nesta.
+// Alterações pela entidade (aprovar/rejeitar marinheiro, agregados de avaliação) atualizam a entrada após o
+// commit; UPDATEs em massa (troca de hash da senha) descartam a região inteira.
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    public static final String REGIAO_CONSULTAS_PERFIS = "consultas-perfis";
+
+    private static final List<String> REGIOES_ENTIDADES = List.of("usuarios", "passageiros", "marinheiros");
+
+    @Value("${nautigo.cache.entidades.tamanho-maximo:10000}")
+    private long tamanhoMaximoEntidades;
+
+    @Value("${nautigo.cache.entidades.ttl-segundos:600}")
+    private long ttlEntidadesSegundos;
+
+    @Value("${nautigo.cache.consultas.tamanho-maximo:10000}")
+    private long tamanhoMaximoConsultas;
+
+    @Value("${nautigo.cache.consultas.ttl-segundos:300}")
+    private long ttlConsultasSegundos;
+
+    // Regiões criadas aqui, com limites; o Hibernate não cria nenhuma sozinho (missing_cache_strategy=fail)
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerSegundoNivel() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        for (String regiao : REGIOES_ENTIDADES) {
+            criarRegiao(cacheManager, regiao, tamanhoMaximoEntidades, ttlEntidadesSegundos);
+        }
+        criarRegiao(cacheManager, REGIAO_CONSULTAS_PERFIS, tamanhoMaximoConsultas, ttlConsultasSegundos);
+        criarRegiao(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                tamanhoMaximoConsultas, ttlConsultasSegundos);
+        // Última alteração de cada tabela, usada para invalidar o cache de consultas: uma entrada por tabela,
+        // sem expiração (expirar antes das consultas faria o Hibernate aceitar resultados antigos)
+        criarRegiao(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 0, 0);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelCustomizer(CacheManager cacheManagerSegundoNivel) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, cacheManagerSegundoNivel);
+    }
+
+    // Taxa de acerto de cada região (nautigo.cache.taxa.acerto{regiao}); os contadores de acertos, falhas e
+    // inserções por região vêm do HibernateMetrics (hibernate.second.level.cache.*)
+    @Bean
+    public MeterBinder taxaAcertoCacheSegundoNivel(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            List<String> regioes = new ArrayList<>(REGIOES_ENTIDADES);
+            regioes.add(REGIAO_CONSULTAS_PERFIS);
+            for (String regiao : regioes) {
+                Gauge.builder("nautigo.cache.taxa.acerto", estatisticas, e -> taxaAcerto(e, regiao))
+                        .description("Acertos / (acertos + falhas) da região do cache de segundo nível")
+                        .tag("regiao", regiao)
+                        .register(registry);
+            }
+        };
+    }
+
+    private static void criarRegiao(CacheManager cacheManager, String nome, long tamanhoMaximo, long ttlSegundos) {
+        // Sobra de um contexto anterior na mesma JVM (ex.: benchmarks que sobem a aplicação várias vezes)
+        if (cacheManager.getCache(nome) != null) {
+            cacheManager.destroyCache(nome);
+        }
+        CaffeineConfiguration<Object, Object> configuracao = new CaffeineConfiguration<>();
+        if (tamanhoMaximo > 0) {
+            configuracao.setMaximumSize(OptionalLong.of(tamanhoMaximo));
+        }
+        if (ttlSegundos > 0) {
+            configuracao.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSegundos)));
+        }
+        cacheManager.createCache(nome, configuracao);
+    }
+
+    private static double taxaAcerto(Statistics estatisticas, String regiao) {
+        CacheRegionStatistics regionStatistics = estatisticas.getCacheRegionStatistics(regiao);
+        if (regionStatistics == null) {
+            return Double.NaN;
+        }
+        long total = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+        return total == 0 ? Double.NaN : (double) regionStatistics.getHitCount() / total;
+    }
+}
@@ -0,0 +1,37 @@
+package com.nautigo.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Conta os comandos SQL que o Hibernate prepara na thread da requisição atual.
+// A contagem só existe entre iniciar() e encerrar() (ContadorSqlFilter); fora disso, como em
+// tarefas agendadas e listeners assíncronos, o inspector não faz nada.
+public class ContadorSql implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CONTAGEM = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] contagem = CONTAGEM.get();
+        if (contagem != null) {
+            contagem[0]++;
+        }
+        return sql;
+    }
+
+    public static void iniciar() {
+        CONTAGEM.set(new int[1]);
+    }
+
+    public static void encerrar() {
+        CONTAGEM.remove();
+    }
+
+    public static boolean ativo() {
+        return CONTAGEM.get() != null;
+    }
+
+    public static int total() {
+        int[] contagem = CONTAGEM.get();
+        return contagem != null ? contagem[0] : 0;
+    }
+}
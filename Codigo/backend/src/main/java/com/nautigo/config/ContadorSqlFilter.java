@@ -0,0 +1,30 @@
+package com.nautigo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Abre a contagem de comandos SQL no início da requisição (antes da segurança, que também pode
+// consultar o banco) e a descarta ao final
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ContadorSqlFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContadorSql.iniciar();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ContadorSql.encerrar();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.nautigo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+// Nas requisições com Idempotency-Key lê o corpo inteiro antes do controller e guarda o SHA-256 dele
+// (ATRIBUTO_HASH_CORPO), para o IdempotenciaInterceptor recusar a mesma chave com outro corpo.
+// O controller continua lendo o corpo normalmente, da cópia em memória.
+// Só nos caminhos do IdempotenciaInterceptor (/api/**) e com tamanho limitado: um corpo declarado (Content-Length)
+// ou lido maior que tamanho-maximo-corpo recebe 413 sem ser guardado.
+@Component
+@RequiredArgsConstructor
+public class CorpoIdempotenteFilter extends OncePerRequestFilter {
+
+    static final String ATRIBUTO_HASH_CORPO = CorpoIdempotenteFilter.class.getName() + ".hash";
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${nautigo.idempotencia.tamanho-maximo-corpo:65536}")
+    private int tamanhoMaximoCorpo;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(IdempotenciaInterceptor.HEADER_CHAVE) == null
+                || !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (request.getContentLengthLong() > tamanhoMaximoCorpo) {
+            recusarCorpoGrande(response);
+            return;
+        }
+        // Sem Content-Length (chunked) o limite vale para o que for lido: um byte além dele já basta para recusar
+        byte[] corpo = request.getInputStream().readNBytes(tamanhoMaximoCorpo + 1);
+        if (corpo.length > tamanhoMaximoCorpo) {
+            recusarCorpoGrande(response);
+            return;
+        }
+        request.setAttribute(ATRIBUTO_HASH_CORPO, sha256(corpo));
+        chain.doFilter(new CorpoRelido(request, corpo), response);
+    }
+
+    private void recusarCorpoGrande(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(Map.of("message",
+                "Requisições com " + IdempotenciaInterceptor.HEADER_CHAVE + " aceitam no máximo "
+                        + tamanhoMaximoCorpo + " bytes de corpo")));
+    }
+
+    private static String sha256(byte[] corpo) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(corpo));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private static class CorpoRelido extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        CorpoRelido(HttpServletRequest request, byte[] corpo) {
+            super(request);
+            this.corpo = corpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // O corpo já está todo em memória: o ouvinte é avisado na hora de que há dados e de que acabaram
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -3,12 +3,14 @@ package com.nautigo.config;
 import com.nautigo.entity.Usuario;
 import com.nautigo.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class DataInitializer implements CommandLineRunner {
     
     private final UsuarioRepository usuarioRepository;
@@ -26,7 +28,7 @@ public class DataInitializer implements CommandLineRunner {
             admin.setIsAdmin(true);
             admin.setAtivo(true);
             usuarioRepository.save(admin);
-            System.out.println("Usuário administrador criado: admin@nautigo.com / admin123");
+            log.info("Usuário administrador criado: admin@nautigo.com / admin123");
         }
     }
 }
@@ -0,0 +1,61 @@
+package com.nautigo.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Guarda a resposta das requisições que reservaram uma Idempotency-Key no IdempotenciaInterceptor.
+// O status já foi definido pelo ResponseEntity quando o corpo vai ser escrito.
+// Só respostas que se repetiriam numa nova execução são guardadas: sucesso (2xx) e conflito de transição (409).
+// Os 400 dos controllers também saem de falhas passageiras (banco, lock), que o cliente deve poder tentar de novo.
+@ControllerAdvice
+@RequiredArgsConstructor
+public class IdempotenciaAdvice implements ResponseBodyAdvice<Object> {
+
+    private final RespostasIdempotentes respostasIdempotentes;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(Idempotente.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)
+                || !(response instanceof ServletServerHttpResponse servletResponse)) {
+            return body;
+        }
+        HttpServletRequest requisicao = servletRequest.getServletRequest();
+        String chave = (String) requisicao.getAttribute(IdempotenciaInterceptor.ATRIBUTO_CHAVE);
+        int status = servletResponse.getServletResponse().getStatus();
+        if (chave == null || !guardavel(status)) {
+            return body;
+        }
+        try {
+            respostasIdempotentes.guardar(chave, status, body != null ? objectMapper.writeValueAsString(body) : null,
+                    (String) requisicao.getAttribute(CorpoIdempotenteFilter.ATRIBUTO_HASH_CORPO));
+            requisicao.removeAttribute(IdempotenciaInterceptor.ATRIBUTO_CHAVE);
+        } catch (JsonProcessingException e) {
+            // Fica sem resposta guardada: o afterCompletion libera a chave
+        }
+        return body;
+    }
+
+    private static boolean guardavel(int status) {
+        return (status >= 200 && status < 300) || status == HttpStatus.CONFLICT.value();
+    }
+}
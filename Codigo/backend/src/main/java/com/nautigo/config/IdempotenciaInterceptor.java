@@ -0,0 +1,144 @@
+package com.nautigo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nautigo.entity.RespostaIdempotente;
+import com.nautigo.security.UsuarioAutenticado;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Idempotency-Key nos endpoints @Idempotente. A chave vale por usuário, método e caminho:
+// - resposta já guardada: é devolvida como foi (com Idempotent-Replayed: true) sem chamar o controller
+// - mesma chave em execução nesta instância: espera a primeira terminar e devolve a resposta dela
+// - caso contrário o endpoint executa e o IdempotenciaAdvice guarda a resposta antes de escrevê-la
+// A resposta guardada leva o hash do corpo da requisição (CorpoIdempotenteFilter): a mesma chave com outro
+// corpo é um erro do cliente e recebe 422, em vez da resposta de uma operação diferente.
+// Só respostas 2xx e 409 são guardadas (IdempotenciaAdvice): com as demais e com exceções o cliente pode tentar
+// de novo com a mesma chave.
+@Component
+@RequiredArgsConstructor
+public class IdempotenciaInterceptor implements HandlerInterceptor {
+
+    public static final String HEADER_CHAVE = "Idempotency-Key";
+    public static final String HEADER_REPETIDA = "Idempotent-Replayed";
+
+    // Chave da execução reservada por esta requisição; removido quando a resposta é guardada
+    static final String ATRIBUTO_CHAVE = IdempotenciaInterceptor.class.getName() + ".chave";
+
+    private static final int TAMANHO_MAXIMO_CHAVE = 200;
+
+    private final RespostasIdempotentes respostasIdempotentes;
+    private final ObjectMapper objectMapper;
+
+    @Value("${nautigo.idempotencia.espera-concorrente-ms:10000}")
+    private long esperaConcorrenteMs;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!(handler instanceof HandlerMethod metodo) || !metodo.hasMethodAnnotation(Idempotente.class)) {
+            return true;
+        }
+        String chaveCliente = request.getHeader(HEADER_CHAVE);
+        if (chaveCliente == null || chaveCliente.isBlank()) {
+            return true;
+        }
+        if (chaveCliente.length() > TAMANHO_MAXIMO_CHAVE) {
+            escreverMensagem(response, HttpStatus.BAD_REQUEST,
+                    HEADER_CHAVE + " deve ter no máximo " + TAMANHO_MAXIMO_CHAVE + " caracteres");
+            return false;
+        }
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacao == null || !(autenticacao.getPrincipal() instanceof UsuarioAutenticado usuario)) {
+            return true;
+        }
+
+        String chave = usuario.getUsuarioId() + ":" + request.getMethod() + ":" + request.getRequestURI()
+                + ":" + chaveCliente;
+        String hashCorpo = (String) request.getAttribute(CorpoIdempotenteFilter.ATRIBUTO_HASH_CORPO);
+        RespostaIdempotente guardada = respostasIdempotentes.buscar(chave);
+        if (guardada != null) {
+            repetirSeMesmoCorpo(response, guardada, hashCorpo);
+            return false;
+        }
+        CompletableFuture<RespostaIdempotente> emAndamento = respostasIdempotentes.reservar(chave);
+        if (emAndamento == null) {
+            request.setAttribute(ATRIBUTO_CHAVE, chave);
+            return true;
+        }
+
+        RespostaIdempotente resposta = aguardar(emAndamento);
+        if (resposta == null) {
+            escreverMensagem(response, HttpStatus.CONFLICT,
+                    "Outra requisição com a mesma " + HEADER_CHAVE + " não terminou. Tente novamente.");
+            return false;
+        }
+        repetirSeMesmoCorpo(response, resposta, hashCorpo);
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object chave = request.getAttribute(ATRIBUTO_CHAVE);
+        if (chave != null) {
+            respostasIdempotentes.liberar((String) chave);
+        }
+    }
+
+    private RespostaIdempotente aguardar(CompletableFuture<RespostaIdempotente> emAndamento) {
+        try {
+            return emAndamento.get(esperaConcorrenteMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    // Respostas guardadas antes do hash do corpo existir (hashCorpo nulo) são repetidas sem comparação
+    private void repetirSeMesmoCorpo(HttpServletResponse response, RespostaIdempotente resposta, String hashCorpo)
+            throws IOException {
+        if (resposta.getHashCorpo() != null && !resposta.getHashCorpo().equals(hashCorpo)) {
+            escreverMensagem(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER_CHAVE + " já usada em uma requisição com outro corpo");
+            return;
+        }
+        repetir(response, resposta);
+    }
+
+    private void repetir(HttpServletResponse response, RespostaIdempotente resposta) throws IOException {
+        response.setStatus(resposta.getStatusHttp());
+        response.setHeader(HEADER_REPETIDA, "true");
+        if (resposta.getCorpo() != null) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write(resposta.getCorpo());
+        }
+    }
+
+    private void escreverMensagem(HttpServletResponse response, HttpStatus status, String mensagem)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(Map.of("message", mensagem)));
+    }
+}
@@ -0,0 +1,14 @@
+package com.nautigo.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Endpoint que aceita o header Idempotency-Key: o reenvio com a mesma chave (mesmo usuário, método e
+// caminho) devolve a resposta original sem executar o endpoint de novo, e reenvios concorrentes esperam
+// pela primeira execução. Sem o header o endpoint se comporta normalmente. Ver IdempotenciaInterceptor.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotente {
+}
@@ -0,0 +1,17 @@
+package com.nautigo.config;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Leitura (transação readOnly) que pode ser atendida por uma réplica quando nautigo.datasource.replicas
+// está habilitado: listagens e consultas de avaliações, que toleram alguns segundos de atraso. O que decide
+// uma transição (status de viagem, idempotência, aprovação) continua lendo do primário. Ver RoteamentoDataSource.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Transactional(readOnly = true)
+public @interface LeituraReplica {
+}
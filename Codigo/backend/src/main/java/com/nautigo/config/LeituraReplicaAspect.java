@@ -0,0 +1,32 @@
+package com.nautigo.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Marca a thread enquanto um método @LeituraReplica executa; o RoteamentoDataSource só manda para a réplica
+// as transações readOnly abertas com essa marca. Roda por fora da transação (maior precedência), e a
+// conexão só é escolhida no primeiro comando SQL (LazyConnectionDataSourceProxy).
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LeituraReplicaAspect {
+
+    @Around("@annotation(com.nautigo.config.LeituraReplica)")
+    public Object marcarLeitura(ProceedingJoinPoint joinPoint) throws Throwable {
+        Boolean anterior = RoteamentoDataSource.LEITURA_REPLICA.get();
+        RoteamentoDataSource.LEITURA_REPLICA.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            if (anterior == null) {
+                RoteamentoDataSource.LEITURA_REPLICA.remove();
+            } else {
+                RoteamentoDataSource.LEITURA_REPLICA.set(anterior);
+            }
+        }
+    }
+}
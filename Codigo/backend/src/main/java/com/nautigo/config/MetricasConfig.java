@@ -0,0 +1,18 @@
+package com.nautigo.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// As métricas do pool (hikaricp.*), das requisições HTTP (http.server.requests), da JVM e do Hibernate
+// (hibernate.*, com hibernate.generate_statistics=true) vêm da auto-configuração do Actuator.
+@Configuration
+public class MetricasConfig {
+
+    // Contagem de comandos SQL por requisição (header X-Sql-Statements e @OrcamentoSql)
+    @Bean
+    public HibernatePropertiesCustomizer contadorSqlCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorSql());
+    }
+}
@@ -0,0 +1,18 @@
+package com.nautigo.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Número máximo de comandos SQL que um endpoint pode executar por requisição, independente do
+// tamanho da página. Conferido pelo OrcamentoSqlAdvice antes de escrever a resposta: acima do
+// orçamento é registrado um aviso ou, com nautigo.sql.orcamento.falhar=true (testes), a requisição falha.
+// Conta também os comandos da autenticação: nos endpoints de marinheiro o orçamento inclui a consulta do
+// status de aprovação, feita quando ele expirou do cache.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OrcamentoSql {
+
+    int value();
+}
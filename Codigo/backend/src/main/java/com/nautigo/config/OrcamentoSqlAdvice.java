@@ -0,0 +1,59 @@
+package com.nautigo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Quando o corpo da resposta vai ser escrito, o controller e os services já executaram todas as
+// consultas (sem open-in-view não há carregamento tardio na serialização): é aqui que a contagem
+// é publicada no header e comparada com o @OrcamentoSql do endpoint.
+// Respostas de requisições assíncronas (long-polling, SSE) são escritas em outra thread e ficam de fora.
+// Respostas sem corpo (ResponseEntity vazio, como um 204) também não passam por aqui.
+@ControllerAdvice
+@Slf4j
+public class OrcamentoSqlAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String HEADER_COMANDOS_SQL = "X-Sql-Statements";
+
+    @Value("${nautigo.sql.contador.header:false}")
+    private boolean publicarHeader;
+
+    @Value("${nautigo.sql.orcamento.falhar:false}")
+    private boolean falharAcimaDoOrcamento;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!ContadorSql.ativo()) {
+            return body;
+        }
+        int comandos = ContadorSql.total();
+        if (publicarHeader) {
+            response.getHeaders().set(HEADER_COMANDOS_SQL, String.valueOf(comandos));
+        }
+
+        OrcamentoSql orcamento = returnType.getMethodAnnotation(OrcamentoSql.class);
+        if (orcamento != null && comandos > orcamento.value()) {
+            String mensagem = String.format("%s %s executou %d comandos SQL (orçamento: %d)",
+                    request.getMethod(), request.getURI().getPath(), comandos, orcamento.value());
+            if (falharAcimaDoOrcamento) {
+                // A transação do endpoint já foi concluída: este modo é para testes, não para produção
+                throw new IllegalStateException(mensagem);
+            }
+            log.warn(mensagem);
+        }
+        return body;
+    }
+}
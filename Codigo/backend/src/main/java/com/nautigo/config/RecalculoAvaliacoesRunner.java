@@ -0,0 +1,28 @@
+package com.nautigo.config;
+
+import com.nautigo.service.AvaliacaoService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Reconstrói os agregados de avaliação (soma/quantidade) de todos os usuários quando a aplicação
+// é iniciada com o argumento --recalcular-avaliacoes
+// Ex.: mvn spring-boot:run -Dspring-boot.run.arguments=--recalcular-avaliacoes
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecalculoAvaliacoesRunner implements ApplicationRunner {
+    
+    private final AvaliacaoService avaliacaoService;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("recalcular-avaliacoes")) {
+            return;
+        }
+        int usuariosAtualizados = avaliacaoService.recalcularAgregadosDeAvaliacao();
+        log.info("Agregados de avaliação recalculados para {} usuário(s)", usuariosAtualizados);
+    }
+}
@@ -0,0 +1,77 @@
+package com.nautigo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Réplicas de leitura (nautigo.datasource.replicas.habilitado=true): o spring.datasource continua sendo o
+// primário, e o DataSource usado por JPA, JdbcTemplate e Flyway passa a ser o RoteamentoDataSource atrás de
+// um LazyConnectionDataSourceProxy. Sem a propriedade, a auto-configuração do Spring Boot cria o pool como antes.
+@Configuration
+@ConditionalOnProperty(name = "nautigo.datasource.replicas.habilitado", havingValue = "true")
+public class ReplicasConfig {
+
+    // Mesmo pool que a auto-configuração criaria (spring.datasource.*, spring.datasource.hikari.*)
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public RoteamentoDataSource roteamentoDataSource(
+            HikariDataSource dataSourcePrimario,
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${nautigo.datasource.replicas.urls}") String[] urls,
+            @Value("${nautigo.datasource.replicas.username:${spring.datasource.username}}") String username,
+            @Value("${nautigo.datasource.replicas.password:${spring.datasource.password}}") String password,
+            @Value("${nautigo.datasource.replicas.tamanho-pool:10}") int tamanhoPool,
+            @Value("${nautigo.datasource.replicas.connection-timeout-ms:1000}") long connectionTimeoutMs,
+            @Value("${nautigo.datasource.replicas.atraso-maximo-ms:2000}") long atrasoMaximoMs,
+            @Value("${nautigo.datasource.replicas.janela-leitura-propria-ms:5000}") long janelaLeituraPropriaMs) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(urls[i].trim())
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setMaximumPoolSize(tamanhoPool);
+            replica.setReadOnly(true);
+            // Réplica fora do ar: a leitura desiste logo e vai para o primário, em vez de esperar os 30 s padrão.
+            // O pool é criado mesmo sem conseguir conectar na inicialização.
+            replica.setConnectionTimeout(connectionTimeoutMs);
+            replica.setInitializationFailTimeout(-1);
+            // Métricas hikaricp.* com a tag pool=replica-N, como as do primário
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        RoteamentoDataSource roteamento = new RoteamentoDataSource(dataSourcePrimario, replicas, atrasoMaximoMs,
+                janelaLeituraPropriaMs, meterRegistry);
+        roteamento.iniciar();
+        return roteamento;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteamentoDataSource roteamentoDataSource) {
+        return new LazyConnectionDataSourceProxy(roteamentoDataSource);
+    }
+}
@@ -0,0 +1,123 @@
+package com.nautigo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nautigo.entity.RespostaIdempotente;
+import com.nautigo.repository.RespostaIdempotenteRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Respostas das requisições com Idempotency-Key: um cache limitado (tamanho e TTL) na frente da tabela
+// respostas_idempotentes, que cobre restarts e as outras instâncias. Também guarda as execuções em
+// andamento nesta instância, para que reenvios concorrentes esperem a primeira em vez de executar de novo.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RespostasIdempotentes {
+
+    private final RespostaIdempotenteRepository respostaIdempotenteRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<String, CompletableFuture<RespostaIdempotente>> emAndamento = new ConcurrentHashMap<>();
+    private Cache<String, RespostaIdempotente> respostas;
+    private TransactionTemplate transacao;
+
+    @Value("${nautigo.idempotencia.ttl-horas:24}")
+    private long ttlHoras;
+
+    @Value("${nautigo.idempotencia.tamanho-maximo-cache:10000}")
+    private long tamanhoMaximoCache;
+
+    @PostConstruct
+    void inicializar() {
+        respostas = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximoCache)
+                .expireAfterWrite(Duration.ofHours(ttlHoras))
+                .build();
+        // Transação própria: a falha da chave primária não pode afetar outra transação da requisição
+        transacao = new TransactionTemplate(transactionManager);
+        transacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Resposta já guardada para a chave (cache, depois banco), ou null
+    public RespostaIdempotente buscar(String chave) {
+        RespostaIdempotente resposta = respostas.getIfPresent(chave);
+        if (resposta != null) {
+            return resposta;
+        }
+        resposta = respostaIdempotenteRepository.findById(chave)
+                .filter(guardada -> guardada.getCriadaEm().isAfter(LocalDateTime.now().minusHours(ttlHoras)))
+                .orElse(null);
+        if (resposta != null) {
+            respostas.put(chave, resposta);
+        }
+        return resposta;
+    }
+
+    // Reserva a execução da chave nesta instância. Devolve null se a reserva foi feita (quem chamou deve
+    // executar e depois chamar guardar ou liberar) ou a execução que já está em andamento.
+    public CompletableFuture<RespostaIdempotente> reservar(String chave) {
+        CompletableFuture<RespostaIdempotente> existente = emAndamento.putIfAbsent(chave, new CompletableFuture<>());
+        if (existente != null) {
+            return existente;
+        }
+        // A execução anterior pode ter terminado entre a busca e a reserva (ela guarda no cache antes de sair)
+        RespostaIdempotente resposta = respostas.getIfPresent(chave);
+        if (resposta != null) {
+            concluir(chave, resposta);
+            return CompletableFuture.completedFuture(resposta);
+        }
+        return null;
+    }
+
+    public void guardar(String chave, int statusHttp, String corpo, String hashCorpo) {
+        RespostaIdempotente resposta = new RespostaIdempotente(chave, statusHttp, corpo, hashCorpo,
+                LocalDateTime.now());
+        respostas.put(chave, resposta);
+        try {
+            transacao.executeWithoutResult(status -> respostaIdempotenteRepository.saveAndFlush(resposta));
+        } catch (DataIntegrityViolationException e) {
+            // Outra instância guardou a mesma chave antes: a primeira resposta prevalece no banco
+            log.debug("Resposta idempotente já guardada para a chave {}", chave);
+        } catch (RuntimeException e) {
+            // Continua valendo nesta instância pelo cache
+            log.warn("Falha ao gravar resposta idempotente", e);
+        }
+        concluir(chave, resposta);
+    }
+
+    // A execução terminou sem resposta guardável (exceção, 4xx que não é conflito, 5xx): quem estava esperando
+    // é liberado
+    public void liberar(String chave) {
+        concluir(chave, null);
+    }
+
+    @Scheduled(fixedDelayString = "${nautigo.idempotencia.limpeza-ms:3600000}")
+    public void apagarExpiradas() {
+        int apagadas = respostaIdempotenteRepository.apagarCriadasAntesDe(LocalDateTime.now().minusHours(ttlHoras));
+        if (apagadas > 0) {
+            log.debug("{} respostas idempotentes expiradas apagadas", apagadas);
+        }
+    }
+
+    private void concluir(String chave, RespostaIdempotente resposta) {
+        CompletableFuture<RespostaIdempotente> execucao = emAndamento.remove(chave);
+        if (execucao != null) {
+            execucao.complete(resposta);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.nautigo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nautigo.security.UsuarioAutenticado;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Escolhe a conexão de cada transação: as readOnly abertas por um método @LeituraReplica vão para uma das
+// réplicas (em rodízio), todo o resto vai para o primário. Fica atrás de um LazyConnectionDataSourceProxy,
+// então a escolha acontece no primeiro comando SQL, quando o readOnly da transação já é conhecido.
+// - Atraso: a cada verificacao-ms cada réplica informa há quanto tempo está atrás do primário; as que passam
+//   de atraso-maximo-ms (ou não respondem) ficam fora do rodízio e, sem nenhuma disponível, lê do primário.
+//   Uma réplica que falha ao entregar a conexão também sai do rodízio e a leitura vai para o primário.
+// - Ler as próprias escritas: depois do commit de uma transação de escrita, as leituras do mesmo usuário vão
+//   para o primário por janela-leitura-propria-ms (nesta instância), assim a listagem logo após uma transição
+//   já mostra o novo status.
+@Slf4j
+public class RoteamentoDataSource extends AbstractDataSource {
+
+    static final ThreadLocal<Boolean> LEITURA_REPLICA = new ThreadLocal<>();
+
+    // Uma réplica que já reproduziu todo o WAL recebido está em dia mesmo que o último commit reproduzido seja
+    // antigo (primário parado); fora de recuperação (instância que não é standby) o atraso é considerado zero
+    private static final String CONSULTA_ATRASO = "SELECT CASE WHEN NOT pg_is_in_recovery() " +
+            "OR pg_last_wal_receive_lsn() <= pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+
+    private final HikariDataSource primario;
+    private final List<Replica> replicas;
+    private final long atrasoMaximoMs;
+    private final Cache<Long, Boolean> escritasRecentes;
+    private final AtomicInteger proxima = new AtomicInteger();
+    private final Counter leiturasReplica;
+    private final Counter leiturasPrimario;
+
+    public RoteamentoDataSource(HikariDataSource primario, List<HikariDataSource> replicas, long atrasoMaximoMs,
+                                long janelaLeituraPropriaMs, MeterRegistry meterRegistry) {
+        this.primario = primario;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.atrasoMaximoMs = atrasoMaximoMs;
+        this.escritasRecentes = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(janelaLeituraPropriaMs))
+                .build();
+
+        leiturasReplica = Counter.builder("nautigo.datasource.leituras")
+                .description("Transações @LeituraReplica por destino")
+                .tag("destino", "replica")
+                .register(meterRegistry);
+        leiturasPrimario = Counter.builder("nautigo.datasource.leituras")
+                .description("Transações @LeituraReplica por destino")
+                .tag("destino", "primario")
+                .register(meterRegistry);
+        for (Replica replica : this.replicas) {
+            Gauge.builder("nautigo.datasource.replica.atraso", replica, r -> r.atrasoMs)
+                    .description("Atraso da réplica em relação ao primário (ms); NaN se ela não respondeu")
+                    .tag("replica", replica.nome)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    // Chamado pelo ReplicasConfig antes da primeira leitura, para não mandar nada a uma réplica não conferida
+    public void iniciar() {
+        verificarAtraso();
+    }
+
+    @Scheduled(fixedDelayString = "${nautigo.datasource.replicas.verificacao-ms:1000}")
+    public void verificarAtraso() {
+        for (Replica replica : replicas) {
+            double atraso;
+            try (Connection conexao = replica.dataSource.getConnection();
+                 Statement statement = conexao.createStatement();
+                 ResultSet rs = statement.executeQuery(CONSULTA_ATRASO)) {
+                atraso = rs.next() ? rs.getDouble(1) : Double.NaN;
+            } catch (SQLException | RuntimeException e) {
+                log.debug("Réplica {} não respondeu à verificação de atraso", replica.nome, e);
+                atraso = Double.NaN;
+            }
+            boolean disponivel = !Double.isNaN(atraso) && atraso <= atrasoMaximoMs;
+            if (disponivel != replica.disponivel) {
+                log.warn("Réplica {} {} (atraso: {} ms)", replica.nome,
+                        disponivel ? "voltou ao rodízio de leituras" : "saiu do rodízio de leituras", atraso);
+            }
+            replica.atrasoMs = atraso;
+            replica.disponivel = disponivel;
+        }
+    }
+
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            lembrarEscrita();
+            return primario.getConnection();
+        }
+        if (!Boolean.TRUE.equals(LEITURA_REPLICA.get())) {
+            return primario.getConnection();
+        }
+        Long usuarioId = usuarioAtual();
+        Replica replica = usuarioId != null && escritasRecentes.getIfPresent(usuarioId) != null
+                ? null
+                : escolherReplica();
+        if (replica != null) {
+            try {
+                Connection conexao = replica.dataSource.getConnection();
+                leiturasReplica.increment();
+                return conexao;
+            } catch (SQLException | RuntimeException e) {
+                // Volta ao rodízio na próxima verificação de atraso bem-sucedida
+                replica.disponivel = false;
+                log.warn("Réplica {} saiu do rodízio de leituras: {}", replica.nome, e.getMessage());
+            }
+        }
+        leiturasPrimario.increment();
+        return primario.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primario.getConnection(username, password);
+    }
+
+    private Replica escolherReplica() {
+        int quantidade = replicas.size();
+        if (quantidade == 0) {
+            return null;
+        }
+        int inicio = Math.floorMod(proxima.getAndIncrement(), quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Replica replica = replicas.get((inicio + i) % quantidade);
+            if (replica.disponivel) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    // Transação de escrita de um usuário autenticado: a partir do commit, as leituras dele vão para o primário
+    private void lembrarEscrita() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Long usuarioId = usuarioAtual();
+        if (usuarioId == null) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                escritasRecentes.put(usuarioId, Boolean.TRUE);
+            }
+        });
+    }
+
+    private static Long usuarioAtual() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UsuarioAutenticado usuario) {
+            return usuario.getUsuarioId();
+        }
+        return null;
+    }
+
+    private static final class Replica {
+        private final String nome;
+        private final HikariDataSource dataSource;
+        private volatile double atrasoMs = Double.NaN;
+        private volatile boolean disponivel = false;
+
+        private Replica(HikariDataSource dataSource) {
+            this.nome = dataSource.getPoolName();
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.nautigo.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -13,7 +15,10 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import com.nautigo.controller.MarinheiroController;
 import com.nautigo.security.JwtAuthenticationFilter;
+import com.nautigo.security.LimiteRequisicoesFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 
 import java.util.Arrays;
@@ -26,10 +31,12 @@ import java.util.List;
 public class SecurityConfig {
     
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final LimiteRequisicoesFilter limiteRequisicoesFilter;
     
+    // Ao mudar o custo, os hashes antigos continuam válidos e são refeitos no próximo login de cada usuário
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${nautigo.senhas.bcrypt.custo:10}") int custo) {
+        return new BCryptPasswordEncoder(custo);
     }
     
     @Bean
@@ -39,25 +46,43 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Retomada de requisições assíncronas (long-polling) já autorizadas no dispatch original
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/usuario/**").authenticated()
                 .requestMatchers("/api/passageiro/**").authenticated()
                 .requestMatchers("/api/marinheiro/**").authenticated()
                 .requestMatchers("/api/avaliacoes/**").authenticated()
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            // Depois do CorsFilter (o 429 também leva os headers de CORS) e antes de qualquer verificação de token
+            .addFilterBefore(limiteRequisicoesFilter, JwtAuthenticationFilter.class);
         
         return http.build();
     }
     
+    // O limite roda só dentro da cadeia de segurança, não também como filtro comum do servlet
+    @Bean
+    public FilterRegistrationBean<LimiteRequisicoesFilter> limiteRequisicoesFilterRegistration() {
+        FilterRegistrationBean<LimiteRequisicoesFilter> registro = new FilterRegistrationBean<>(limiteRequisicoesFilter);
+        registro.setEnabled(false);
+        return registro;
+    }
+    
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:3000", "http://localhost:5173"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
+        // Id do último evento do stream de viagens, lido pela tela de viagens disponíveis, e a marca
+        // de resposta repetida por Idempotency-Key
+        configuration.setExposedHeaders(List.of(MarinheiroController.ULTIMO_EVENTO_HEADER,
+                IdempotenciaInterceptor.HEADER_REPETIDA));
         configuration.setAllowCredentials(true);
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
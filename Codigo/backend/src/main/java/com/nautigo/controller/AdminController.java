@@ -1,6 +1,8 @@
 package com.nautigo.controller;
 
+import com.nautigo.config.OrcamentoSql;
 import com.nautigo.dto.MarinheiroResponse;
+import com.nautigo.service.AvaliacaoService;
 import com.nautigo.service.MarinheiroService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -18,8 +20,10 @@ import java.util.Map;
 public class AdminController {
     
     private final MarinheiroService marinheiroService;
+    private final AvaliacaoService avaliacaoService;
     
     @GetMapping("/marinheiros/pendentes")
+    @OrcamentoSql(1)
     public ResponseEntity<List<MarinheiroResponse>> listarPendentes() {
         return ResponseEntity.ok(marinheiroService.listarPendentes());
     }
@@ -49,5 +53,13 @@ public class AdminController {
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         }
     }
+    
+    @PostMapping("/avaliacoes/recalcular")
+    public ResponseEntity<?> recalcularAgregadosDeAvaliacao() {
+        int usuariosAtualizados = avaliacaoService.recalcularAgregadosDeAvaliacao();
+        return ResponseEntity.ok(Map.of(
+                "message", "Agregados de avaliação recalculados com sucesso",
+                "usuariosAtualizados", usuariosAtualizados
+        ));
+    }
 }
-
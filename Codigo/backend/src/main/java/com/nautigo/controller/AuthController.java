@@ -1,9 +1,11 @@
 package com.nautigo.controller;
 
 import com.nautigo.dto.*;
+import com.nautigo.exception.SobrecargaHashSenhasException;
 import com.nautigo.service.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,6 +16,9 @@ import org.springframework.web.bind.annotation.*;
 @CrossOrigin(origins = "*")
 public class AuthController {
     
+    // Segundos sugeridos ao cliente quando o pool de hash de senhas está cheio
+    private static final String RETRY_AFTER_SOBRECARGA = "2";
+    
     private final AuthService authService;
     
     @PostMapping("/login")
@@ -21,6 +26,10 @@ public class AuthController {
         try {
             LoginResponse response = authService.login(request);
             return ResponseEntity.ok(response);
+        } catch (SobrecargaHashSenhasException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SOBRECARGA)
+                    .build();
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -31,6 +40,10 @@ public class AuthController {
         try {
             UserResponse response = authService.cadastrarPassageiro(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (SobrecargaHashSenhasException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SOBRECARGA)
+                    .body(new ErrorResponse(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(new ErrorResponse(e.getMessage()));
@@ -42,6 +55,10 @@ public class AuthController {
         try {
             UserResponse response = authService.cadastrarMarinheiro(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (SobrecargaHashSenhasException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SOBRECARGA)
+                    .body(new ErrorResponse(e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(new ErrorResponse(e.getMessage()));
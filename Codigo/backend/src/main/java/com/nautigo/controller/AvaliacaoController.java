@@ -1,15 +1,16 @@
 package com.nautigo.controller;
 
+import com.nautigo.config.OrcamentoSql;
 import com.nautigo.dto.AvaliarViagemRequest;
 import com.nautigo.dto.AvaliacaoResponse;
 import com.nautigo.repository.UsuarioRepository;
-import com.nautigo.security.JwtUtil;
+import com.nautigo.security.UsuarioAutenticado;
 import com.nautigo.service.AvaliacaoService;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -23,20 +24,14 @@ public class AvaliacaoController {
     
     private final AvaliacaoService avaliacaoService;
     private final UsuarioRepository usuarioRepository;
-    private final JwtUtil jwtUtil;
-    
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return jwtUtil.extractUserId(token);
-    }
     
     @PostMapping("/viagens/{viagemId}")
     public ResponseEntity<?> avaliarViagem(
             @PathVariable Long viagemId,
             @Valid @RequestBody AvaliarViagemRequest request,
-            HttpServletRequest httpRequest) {
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(httpRequest);
+            Long usuarioId = usuarioAutenticado.getUsuarioId();
             AvaliacaoResponse response = avaliacaoService.avaliarViagem(viagemId, usuarioId, request);
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
@@ -46,6 +41,7 @@ public class AvaliacaoController {
     }
     
     @GetMapping("/usuario/{usuarioId}/media")
+    @OrcamentoSql(2)
     public ResponseEntity<Map<String, Object>> obterNotaMedia(@PathVariable Long usuarioId) {
         try {
             Double media = avaliacaoService.obterNotaMedia(usuarioId);
@@ -60,9 +56,18 @@ public class AvaliacaoController {
         }
     }
     
+    // Com o parâmetro "cursor" (vazio na primeira página) retorna uma página por cursor;
+    // sem ele mantém a lista completa
     @GetMapping("/usuario/{usuarioId}")
-    public ResponseEntity<List<AvaliacaoResponse>> listarAvaliacoes(@PathVariable Long usuarioId) {
+    @OrcamentoSql(2)
+    public ResponseEntity<?> listarAvaliacoes(
+            @PathVariable Long usuarioId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
         try {
+            if (cursor != null) {
+                return ResponseEntity.ok(avaliacaoService.listarAvaliacoesDoUsuarioPorCursor(usuarioId, cursor, size));
+            }
             List<AvaliacaoResponse> avaliacoes = avaliacaoService.listarAvaliacoesDoUsuario(usuarioId);
             return ResponseEntity.ok(avaliacoes);
         } catch (RuntimeException e) {
@@ -73,9 +78,9 @@ public class AvaliacaoController {
     @GetMapping("/viagens/{viagemId}/verificar")
     public ResponseEntity<Map<String, Boolean>> verificarAvaliacao(
             @PathVariable Long viagemId,
-            HttpServletRequest httpRequest) {
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(httpRequest);
+            Long usuarioId = usuarioAutenticado.getUsuarioId();
             boolean jaAvaliou = avaliacaoService.verificarSeJaAvaliou(viagemId, usuarioId);
             return ResponseEntity.ok(Map.of("jaAvaliou", jaAvaliou));
         } catch (RuntimeException e) {
@@ -1,18 +1,27 @@
 package com.nautigo.controller;
 
+import com.nautigo.config.Idempotente;
+import com.nautigo.config.OrcamentoSql;
+import com.nautigo.dto.PosicaoRequest;
 import com.nautigo.dto.ViagemResponse;
 import com.nautigo.entity.Marinheiro;
-import com.nautigo.entity.Usuario;
-import com.nautigo.repository.MarinheiroRepository;
-import com.nautigo.repository.UsuarioRepository;
-import com.nautigo.security.JwtUtil;
+import com.nautigo.exception.ConflitoTransicaoViagemException;
+import com.nautigo.security.UsuarioAutenticado;
+import com.nautigo.service.AcompanhamentoViagemService;
+import com.nautigo.service.FeedViagensDisponiveis;
+import com.nautigo.service.RastreamentoViagens;
 import com.nautigo.service.ViagemService;
-import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
@@ -24,61 +33,145 @@ import java.util.Map;
 public class MarinheiroController {
     
     private final ViagemService viagemService;
-    private final MarinheiroRepository marinheiroRepository;
-    private final UsuarioRepository usuarioRepository;
-    private final JwtUtil jwtUtil;
+    private final AcompanhamentoViagemService acompanhamentoViagemService;
+    private final FeedViagensDisponiveis feedViagensDisponiveis;
+    private final RastreamentoViagens rastreamentoViagens;
     
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return jwtUtil.extractUserId(token);
-    }
+    public static final String ULTIMO_EVENTO_HEADER = "X-Ultimo-Evento-Id";
     
+    // Só traz viagens que cabem na embarcação do marinheiro, em qualquer modo.
+    // Com latitude/longitude (posição do marinheiro) retorna só as viagens com ponto de embarque a até
+    // raioKm, mais próximas primeiro; sem elas mantém todas as disponíveis, mais recentes primeiro.
+    // Com o parâmetro "cursor" (vazio na primeira página) pagina por cursor, consultando o banco, e aceita
+    // os filtros valorMinimo, numeroPessoasMaximo e agendada (true/false)
     @GetMapping("/viagens/disponiveis")
-    public ResponseEntity<List<ViagemResponse>> listarViagensDisponiveis(HttpServletRequest request) {
-        Long usuarioId = getUserIdFromRequest(request);
-        Usuario usuario = usuarioRepository.findById(usuarioId)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+    @OrcamentoSql(2)
+    public ResponseEntity<?> listarViagensDisponiveis(
+            @RequestParam(required = false) Double latitude,
+            @RequestParam(required = false) Double longitude,
+            @RequestParam(required = false) Double raioKm,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) BigDecimal valorMinimo,
+            @RequestParam(required = false) Integer numeroPessoasMaximo,
+            @RequestParam(required = false) Boolean agendada,
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        try {
+            Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
 
-        Marinheiro marinheiro = marinheiroRepository.findByUsuario(usuario)
-                .orElseThrow(() -> new RuntimeException("Usuário não é um marinheiro"));
+            // Lido antes da listagem: o cliente abre o stream a partir deste evento e recebe tudo que mudar depois
+            String ultimoEventoId = feedViagensDisponiveis.ultimoEventoId();
+            if (cursor != null) {
+                if (latitude != null || longitude != null) {
+                    throw new RuntimeException("A busca por proximidade não é paginada por cursor");
+                }
+                return ResponseEntity.ok()
+                        .header(ULTIMO_EVENTO_HEADER, ultimoEventoId)
+                        .body(viagemService.listarViagensDisponiveisPorCursor(marinheiroId, cursor, size,
+                                valorMinimo, numeroPessoasMaximo, agendada));
+            }
+            List<ViagemResponse> viagens = latitude == null && longitude == null
+                    ? viagemService.listarViagensDisponiveis(marinheiroId)
+                    : viagemService.listarViagensDisponiveisProximas(marinheiroId, latitude, longitude, raioKm);
+            return ResponseEntity.ok()
+                    .header(ULTIMO_EVENTO_HEADER, ultimoEventoId)
+                    .body(viagens);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    // Stream (SSE) de viagens que entram e saem do quadro de disponíveis
+    @GetMapping("/viagens/eventos")
+    public ResponseEntity<SseEmitter> acompanharViagensDisponiveis(
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId,
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        try {
+            Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
 
-        List<ViagemResponse> viagens = viagemService.listarViagensDisponiveis(marinheiro.getId());
-        return ResponseEntity.ok(viagens);
+            SseEmitter emitter = feedViagensDisponiveis.conectar(marinheiroId, ultimoEventoId);
+            return ResponseEntity.ok()
+                    .header("Cache-Control", "no-cache")
+                    .header("X-Accel-Buffering", "no")
+                    .body(emitter);
+        } catch (RuntimeException e) {
+            // O corpo de um stream SSE é sempre um emitter: a mensagem vai num único evento "erro"
+            SseEmitter erro = new SseEmitter();
+            try {
+                erro.send(SseEmitter.event().name("erro").data(Map.of("message", e.getMessage()), MediaType.APPLICATION_JSON));
+                erro.complete();
+            } catch (IOException ex) {
+                erro.completeWithError(ex);
+            }
+            return ResponseEntity.badRequest().body(erro);
+        }
     }
     
+    // Com o parâmetro "cursor" (vazio na primeira página) usa paginação por cursor, sem totais;
+    // sem ele mantém a paginação por número de página
     @GetMapping("/viagens")
+    @OrcamentoSql(3)
     public ResponseEntity<?> listarMinhasViagens(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            HttpServletRequest request) {
-        Long usuarioId = getUserIdFromRequest(request);
-        Usuario usuario = usuarioRepository.findById(usuarioId)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
         
-        Marinheiro marinheiro = marinheiroRepository.findByUsuario(usuario)
-                .orElseThrow(() -> new RuntimeException("Usuário não é um marinheiro"));
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(viagemService.listarViagensDoMarinheiroPorCursor(marinheiroId, cursor, size));
+            } catch (RuntimeException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("message", e.getMessage()));
+            }
+        }
         
-        var response = viagemService.listarViagensDoMarinheiroPaginado(marinheiro.getId(), page, size);
+        var response = viagemService.listarViagensDoMarinheiroPaginado(marinheiroId, page, size);
         return ResponseEntity.ok(response);
     }
     
-    @PostMapping("/viagens/{id}/aceitar")
-    public ResponseEntity<?> aceitarViagem(@PathVariable Long id, HttpServletRequest request) {
+    // Detalhe de uma viagem com long-polling: enviar em "versao" o último dataAtualizacao recebido
+    // para aguardar a próxima alteração (304 se nada mudar até o timeout)
+    @GetMapping("/viagens/{id}")
+    public DeferredResult<ResponseEntity<?>> acompanharViagem(
+            @PathVariable Long id,
+            @RequestParam(required = false) String versao,
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(request);
-            Usuario usuario = usuarioRepository.findById(usuarioId)
-                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+            Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
             
-            Marinheiro marinheiro = marinheiroRepository.findByUsuario(usuario)
-                    .orElseThrow(() -> new RuntimeException("Usuário não é um marinheiro"));
+            return acompanhamentoViagemService.acompanhar(
+                    id,
+                    versao,
+                    () -> viagemService.buscarViagemDoMarinheiro(id, marinheiroId),
+                    viagem -> marinheiroId.equals(viagem.getMarinheiroId())
+            );
+        } catch (RuntimeException e) {
+            DeferredResult<ResponseEntity<?>> erro = new DeferredResult<>();
+            erro.setResult(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", e.getMessage())));
+            return erro;
+        }
+    }
+    
+    @PostMapping("/viagens/{id}/aceitar")
+    @Idempotente
+    public ResponseEntity<?> aceitarViagem(@PathVariable Long id, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        try {
+            Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
             
-            if (marinheiro.getStatusAprovacao() != Marinheiro.StatusAprovacao.APROVADO) {
+            if (usuarioAutenticado.getStatusAprovacao() != Marinheiro.StatusAprovacao.APROVADO) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(Map.of("message", "Você precisa estar aprovado para aceitar viagens"));
             }
             
-            ViagemResponse viagem = viagemService.aceitarViagem(id, marinheiro.getId());
+            ViagemResponse viagem = viagemService.aceitarViagem(id, marinheiroId);
             return ResponseEntity.ok(viagem);
+        } catch (ConflitoTransicaoViagemException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", e.getMessage()));
@@ -86,14 +179,10 @@ public class MarinheiroController {
     }
 
     @PostMapping("/viagens/{id}/contra-proposta")
-    public ResponseEntity<?> proporContraProposta(@PathVariable Long id, @RequestBody Map<String, Object> body, HttpServletRequest request) {
+    @Idempotente
+    public ResponseEntity<?> proporContraProposta(@PathVariable Long id, @RequestBody Map<String, Object> body, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(request);
-            Usuario usuario = usuarioRepository.findById(usuarioId)
-                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
-
-            Marinheiro marinheiro = marinheiroRepository.findByUsuario(usuario)
-                    .orElseThrow(() -> new RuntimeException("Usuário não é um marinheiro"));
+            Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
 
             Object valorObj = body.get("novoValor");
             if (valorObj == null) {
@@ -109,8 +198,11 @@ public class MarinheiroController {
                         .body(Map.of("message", "Valor inválido para novoValor"));
             }
 
-            ViagemResponse viagem = viagemService.proporContraProposta(id, marinheiro.getId(), novoValor);
+            ViagemResponse viagem = viagemService.proporContraProposta(id, marinheiroId, novoValor);
             return ResponseEntity.ok(viagem);
+        } catch (ConflitoTransicaoViagemException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(Map.of("message", e.getMessage()));
@@ -118,17 +210,16 @@ public class MarinheiroController {
     }
 
     @PostMapping("/viagens/{id}/recusar")
-    public ResponseEntity<?> recusarViagem(@PathVariable Long id, HttpServletRequest request) {
+    @Idempotente
+    public ResponseEntity<?> recusarViagem(@PathVariable Long id, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(request);
-            Usuario usuario = usuarioRepository.findById(usuarioId)
-                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+            Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
 
-            Marinheiro marinheiro = marinheiroRepository.findByUsuario(usuario)
-                    .orElseThrow(() -> new RuntimeException("Usuário não é um marinheiro"));
-
-            ViagemResponse viagem = viagemService.recusarViagem(id, marinheiro.getId());
+            ViagemResponse viagem = viagemService.recusarViagem(id, marinheiroId);
             return ResponseEntity.ok(viagem);
+        } catch (ConflitoTransicaoViagemException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", e.getMessage()));
@@ -136,11 +227,15 @@ public class MarinheiroController {
     }
     
     @PostMapping("/viagens/{id}/cancelar")
-    public ResponseEntity<?> cancelarViagem(@PathVariable Long id, HttpServletRequest request) {
+    @Idempotente
+    public ResponseEntity<?> cancelarViagem(@PathVariable Long id, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(request);
+            Long usuarioId = usuarioAutenticado.getUsuarioId();
             ViagemResponse viagem = viagemService.cancelarViagem(id, usuarioId);
             return ResponseEntity.ok(viagem);
+        } catch (ConflitoTransicaoViagemException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", e.getMessage()));
@@ -148,17 +243,16 @@ public class MarinheiroController {
     }
     
     @PostMapping("/viagens/{id}/iniciar")
-    public ResponseEntity<?> iniciarViagem(@PathVariable Long id, HttpServletRequest request) {
+    @Idempotente
+    public ResponseEntity<?> iniciarViagem(@PathVariable Long id, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(request);
-            Usuario usuario = usuarioRepository.findById(usuarioId)
-                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+            Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
             
-            Marinheiro marinheiro = marinheiroRepository.findByUsuario(usuario)
-                    .orElseThrow(() -> new RuntimeException("Usuário não é um marinheiro"));
-            
-            ViagemResponse viagem = viagemService.iniciarViagem(id, marinheiro.getId());
+            ViagemResponse viagem = viagemService.iniciarViagem(id, marinheiroId);
             return ResponseEntity.ok(viagem);
+        } catch (ConflitoTransicaoViagemException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", e.getMessage()));
@@ -166,21 +260,36 @@ public class MarinheiroController {
     }
     
     @PostMapping("/viagens/{id}/concluir")
-    public ResponseEntity<?> concluirViagem(@PathVariable Long id, HttpServletRequest request) {
+    @Idempotente
+    public ResponseEntity<?> concluirViagem(@PathVariable Long id, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(request);
-            Usuario usuario = usuarioRepository.findById(usuarioId)
-                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+            Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
             
-            Marinheiro marinheiro = marinheiroRepository.findByUsuario(usuario)
-                    .orElseThrow(() -> new RuntimeException("Usuário não é um marinheiro"));
-            
-            ViagemResponse viagem = viagemService.concluirViagem(id, marinheiro.getId());
+            ViagemResponse viagem = viagemService.concluirViagem(id, marinheiroId);
             return ResponseEntity.ok(viagem);
+        } catch (ConflitoTransicaoViagemException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    // Posição GPS da embarcação durante a viagem (enviada a cada poucos segundos). Não acessa o banco:
+    // a posição fica em memória e é gravada depois, em lote. A resposta tem corpo para o @OrcamentoSql
+    // ser conferido (respostas vazias não passam pelo OrcamentoSqlAdvice)
+    @PostMapping("/viagens/{id}/posicoes")
+    @OrcamentoSql(1)
+    public ResponseEntity<?> registrarPosicao(@PathVariable Long id, @Valid @RequestBody PosicaoRequest request, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        try {
+            Long marinheiroId = usuarioAutenticado.exigirMarinheiroId();
+            
+            rastreamentoViagens.registrar(id, marinheiroId, request);
+            return ResponseEntity.accepted().body(Map.of("message", "Posição recebida"));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", e.getMessage()));
         }
     }
 }
-
@@ -1,19 +1,26 @@
 package com.nautigo.controller;
 
+import com.nautigo.config.Idempotente;
+import com.nautigo.config.OrcamentoSql;
+import com.nautigo.dto.PosicaoResponse;
 import com.nautigo.dto.SolicitarViagemRequest;
 import com.nautigo.dto.ViagemResponse;
-import com.nautigo.entity.Usuario;
-import com.nautigo.repository.PassageiroRepository;
-import com.nautigo.repository.UsuarioRepository;
-import com.nautigo.security.JwtUtil;
+import com.nautigo.exception.ConflitoTransicaoViagemException;
+import com.nautigo.security.UsuarioAutenticado;
+import com.nautigo.service.AcompanhamentoViagemService;
+import com.nautigo.service.RastreamentoViagens;
 import com.nautigo.service.ViagemService;
-import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -23,26 +30,16 @@ import java.util.Map;
 public class PassageiroController {
     
     private final ViagemService viagemService;
-    private final PassageiroRepository passageiroRepository;
-    private final UsuarioRepository usuarioRepository;
-    private final JwtUtil jwtUtil;
-    
-    private Long getUserIdFromRequest(HttpServletRequest request) {
-        String token = request.getHeader("Authorization").substring(7);
-        return jwtUtil.extractUserId(token);
-    }
+    private final AcompanhamentoViagemService acompanhamentoViagemService;
+    private final RastreamentoViagens rastreamentoViagens;
     
     @PostMapping("/viagens")
-    public ResponseEntity<?> solicitarViagem(@Valid @RequestBody SolicitarViagemRequest request, HttpServletRequest httpRequest) {
+    @Idempotente
+    public ResponseEntity<?> solicitarViagem(@Valid @RequestBody SolicitarViagemRequest request, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(httpRequest);
-            Usuario usuario = usuarioRepository.findById(usuarioId)
-                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+            Long passageiroId = usuarioAutenticado.exigirPassageiroId();
             
-            var passageiro = passageiroRepository.findByUsuario(usuario)
-                    .orElseThrow(() -> new RuntimeException("Usuário não é um passageiro"));
-            
-            ViagemResponse viagem = viagemService.solicitarViagem(passageiro.getId(), request);
+            ViagemResponse viagem = viagemService.solicitarViagem(passageiroId, request);
             return ResponseEntity.status(HttpStatus.CREATED).body(viagem);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -50,28 +47,98 @@ public class PassageiroController {
         }
     }
     
+    // Com o parâmetro "cursor" (vazio na primeira página) usa paginação por cursor, sem totais;
+    // sem ele mantém a paginação por número de página
     @GetMapping("/viagens")
+    @OrcamentoSql(2)
     public ResponseEntity<?> listarMinhasViagens(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            HttpServletRequest request) {
-        Long usuarioId = getUserIdFromRequest(request);
-        Usuario usuario = usuarioRepository.findById(usuarioId)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        Long passageiroId = usuarioAutenticado.exigirPassageiroId();
         
-        var passageiro = passageiroRepository.findByUsuario(usuario)
-                .orElseThrow(() -> new RuntimeException("Usuário não é um passageiro"));
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(viagemService.listarViagensDoPassageiroPorCursor(passageiroId, cursor, size));
+            } catch (RuntimeException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("message", e.getMessage()));
+            }
+        }
         
-        var response = viagemService.listarViagensDoPassageiroPaginado(passageiro.getId(), page, size);
+        var response = viagemService.listarViagensDoPassageiroPaginado(passageiroId, page, size);
         return ResponseEntity.ok(response);
     }
     
+    // Detalhe de uma viagem com long-polling: enviar em "versao" o último dataAtualizacao recebido
+    // para aguardar a próxima alteração (304 se nada mudar até o timeout)
+    @GetMapping("/viagens/{id}")
+    public DeferredResult<ResponseEntity<?>> acompanharViagem(
+            @PathVariable Long id,
+            @RequestParam(required = false) String versao,
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        try {
+            Long passageiroId = usuarioAutenticado.exigirPassageiroId();
+            
+            return acompanhamentoViagemService.acompanhar(
+                    id,
+                    versao,
+                    () -> viagemService.buscarViagemDoPassageiro(id, passageiroId),
+                    viagem -> passageiroId.equals(viagem.getPassageiroId())
+            );
+        } catch (RuntimeException e) {
+            DeferredResult<ResponseEntity<?>> erro = new DeferredResult<>();
+            erro.setResult(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", e.getMessage())));
+            return erro;
+        }
+    }
+    
+    // Última posição GPS da embarcação (204 enquanto nenhuma posição foi recebida)
+    @GetMapping("/viagens/{id}/posicao")
+    @OrcamentoSql(2)
+    public ResponseEntity<?> ultimaPosicao(@PathVariable Long id, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        try {
+            Long passageiroId = usuarioAutenticado.exigirPassageiroId();
+            
+            return rastreamentoViagens.ultimaPosicao(id, passageiroId)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.noContent().build());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    // Trajeto da viagem: com "desde" (registradaEm da última posição recebida) só as posições novas
+    @GetMapping("/viagens/{id}/posicoes")
+    @OrcamentoSql(2)
+    public ResponseEntity<?> listarPosicoes(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
+        try {
+            Long passageiroId = usuarioAutenticado.exigirPassageiroId();
+            
+            List<PosicaoResponse> posicoes = rastreamentoViagens.listarPosicoes(id, passageiroId, desde);
+            return ResponseEntity.ok(posicoes);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+    
     @PostMapping("/viagens/{id}/cancelar")
-    public ResponseEntity<?> cancelarViagem(@PathVariable Long id, HttpServletRequest request) {
+    @Idempotente
+    public ResponseEntity<?> cancelarViagem(@PathVariable Long id, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(request);
+            Long usuarioId = usuarioAutenticado.getUsuarioId();
             ViagemResponse viagem = viagemService.cancelarViagem(id, usuarioId);
             return ResponseEntity.ok(viagem);
+        } catch (ConflitoTransicaoViagemException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", e.getMessage()));
@@ -79,14 +146,10 @@ public class PassageiroController {
     }
 
     @PostMapping("/viagens/{id}/contra-proposta/responder")
-    public ResponseEntity<?> responderContraProposta(@PathVariable Long id, @RequestBody Map<String, Boolean> body, HttpServletRequest request) {
+    @Idempotente
+    public ResponseEntity<?> responderContraProposta(@PathVariable Long id, @RequestBody Map<String, Boolean> body, @AuthenticationPrincipal UsuarioAutenticado usuarioAutenticado) {
         try {
-            Long usuarioId = getUserIdFromRequest(request);
-            Usuario usuario = usuarioRepository.findById(usuarioId)
-                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
-
-            var passageiro = passageiroRepository.findByUsuario(usuario)
-                    .orElseThrow(() -> new RuntimeException("Usuário não é um passageiro"));
+            Long passageiroId = usuarioAutenticado.exigirPassageiroId();
 
             Boolean aceitar = body.get("aceitar");
             if (aceitar == null) {
@@ -94,8 +157,11 @@ public class PassageiroController {
                         .body(Map.of("message", "Campo 'aceitar' é obrigatório"));
             }
 
-            ViagemResponse viagem = viagemService.responderContraProposta(id, passageiro.getId(), aceitar);
+            ViagemResponse viagem = viagemService.responderContraProposta(id, passageiroId, aceitar);
             return ResponseEntity.ok(viagem);
+        } catch (ConflitoTransicaoViagemException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("message", e.getMessage()));
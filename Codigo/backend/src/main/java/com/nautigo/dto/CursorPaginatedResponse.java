@@ -0,0 +1,19 @@
+package com.nautigo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página da paginação por cursor: não informa total de elementos (evita o COUNT a cada página).
+// Para a próxima página, enviar nextCursor no parâmetro "cursor"; é null na última página.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPaginatedResponse<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean last;
+}
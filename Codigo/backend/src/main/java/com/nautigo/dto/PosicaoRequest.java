@@ -0,0 +1,27 @@
+package com.nautigo.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class PosicaoRequest {
+    @NotNull(message = "Latitude é obrigatória")
+    @DecimalMin(value = "-90.0", message = "Latitude deve estar entre -90 e 90")
+    @DecimalMax(value = "90.0", message = "Latitude deve estar entre -90 e 90")
+    private Double latitude;
+
+    @NotNull(message = "Longitude é obrigatória")
+    @DecimalMin(value = "-180.0", message = "Longitude deve estar entre -180 e 180")
+    @DecimalMax(value = "180.0", message = "Longitude deve estar entre -180 e 180")
+    private Double longitude;
+
+    // Opcionais, quando o GPS da embarcação informa
+    @DecimalMin(value = "0.0", message = "Velocidade não pode ser negativa")
+    private Double velocidadeNos;
+
+    @DecimalMin(value = "0.0", message = "Rumo deve estar entre 0 e 360")
+    @DecimalMax(value = "360.0", message = "Rumo deve estar entre 0 e 360")
+    private Double rumoGraus;
+}
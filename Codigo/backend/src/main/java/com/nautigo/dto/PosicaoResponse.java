@@ -0,0 +1,20 @@
+package com.nautigo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PosicaoResponse {
+    private Long viagemId;
+    private Double latitude;
+    private Double longitude;
+    private Double velocidadeNos;
+    private Double rumoGraus;
+    // Momento em que o servidor recebeu a posição
+    private LocalDateTime registradaEm;
+}
@@ -1,6 +1,8 @@
 package com.nautigo.dto;
 
 import com.nautigo.entity.Viagem;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -16,6 +18,15 @@ public class SolicitarViagemRequest {
     @NotBlank(message = "Destino é obrigatório")
     private String destino;
     
+    // Coordenadas do ponto de embarque: opcionais, mas informadas juntas
+    @DecimalMin(value = "-90.0", message = "Latitude deve estar entre -90 e 90")
+    @DecimalMax(value = "90.0", message = "Latitude deve estar entre -90 e 90")
+    private Double origemLatitude;
+    
+    @DecimalMin(value = "-180.0", message = "Longitude deve estar entre -180 e 180")
+    @DecimalMax(value = "180.0", message = "Longitude deve estar entre -180 e 180")
+    private Double origemLongitude;
+    
     private String observacoes;
     
     private LocalDateTime dataHoraAgendada;
@@ -1,5 +1,6 @@
 package com.nautigo.dto;
 
+import com.nautigo.entity.Usuario;
 import com.nautigo.entity.Viagem;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -19,6 +20,9 @@ public class ViagemResponse {
     private String marinheiroNome;
     private String origem;
     private String destino;
+    // Ponto de embarque, quando informado pelo passageiro
+    private Double origemLatitude;
+    private Double origemLongitude;
     private String observacoes;
     private LocalDateTime dataHoraSolicitada;
     private LocalDateTime dataHoraAgendada;
@@ -37,5 +41,28 @@ public class ViagemResponse {
     // Valor de contra-proposta feito pelo marinheiro (quando status = AGUARDANDO_APROVACAO_PASSAGEIRO)
     private BigDecimal valorContraPropostaMarinheiro;
     private LocalDateTime dataCriacao;
+    // Também usado como versão da viagem no acompanhamento (long-polling)
+    private LocalDateTime dataAtualizacao;
+    
+    // Usado pelas projeções do ViagemRepository: recebe os agregados de avaliação dos dois usuários
+    // (já juntados na consulta) e calcula as notas médias
+    public ViagemResponse(Long id, Long passageiroId, String passageiroNome, Long marinheiroId, String marinheiroNome,
+                          String origem, String destino, Double origemLatitude, Double origemLongitude,
+                          String observacoes,
+                          LocalDateTime dataHoraSolicitada, LocalDateTime dataHoraAgendada,
+                          LocalDateTime dataHoraIniciada, LocalDateTime dataHoraConcluida,
+                          Viagem.StatusViagem status, Viagem.MetodoPagamento metodoPagamento,
+                          Integer numeroPessoas, String nomeBarco,
+                          Long somaAvaliacoesMarinheiro, Long quantidadeAvaliacoesMarinheiro,
+                          Long somaAvaliacoesPassageiro, Long quantidadeAvaliacoesPassageiro,
+                          BigDecimal valor, BigDecimal valorPropostoPassageiro, BigDecimal valorContraPropostaMarinheiro,
+                          LocalDateTime dataCriacao, LocalDateTime dataAtualizacao) {
+        this(id, passageiroId, passageiroNome, marinheiroId, marinheiroNome, origem, destino,
+                origemLatitude, origemLongitude, observacoes,
+                dataHoraSolicitada, dataHoraAgendada, dataHoraIniciada, dataHoraConcluida,
+                status, metodoPagamento, numeroPessoas, nomeBarco,
+                marinheiroId != null ? Usuario.calcularNotaMedia(somaAvaliacoesMarinheiro, quantidadeAvaliacoesMarinheiro) : null,
+                Usuario.calcularNotaMedia(somaAvaliacoesPassageiro, quantidadeAvaliacoesPassageiro),
+                valor, valorPropostoPassageiro, valorContraPropostaMarinheiro, dataCriacao, dataAtualizacao);
+    }
 }
-
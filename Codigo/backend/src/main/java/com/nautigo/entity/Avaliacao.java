@@ -3,30 +3,46 @@ package com.nautigo.entity;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
+// Associações LAZY; a listagem só precisa dos nomes de avaliador e avaliado (o id da viagem vem da
+// própria coluna viagem_id), carregados junto pelo grafo "Avaliacao.listagem"
 @Entity
 @Table(name = "avaliacoes")
+@NamedEntityGraph(
+        name = Avaliacao.GRAFO_LISTAGEM,
+        attributeNodes = {@NamedAttributeNode("avaliador"), @NamedAttributeNode("avaliado")}
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Avaliacao {
     
+    public static final String GRAFO_LISTAGEM = "Avaliacao.listagem";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @ManyToOne
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "viagem_id", nullable = false)
     private Viagem viagem;
     
-    @ManyToOne
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "avaliador_id", nullable = false)
     private Usuario avaliador; // Quem está avaliando
     
-    @ManyToOne
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "avaliado_id", nullable = false)
     private Usuario avaliado; // Quem está sendo avaliado (marinheiro ou passageiro)
     
@@ -0,0 +1,43 @@
+package com.nautigo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+// Posição GPS gravada de uma viagem em andamento. As inserções são feitas em lote via JDBC pelo
+// RastreamentoViagens (com id IDENTITY o Hibernate não agrupa inserts); a entidade é usada nas leituras.
+@Entity
+@Table(name = "posicoes_viagens")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PosicaoViagem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "viagem_id", nullable = false)
+    private Viagem viagem;
+
+    @Column(nullable = false)
+    private Double latitude;
+
+    @Column(nullable = false)
+    private Double longitude;
+
+    private Double velocidadeNos;
+
+    private Double rumoGraus;
+
+    @Column(nullable = false)
+    private LocalDateTime registradaEm;
+}
@@ -0,0 +1,47 @@
+package com.nautigo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// Resposta guardada de uma requisição com Idempotency-Key; a chave já inclui usuário, método e caminho.
+// Só é inserida (nunca alterada; as expiradas saem por DELETE em massa): isNew sempre verdadeiro faz o save
+// do repositório usar persist, e uma chave já guardada falha na chave primária em vez de ser sobrescrita.
+@Entity
+@Table(name = "respostas_idempotentes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RespostaIdempotente implements Persistable<String> {
+
+    @Id
+    @Column(length = 400)
+    private String chave;
+
+    @Column(nullable = false)
+    private Integer statusHttp;
+
+    @Column(columnDefinition = "TEXT")
+    private String corpo;
+
+    // SHA-256 (hex) do corpo da requisição que gerou a resposta
+    @Column(length = 64)
+    private String hashCorpo;
+
+    @Column(nullable = false)
+    private LocalDateTime criadaEm;
+
+    @Override
+    public String getId() {
+        return chave;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
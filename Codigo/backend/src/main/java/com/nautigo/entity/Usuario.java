@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,6 +16,8 @@ import java.util.List;
 
 @Entity
 @Table(name = "usuarios")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuarios")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -41,6 +45,13 @@ public class Usuario implements UserDetails {
     @Column(nullable = false)
     private Boolean ativo = true;
     
+    // Agregados das avaliações recebidas, mantidos a cada nova avaliação (evita AVG/COUNT por resposta)
+    @Column(name = "soma_avaliacoes", nullable = false)
+    private Long somaAvaliacoes = 0L;
+    
+    @Column(name = "quantidade_avaliacoes", nullable = false)
+    private Long quantidadeAvaliacoes = 0L;
+    
     @Column(nullable = false, updatable = false)
     private LocalDateTime dataCriacao;
     
@@ -57,6 +68,19 @@ public class Usuario implements UserDetails {
         dataAtualizacao = LocalDateTime.now();
     }
     
+    // Nota média das avaliações recebidas (5.0 se ainda não foi avaliado)
+    public Double calcularNotaMedia() {
+        return calcularNotaMedia(somaAvaliacoes, quantidadeAvaliacoes);
+    }
+    
+    // Mesma regra para quem só tem os agregados (ex.: projeções das listagens de viagens)
+    public static Double calcularNotaMedia(Long somaAvaliacoes, Long quantidadeAvaliacoes) {
+        if (quantidadeAvaliacoes == null || quantidadeAvaliacoes == 0) {
+            return 5.0;
+        }
+        return somaAvaliacoes.doubleValue() / quantidadeAvaliacoes;
+    }
+    
     // Implementação UserDetails para Spring Security
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -3,27 +3,47 @@ package com.nautigo.entity;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
+// Associações são LAZY: quem precisa dos nomes de passageiro e marinheiro (resposta de uma única viagem)
+// carrega pelo grafo "Viagem.detalhe"; listagens usam a projeção SELECT_VIAGEM_RESPONSE do repositório
+// e as validações das transições leem só as colunas que verificam (EstadoViagem)
 @Entity
 @Table(name = "viagens")
+@NamedEntityGraph(
+        name = Viagem.GRAFO_DETALHE,
+        attributeNodes = {
+                @NamedAttributeNode(value = "passageiro", subgraph = "usuario"),
+                @NamedAttributeNode(value = "marinheiro", subgraph = "usuario")
+        },
+        subgraphs = @NamedSubgraph(name = "usuario", attributeNodes = @NamedAttributeNode("usuario"))
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Viagem {
     
+    public static final String GRAFO_DETALHE = "Viagem.detalhe";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @ManyToOne
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "passageiro_id", nullable = false)
     private Passageiro passageiro;
     
-    @ManyToOne
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "marinheiro_id")
     private Marinheiro marinheiro;
     
@@ -33,6 +53,13 @@ public class Viagem {
     @Column(nullable = false)
     private String destino;
     
+    // Ponto de embarque (opcional): com ele a viagem entra no índice em grade do quadro de disponíveis
+    @Column(name = "origem_latitude")
+    private Double origemLatitude;
+    
+    @Column(name = "origem_longitude")
+    private Double origemLongitude;
+    
     @Column(columnDefinition = "TEXT")
     private String observacoes;
     
@@ -68,6 +95,11 @@ public class Viagem {
     @Column(name = "valor_contra_proposta_marinheiro", precision = 10, scale = 2)
     private BigDecimal valorContraPropostaMarinheiro;
     
+    // Controle de concorrência otimista; as transições de status incrementam a versão no próprio UPDATE
+    @Version
+    @Column(nullable = false)
+    private Long versao;
+    
     @Column(nullable = false, updatable = false)
     private LocalDateTime dataCriacao;
     
@@ -75,8 +107,8 @@ public class Viagem {
     
     @PrePersist
     protected void onCreate() {
-        dataCriacao = LocalDateTime.now();
-        dataAtualizacao = LocalDateTime.now();
+        dataCriacao = agoraComPrecisaoDoBanco();
+        dataAtualizacao = dataCriacao;
         if (dataHoraSolicitada == null) {
             dataHoraSolicitada = LocalDateTime.now();
         }
@@ -84,7 +116,13 @@ public class Viagem {
     
     @PreUpdate
     protected void onUpdate() {
-        dataAtualizacao = LocalDateTime.now();
+        dataAtualizacao = agoraComPrecisaoDoBanco();
+    }
+    
+    // dataAtualizacao serve como versão da viagem: truncar para microssegundos (precisão do timestamp
+    // no PostgreSQL) para que o valor em memória seja igual ao que será lido do banco depois
+    public static LocalDateTime agoraComPrecisaoDoBanco() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
     
     public enum StatusViagem {
@@ -93,7 +131,8 @@ public class Viagem {
         ACEITA,                             // Aceita, aguardando início
         EM_ANDAMENTO,                       // Viagem em andamento
         CONCLUIDA,                          // Viagem concluída
-        CANCELADA                           // Viagem cancelada
+        CANCELADA,                          // Viagem cancelada
+        EXPIRADA                            // Ficou sem marinheiro ou sem resposta do passageiro além do prazo
     }
     
     public enum MetodoPagamento {
@@ -0,0 +1,16 @@
+package com.nautigo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Publicado pela AgendaViagens um pouco antes da saída de uma viagem agendada que já tem marinheiro
+@Data
+@AllArgsConstructor
+public class LembreteViagemEvent {
+    private Long viagemId;
+    private Long passageiroId;
+    private Long marinheiroId;
+    private LocalDateTime dataHoraAgendada;
+}
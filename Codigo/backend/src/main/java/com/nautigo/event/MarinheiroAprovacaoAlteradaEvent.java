@@ -0,0 +1,11 @@
+package com.nautigo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Publicado pelo MarinheiroService quando o administrador aprova ou rejeita um cadastro
+@Data
+@AllArgsConstructor
+public class MarinheiroAprovacaoAlteradaEvent {
+    private Long marinheiroId;
+}
@@ -0,0 +1,14 @@
+package com.nautigo.event;
+
+import com.nautigo.dto.ViagemResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Publicado pelo ViagemService sempre que uma viagem muda de estado.
+// Os ouvintes devem usar @TransactionalEventListener(AFTER_COMMIT) para só reagir a alterações confirmadas.
+@Data
+@AllArgsConstructor
+public class ViagemAlteradaEvent {
+    // Estado da viagem após a alteração
+    private ViagemResponse viagem;
+}
@@ -0,0 +1,11 @@
+package com.nautigo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Publicado pela AgendaViagens quando chega a hora de uma viagem agendada entrar no quadro de disponíveis
+@Data
+@AllArgsConstructor
+public class ViagemLiberadaEvent {
+    private Long viagemId;
+}
@@ -0,0 +1,13 @@
+package com.nautigo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Publicado quando um marinheiro passa a não dever mais ver uma viagem no quadro
+// (recusou a viagem ou teve a contra-proposta recusada pelo passageiro)
+@Data
+@AllArgsConstructor
+public class ViagemRecusadaEvent {
+    private Long viagemId;
+    private Long marinheiroId;
+}
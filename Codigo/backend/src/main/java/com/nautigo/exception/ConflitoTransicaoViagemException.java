@@ -0,0 +1,10 @@
+package com.nautigo.exception;
+
+// A viagem não estava no estado esperado no momento da transição (outra operação chegou antes).
+// Os controllers respondem 409 (Conflict) para este caso.
+public class ConflitoTransicaoViagemException extends RuntimeException {
+    
+    public ConflitoTransicaoViagemException(String message) {
+        super(message);
+    }
+}
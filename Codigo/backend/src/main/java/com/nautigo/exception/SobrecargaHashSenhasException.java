@@ -0,0 +1,10 @@
+package com.nautigo.exception;
+
+// O pool de hash de senhas está cheio (ou não respondeu a tempo): login e cadastro são recusados na hora
+// em vez de ocupar as threads das requisições. Os controllers respondem 503 com Retry-After.
+public class SobrecargaHashSenhasException extends RuntimeException {
+    
+    public SobrecargaHashSenhasException(String message) {
+        super(message);
+    }
+}
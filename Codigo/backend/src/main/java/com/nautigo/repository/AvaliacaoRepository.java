@@ -2,26 +2,36 @@ package com.nautigo.repository;
 
 import com.nautigo.entity.Avaliacao;
 import com.nautigo.entity.Usuario;
-import com.nautigo.entity.Viagem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface AvaliacaoRepository extends JpaRepository<Avaliacao, Long> {
     
+    @EntityGraph(Avaliacao.GRAFO_LISTAGEM)
     List<Avaliacao> findByAvaliado(Usuario avaliado);
     
-    Optional<Avaliacao> findByViagemAndAvaliador(Viagem viagem, Usuario avaliador);
+    boolean existsByViagem_IdAndAvaliador_Id(Long viagemId, Long avaliadorId);
     
-    @Query("SELECT AVG(a.nota) FROM Avaliacao a WHERE a.avaliado = :usuario")
-    Double calcularMediaAvaliacoes(@Param("usuario") Usuario usuario);
+    // Paginação por cursor (dataCriacao, id), mais recentes primeiro
+    @EntityGraph(Avaliacao.GRAFO_LISTAGEM)
+    @Query("SELECT a FROM Avaliacao a WHERE a.avaliado.id = :avaliadoId ORDER BY a.dataCriacao DESC, a.id DESC")
+    List<Avaliacao> findPrimeirasDoAvaliado(@Param("avaliadoId") Long avaliadoId, Pageable limite);
     
-    @Query("SELECT COUNT(a) FROM Avaliacao a WHERE a.avaliado = :usuario")
-    Long contarAvaliacoes(@Param("usuario") Usuario usuario);
+    @EntityGraph(Avaliacao.GRAFO_LISTAGEM)
+    @Query("SELECT a FROM Avaliacao a WHERE a.avaliado.id = :avaliadoId " +
+           "AND (a.dataCriacao < :dataCriacao OR (a.dataCriacao = :dataCriacao AND a.id < :id)) " +
+           "ORDER BY a.dataCriacao DESC, a.id DESC")
+    List<Avaliacao> findDoAvaliadoApos(@Param("avaliadoId") Long avaliadoId,
+                                       @Param("dataCriacao") LocalDateTime dataCriacao,
+                                       @Param("id") Long id,
+                                       Pageable limite);
 }
 
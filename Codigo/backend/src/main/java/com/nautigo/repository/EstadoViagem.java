@@ -0,0 +1,22 @@
+package com.nautigo.repository;
+
+import com.nautigo.entity.Viagem;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+// Colunas que as transições de estado verificam: status, quem é o passageiro e o marinheiro (e os
+// usuários de cada um, pelas chaves estrangeiras) e a contra-proposta pendente. Projeção de
+// ViagemRepository.findEstadoById, sem carregar passageiro, marinheiro nem usuários.
+@Data
+@AllArgsConstructor
+public class EstadoViagem {
+    private Long id;
+    private Viagem.StatusViagem status;
+    private Long passageiroId;
+    private Long passageiroUsuarioId;
+    private Long marinheiroId;
+    private Long marinheiroUsuarioId;
+    private BigDecimal valorContraPropostaMarinheiro;
+}
@@ -1,8 +1,15 @@
 package com.nautigo.repository;
 
+import com.nautigo.config.CacheSegundoNivelConfig;
 import com.nautigo.entity.Marinheiro;
 import com.nautigo.entity.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,8 +17,22 @@ import java.util.Optional;
 
 @Repository
 public interface MarinheiroRepository extends JpaRepository<Marinheiro, Long> {
+    // Login: resultado no cache de consultas do Hibernate (ids), entidade na região "marinheiros"
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_PERFIS)
+    })
     Optional<Marinheiro> findByUsuario(Usuario usuario);
     boolean existsByUsuario(Usuario usuario);
+    
+    // Respostas do painel de administração incluem os dados do usuário
+    @EntityGraph(attributePaths = "usuario")
     List<Marinheiro> findByStatusAprovacao(Marinheiro.StatusAprovacao status);
+    
+    @EntityGraph(attributePaths = "usuario")
+    Optional<Marinheiro> findComUsuarioById(Long id);
+
+    @Query("SELECT m.statusAprovacao FROM Marinheiro m WHERE m.id = :id")
+    Optional<Marinheiro.StatusAprovacao> findStatusAprovacaoById(@Param("id") Long id);
 }
 
@@ -1,15 +1,28 @@
 package com.nautigo.repository;
 
+import com.nautigo.config.CacheSegundoNivelConfig;
 import com.nautigo.entity.Passageiro;
 import com.nautigo.entity.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface PassageiroRepository extends JpaRepository<Passageiro, Long> {
+    // Login: resultado no cache de consultas do Hibernate (ids), entidade na região "passageiros"
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_PERFIS)
+    })
     Optional<Passageiro> findByUsuario(Usuario usuario);
     boolean existsByUsuario(Usuario usuario);
+    
+    @EntityGraph(attributePaths = "usuario")
+    Optional<Passageiro> findComUsuarioById(Long id);
 }
 
@@ -0,0 +1,25 @@
+package com.nautigo.repository;
+
+import com.nautigo.entity.PosicaoViagem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PosicaoViagemRepository extends JpaRepository<PosicaoViagem, Long> {
+
+    Optional<PosicaoViagem> findFirstByViagem_IdOrderByRegistradaEmDesc(Long viagemId);
+
+    List<PosicaoViagem> findByViagem_IdOrderByRegistradaEm(Long viagemId);
+
+    List<PosicaoViagem> findByViagem_IdAndRegistradaEmAfterOrderByRegistradaEm(Long viagemId, LocalDateTime registradaEm);
+
+    // Trecho gravado anterior à posição mais antiga do buffer de uma viagem em andamento
+    List<PosicaoViagem> findByViagem_IdAndRegistradaEmBeforeOrderByRegistradaEm(Long viagemId, LocalDateTime antesDe);
+
+    List<PosicaoViagem> findByViagem_IdAndRegistradaEmAfterAndRegistradaEmBeforeOrderByRegistradaEm(
+            Long viagemId, LocalDateTime depoisDe, LocalDateTime antesDe);
+}
@@ -0,0 +1,20 @@
+package com.nautigo.repository;
+
+import com.nautigo.entity.RespostaIdempotente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RespostaIdempotenteRepository extends JpaRepository<RespostaIdempotente, String> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RespostaIdempotente r WHERE r.criadaEm < :limite")
+    int apagarCriadasAntesDe(@Param("limite") LocalDateTime limite);
+}
@@ -1,14 +1,39 @@
 package com.nautigo.repository;
 
+import com.nautigo.config.CacheSegundoNivelConfig;
 import com.nautigo.entity.Usuario;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
+    // Login: resultado no cache de consultas do Hibernate (ids), entidade na região "usuarios"
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_PERFIS)
+    })
     Optional<Usuario> findByEmail(String email);
     boolean existsByEmail(String email);
-}
 
+    // SELECT ... FOR UPDATE: atualização dos agregados de avaliação sem perder avaliações simultâneas
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Usuario> findComBloqueioById(Long id);
+
+    // Recalcula os agregados de todos os usuários a partir da tabela de avaliações
+    @Modifying
+    @Query(value = "UPDATE usuarios u SET " +
+                   "soma_avaliacoes = COALESCE((SELECT SUM(a.nota) FROM avaliacoes a WHERE a.avaliado_id = u.id), 0), " +
+                   "quantidade_avaliacoes = (SELECT COUNT(*) FROM avaliacoes a WHERE a.avaliado_id = u.id)",
+           nativeQuery = true)
+    int recalcularAgregadosDeAvaliacao();
+}
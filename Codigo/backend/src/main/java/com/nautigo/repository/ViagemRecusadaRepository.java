@@ -1,5 +1,6 @@
 package com.nautigo.repository;
 
+import com.nautigo.entity.Viagem;
 import com.nautigo.entity.ViagemRecusada;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -11,8 +12,9 @@ import java.util.List;
 @Repository
 public interface ViagemRecusadaRepository extends JpaRepository<ViagemRecusada, Long> {
 
-    @Query("select r.viagem.id from ViagemRecusada r where r.marinheiro.id = :marinheiroId")
-    List<Long> findViagemIdsByMarinheiroId(@Param("marinheiroId") Long marinheiroId);
+    // Pares [viagemId, marinheiroId] das recusas de viagens que ainda podem aparecer no quadro
+    @Query("select r.viagem.id, r.marinheiro.id from ViagemRecusada r where r.viagem.status in :statuses")
+    List<Object[]> findRecusasDeViagensComStatus(@Param("statuses") List<Viagem.StatusViagem> statuses);
 
     boolean existsByViagem_IdAndMarinheiro_Id(Long viagemId, Long marinheiroId);
 }
@@ -1,14 +1,23 @@
 package com.nautigo.repository;
 
+import com.nautigo.dto.ViagemResponse;
 import com.nautigo.entity.Marinheiro;
 import com.nautigo.entity.Passageiro;
 import com.nautigo.entity.Viagem;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ViagemRepository extends JpaRepository<Viagem, Long> {
@@ -16,13 +25,234 @@ public interface ViagemRepository extends JpaRepository<Viagem, Long> {
     List<Viagem> findByMarinheiroOrderByDataCriacaoDesc(Marinheiro marinheiro);
     List<Viagem> findByStatusOrderByDataCriacaoDesc(Viagem.StatusViagem status);
     List<Viagem> findByStatusAndMarinheiroIsNullOrderByDataCriacaoDesc(Viagem.StatusViagem status);
-    List<Viagem> findByStatusAndMarinheiroIsNullAndIdNotInOrderByDataCriacaoDesc(Viagem.StatusViagem status, List<Long> ids);
-    List<Viagem> findByPassageiroAndStatusInAndDataHoraAgendadaIsNull(Passageiro passageiro, List<Viagem.StatusViagem> statuses);
-    List<Viagem> findByPassageiroAndStatusNotOrderByDataCriacaoDesc(Passageiro passageiro, Viagem.StatusViagem status);
-    List<Viagem> findByMarinheiroAndStatusNotOrderByDataCriacaoDesc(Marinheiro marinheiro, Viagem.StatusViagem status);
+    boolean existsByPassageiro_IdAndStatusInAndDataHoraAgendadaIsNull(Long passageiroId, List<Viagem.StatusViagem> statuses);
+    
+    // Viagem com passageiro, marinheiro e os dois usuários em um único SELECT, para montar a resposta
+    @EntityGraph(Viagem.GRAFO_DETALHE)
+    Optional<Viagem> findDetalheById(Long id);
+    
+    // Só as colunas verificadas pelas transições; m.usuario.id vem da chave estrangeira em marinheiros
+    @Query("SELECT new com.nautigo.repository.EstadoViagem(v.id, v.status, p.id, p.usuario.id, m.id, m.usuario.id, " +
+           "v.valorContraPropostaMarinheiro) " +
+           "FROM Viagem v JOIN v.passageiro p LEFT JOIN v.marinheiro m WHERE v.id = :id")
+    Optional<EstadoViagem> findEstadoById(@Param("id") Long id);
+    
+    @Query("SELECT new com.nautigo.repository.EstadoViagem(v.id, v.status, p.id, p.usuario.id, m.id, m.usuario.id, " +
+           "v.valorContraPropostaMarinheiro) " +
+           "FROM Viagem v JOIN v.passageiro p LEFT JOIN v.marinheiro m WHERE v.status = :status")
+    List<EstadoViagem> listarEstadosComStatus(@Param("status") Viagem.StatusViagem status);
+    
+    // Quantidade de viagens por status (gauges de métricas)
+    @Query("SELECT v.status, COUNT(v) FROM Viagem v GROUP BY v.status")
+    List<Object[]> contarPorStatus();
+    
+    // Listagens montam o ViagemResponse direto na consulta (projeção por construtor): viagem, passageiro,
+    // marinheiro e os dois usuários, com os agregados de avaliação, em um único SELECT.
+    // O custo de uma página não depende da quantidade de linhas nem de quantos marinheiros aparecem nela.
+    String SELECT_VIAGEM_RESPONSE = "SELECT new com.nautigo.dto.ViagemResponse(" +
+            "v.id, p.id, up.nome, m.id, um.nome, v.origem, v.destino, v.origemLatitude, v.origemLongitude, v.observacoes, " +
+            "v.dataHoraSolicitada, v.dataHoraAgendada, v.dataHoraIniciada, v.dataHoraConcluida, " +
+            "v.status, v.metodoPagamento, v.numeroPessoas, m.nomeEmbarcacao, " +
+            "um.somaAvaliacoes, um.quantidadeAvaliacoes, up.somaAvaliacoes, up.quantidadeAvaliacoes, " +
+            "v.valor, v.valorPropostoPassageiro, v.valorContraPropostaMarinheiro, v.dataCriacao, v.dataAtualizacao) " +
+            "FROM Viagem v JOIN v.passageiro p JOIN p.usuario up LEFT JOIN v.marinheiro m LEFT JOIN m.usuario um ";
+    
+    @Query(SELECT_VIAGEM_RESPONSE + "WHERE v.status = :status AND v.marinheiro IS NULL ORDER BY v.dataCriacao DESC, v.id DESC")
+    List<ViagemResponse> listarSemMarinheiroComStatus(@Param("status") Viagem.StatusViagem status);
+    
+    @Query(SELECT_VIAGEM_RESPONSE + "WHERE v.id IN :ids")
+    List<ViagemResponse> listarPorIds(@Param("ids") Collection<Long> ids);
+    
+    // Viagens agendadas para depois do instante informado (carga da AgendaViagens na inicialização)
+    @Query(SELECT_VIAGEM_RESPONSE + "WHERE v.status IN :status AND v.dataHoraAgendada > :apos")
+    List<ViagemResponse> listarAgendadasComStatus(@Param("status") List<Viagem.StatusViagem> status,
+                                                  @Param("apos") LocalDateTime apos);
+    
+    @Query(SELECT_VIAGEM_RESPONSE + "WHERE p.id = :passageiroId AND v.status <> :statusExcluido " +
+           "ORDER BY v.dataCriacao DESC, v.id DESC")
+    List<ViagemResponse> listarDoPassageiro(@Param("passageiroId") Long passageiroId,
+                                            @Param("statusExcluido") Viagem.StatusViagem statusExcluido);
+    
+    @Query(SELECT_VIAGEM_RESPONSE + "WHERE m.id = :marinheiroId AND v.status <> :statusExcluido " +
+           "ORDER BY v.dataCriacao DESC, v.id DESC")
+    List<ViagemResponse> listarDoMarinheiro(@Param("marinheiroId") Long marinheiroId,
+                                            @Param("statusExcluido") Viagem.StatusViagem statusExcluido);
     
     // Métodos paginados
-    Page<Viagem> findByPassageiroAndStatusNotOrderByDataCriacaoDesc(Passageiro passageiro, Viagem.StatusViagem status, Pageable pageable);
-    Page<Viagem> findByMarinheiroAndStatusNotOrderByDataCriacaoDesc(Marinheiro marinheiro, Viagem.StatusViagem status, Pageable pageable);
+    @Query(value = SELECT_VIAGEM_RESPONSE + "WHERE p.id = :passageiroId AND v.status <> :statusExcluido " +
+                   "ORDER BY v.dataCriacao DESC, v.id DESC",
+           countQuery = "SELECT COUNT(v) FROM Viagem v WHERE v.passageiro.id = :passageiroId AND v.status <> :statusExcluido")
+    Page<ViagemResponse> listarDoPassageiro(@Param("passageiroId") Long passageiroId,
+                                            @Param("statusExcluido") Viagem.StatusViagem statusExcluido,
+                                            Pageable pageable);
+    
+    @Query(value = SELECT_VIAGEM_RESPONSE + "WHERE m.id = :marinheiroId AND v.status <> :statusExcluido " +
+                   "ORDER BY v.dataCriacao DESC, v.id DESC",
+           countQuery = "SELECT COUNT(v) FROM Viagem v WHERE v.marinheiro.id = :marinheiroId AND v.status <> :statusExcluido")
+    Page<ViagemResponse> listarDoMarinheiro(@Param("marinheiroId") Long marinheiroId,
+                                            @Param("statusExcluido") Viagem.StatusViagem statusExcluido,
+                                            Pageable pageable);
+    
+    // Paginação por cursor (dataCriacao, id): sem OFFSET nem COUNT, o custo não cresce com a profundidade.
+    // O Pageable só limita a quantidade de linhas (sempre página 0).
+    @Query(SELECT_VIAGEM_RESPONSE + "WHERE p.id = :passageiroId AND v.status <> :statusExcluido " +
+           "ORDER BY v.dataCriacao DESC, v.id DESC")
+    List<ViagemResponse> findPrimeirasDoPassageiro(@Param("passageiroId") Long passageiroId,
+                                                   @Param("statusExcluido") Viagem.StatusViagem statusExcluido,
+                                                   Pageable limite);
+    
+    @Query(SELECT_VIAGEM_RESPONSE + "WHERE p.id = :passageiroId AND v.status <> :statusExcluido " +
+           "AND (v.dataCriacao < :dataCriacao OR (v.dataCriacao = :dataCriacao AND v.id < :id)) " +
+           "ORDER BY v.dataCriacao DESC, v.id DESC")
+    List<ViagemResponse> findDoPassageiroApos(@Param("passageiroId") Long passageiroId,
+                                              @Param("statusExcluido") Viagem.StatusViagem statusExcluido,
+                                              @Param("dataCriacao") LocalDateTime dataCriacao,
+                                              @Param("id") Long id,
+                                              Pageable limite);
+    
+    @Query(SELECT_VIAGEM_RESPONSE + "WHERE m.id = :marinheiroId AND v.status <> :statusExcluido " +
+           "ORDER BY v.dataCriacao DESC, v.id DESC")
+    List<ViagemResponse> findPrimeirasDoMarinheiro(@Param("marinheiroId") Long marinheiroId,
+                                                   @Param("statusExcluido") Viagem.StatusViagem statusExcluido,
+                                                   Pageable limite);
+    
+    @Query(SELECT_VIAGEM_RESPONSE + "WHERE m.id = :marinheiroId AND v.status <> :statusExcluido " +
+           "AND (v.dataCriacao < :dataCriacao OR (v.dataCriacao = :dataCriacao AND v.id < :id)) " +
+           "ORDER BY v.dataCriacao DESC, v.id DESC")
+    List<ViagemResponse> findDoMarinheiroApos(@Param("marinheiroId") Long marinheiroId,
+                                              @Param("statusExcluido") Viagem.StatusViagem statusExcluido,
+                                              @Param("dataCriacao") LocalDateTime dataCriacao,
+                                              @Param("id") Long id,
+                                              Pageable limite);
+    
+    // Quadro de viagens disponíveis de um marinheiro, paginado por cursor direto no banco. As recusas dele
+    // saem por anti-join (NOT EXISTS na chave única de viagens_recusadas), então o plano não cresce com o
+    // histórico de recusas. Só entram viagens que cabem na embarcação dele e agendadas já liberadas
+    // (dataHoraAgendada até :liberadasAte); filtros opcionais (null) de valor mínimo e de pessoas.
+    String WHERE_DISPONIVEIS = "WHERE v.status = :status AND v.marinheiro IS NULL " +
+            "AND NOT EXISTS (SELECT r.id FROM ViagemRecusada r WHERE r.viagem = v AND r.marinheiro.id = :marinheiroId) " +
+            "AND v.numeroPessoas <= (SELECT mc.capacidadePassageiros FROM Marinheiro mc WHERE mc.id = :marinheiroId) " +
+            "AND (:numeroPessoasMaximo IS NULL OR v.numeroPessoas <= :numeroPessoasMaximo) " +
+            "AND (:valorMinimo IS NULL OR v.valorPropostoPassageiro >= :valorMinimo) " +
+            "AND ((:imediatas = TRUE AND v.dataHoraAgendada IS NULL) " +
+            "  OR (:agendadas = TRUE AND v.dataHoraAgendada <= :liberadasAte)) ";
+    
+    @Query(SELECT_VIAGEM_RESPONSE + WHERE_DISPONIVEIS + "ORDER BY v.dataCriacao DESC, v.id DESC")
+    List<ViagemResponse> findPrimeirasDisponiveis(@Param("marinheiroId") Long marinheiroId,
+                                                  @Param("status") Viagem.StatusViagem status,
+                                                  @Param("valorMinimo") BigDecimal valorMinimo,
+                                                  @Param("numeroPessoasMaximo") Integer numeroPessoasMaximo,
+                                                  @Param("imediatas") boolean imediatas,
+                                                  @Param("agendadas") boolean agendadas,
+                                                  @Param("liberadasAte") LocalDateTime liberadasAte,
+                                                  Pageable limite);
+    
+    @Query(SELECT_VIAGEM_RESPONSE + WHERE_DISPONIVEIS +
+           "AND (v.dataCriacao < :dataCriacao OR (v.dataCriacao = :dataCriacao AND v.id < :id)) " +
+           "ORDER BY v.dataCriacao DESC, v.id DESC")
+    List<ViagemResponse> findDisponiveisApos(@Param("marinheiroId") Long marinheiroId,
+                                             @Param("status") Viagem.StatusViagem status,
+                                             @Param("valorMinimo") BigDecimal valorMinimo,
+                                             @Param("numeroPessoasMaximo") Integer numeroPessoasMaximo,
+                                             @Param("imediatas") boolean imediatas,
+                                             @Param("agendadas") boolean agendadas,
+                                             @Param("liberadasAte") LocalDateTime liberadasAte,
+                                             @Param("dataCriacao") LocalDateTime dataCriacao,
+                                             @Param("id") Long id,
+                                             Pageable limite);
+    
+    // Transições de estado como compare-and-set: um único UPDATE condicionado ao id, ao status esperado
+    // e ao marinheiro esperado. Retornam 0 quando outra operação alterou a viagem antes.
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Viagem v SET v.marinheiro = :marinheiro, v.valor = v.valorPropostoPassageiro, " +
+           "v.valorContraPropostaMarinheiro = null, v.status = :novoStatus, " +
+           "v.versao = v.versao + 1, v.dataAtualizacao = :agora " +
+           "WHERE v.id = :id AND v.status = :statusEsperado AND v.marinheiro IS NULL " +
+           "AND EXISTS (SELECT m.id FROM Marinheiro m WHERE m = :marinheiro AND m.statusAprovacao = :aprovado)")
+    int aceitarSeDisponivel(@Param("id") Long id,
+                            @Param("marinheiro") Marinheiro marinheiro,
+                            @Param("statusEsperado") Viagem.StatusViagem statusEsperado,
+                            @Param("novoStatus") Viagem.StatusViagem novoStatus,
+                            @Param("aprovado") Marinheiro.StatusAprovacao aprovado,
+                            @Param("agora") LocalDateTime agora);
+    
+    // Recusa: a viagem não muda (nem versão nem dataAtualizacao), mas a linha fica travada até o commit enquanto
+    // ainda estiver disponível. Um aceite concorrente espera a recusa terminar ou, se venceu, faz esta atualizar 0
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Viagem v SET v.versao = v.versao " +
+           "WHERE v.id = :id AND v.status = :statusEsperado AND v.marinheiro IS NULL " +
+           "AND EXISTS (SELECT m.id FROM Marinheiro m WHERE m = :marinheiro AND m.statusAprovacao = :aprovado)")
+    int travarSeDisponivel(@Param("id") Long id,
+                           @Param("marinheiro") Marinheiro marinheiro,
+                           @Param("statusEsperado") Viagem.StatusViagem statusEsperado,
+                           @Param("aprovado") Marinheiro.StatusAprovacao aprovado);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Viagem v SET v.marinheiro = :marinheiro, v.valorContraPropostaMarinheiro = :valor, " +
+           "v.status = :novoStatus, v.versao = v.versao + 1, v.dataAtualizacao = :agora " +
+           "WHERE v.id = :id AND v.status = :statusEsperado " +
+           "AND (v.marinheiro IS NULL OR v.marinheiro = :marinheiro) " +
+           "AND EXISTS (SELECT m.id FROM Marinheiro m WHERE m = :marinheiro AND m.statusAprovacao = :aprovado)")
+    int proporContraPropostaSeDisponivel(@Param("id") Long id,
+                                         @Param("marinheiro") Marinheiro marinheiro,
+                                         @Param("valor") BigDecimal valor,
+                                         @Param("statusEsperado") Viagem.StatusViagem statusEsperado,
+                                         @Param("novoStatus") Viagem.StatusViagem novoStatus,
+                                         @Param("aprovado") Marinheiro.StatusAprovacao aprovado,
+                                         @Param("agora") LocalDateTime agora);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Viagem v SET v.valor = v.valorContraPropostaMarinheiro, v.valorContraPropostaMarinheiro = null, " +
+           "v.status = :novoStatus, v.versao = v.versao + 1, v.dataAtualizacao = :agora " +
+           "WHERE v.id = :id AND v.status = :statusEsperado AND v.marinheiro = :marinheiro " +
+           "AND v.valorContraPropostaMarinheiro IS NOT NULL")
+    int aceitarContraProposta(@Param("id") Long id,
+                              @Param("marinheiro") Marinheiro marinheiroEsperado,
+                              @Param("statusEsperado") Viagem.StatusViagem statusEsperado,
+                              @Param("novoStatus") Viagem.StatusViagem novoStatus,
+                              @Param("agora") LocalDateTime agora);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Viagem v SET v.marinheiro = null, v.valorContraPropostaMarinheiro = null, " +
+           "v.status = :novoStatus, v.versao = v.versao + 1, v.dataAtualizacao = :agora " +
+           "WHERE v.id = :id AND v.status = :statusEsperado AND v.marinheiro = :marinheiro")
+    int recusarContraProposta(@Param("id") Long id,
+                              @Param("marinheiro") Marinheiro marinheiroEsperado,
+                              @Param("statusEsperado") Viagem.StatusViagem statusEsperado,
+                              @Param("novoStatus") Viagem.StatusViagem novoStatus,
+                              @Param("agora") LocalDateTime agora);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Viagem v SET v.status = :novoStatus, v.dataHoraIniciada = :agora, " +
+           "v.versao = v.versao + 1, v.dataAtualizacao = :agora " +
+           "WHERE v.id = :id AND v.status = :statusEsperado AND v.marinheiro = :marinheiro")
+    int iniciarSeAceita(@Param("id") Long id,
+                        @Param("marinheiro") Marinheiro marinheiroEsperado,
+                        @Param("statusEsperado") Viagem.StatusViagem statusEsperado,
+                        @Param("novoStatus") Viagem.StatusViagem novoStatus,
+                        @Param("agora") LocalDateTime agora);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Viagem v SET v.status = :novoStatus, v.dataHoraConcluida = :agora, " +
+           "v.versao = v.versao + 1, v.dataAtualizacao = :agora " +
+           "WHERE v.id = :id AND v.status = :statusEsperado AND v.marinheiro = :marinheiro")
+    int concluirSeEmAndamento(@Param("id") Long id,
+                              @Param("marinheiro") Marinheiro marinheiroEsperado,
+                              @Param("statusEsperado") Viagem.StatusViagem statusEsperado,
+                              @Param("novoStatus") Viagem.StatusViagem novoStatus,
+                              @Param("agora") LocalDateTime agora);
+    
+    // Cancela se a viagem ainda estiver em um dos status canceláveis e o usuário for o passageiro
+    // ou o marinheiro da viagem
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Viagem v SET v.status = :novoStatus, v.versao = v.versao + 1, v.dataAtualizacao = :agora " +
+           "WHERE v.id = :id AND v.status IN :statusesEsperados " +
+           "AND (v.passageiro IN (SELECT p FROM Passageiro p WHERE p.usuario.id = :usuarioId) " +
+           "  OR v.marinheiro IN (SELECT m FROM Marinheiro m WHERE m.usuario.id = :usuarioId))")
+    int cancelarSePermitido(@Param("id") Long id,
+                            @Param("usuarioId") Long usuarioId,
+                            @Param("statusesEsperados") List<Viagem.StatusViagem> statusesEsperados,
+                            @Param("novoStatus") Viagem.StatusViagem novoStatus,
+                            @Param("agora") LocalDateTime agora);
 }
-
@@ -0,0 +1,133 @@
+package com.nautigo.security;
+
+import com.nautigo.exception.SobrecargaHashSenhasException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Hash e conferência de senhas (BCrypt, trabalho de CPU) num pool próprio com uma thread por núcleo e fila
+// limitada. Num pico de logins as threads das requisições só esperam pelo resultado: com a fila cheia, ou
+// se o hash não termina em espera-ms, a chamada é recusada na hora (SobrecargaHashSenhasException -> 503)
+// e o restante da API continua respondendo.
+// As threads do pool são sempre de plataforma, mesmo com threads virtuais ligadas: o hash não bloqueia, só
+// ocupa CPU, e o tamanho do pool é o que limita quantos hashes rodam ao mesmo tempo.
+@Component
+@RequiredArgsConstructor
+public class HashSenhas {
+
+    // $2a$10$...: versão do BCrypt e custo (log2 das rodadas)
+    private static final Pattern CUSTO_BCRYPT = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${nautigo.senhas.bcrypt.custo:10}")
+    private int custo;
+
+    @Value("${nautigo.senhas.threads:0}")
+    private int threads;
+
+    @Value("${nautigo.senhas.fila:64}")
+    private int capacidadeFila;
+
+    @Value("${nautigo.senhas.espera-ms:3000}")
+    private long esperaMs;
+
+    private ThreadPoolExecutor executor;
+    private Timer tempoConferir;
+    private Timer tempoGerar;
+    private Counter recusadas;
+
+    @PostConstruct
+    void iniciar() {
+        int quantidade = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger numero = new AtomicInteger();
+        executor = new ThreadPoolExecutor(quantidade, quantidade, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila), r -> {
+                    Thread thread = new Thread(r, "hash-senhas-" + numero.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        tempoConferir = Timer.builder("nautigo.senhas.hash")
+                .description("Tempo de hash de senha no pool (sem a espera na fila)")
+                .tag("operacao", "conferir")
+                .register(meterRegistry);
+        tempoGerar = Timer.builder("nautigo.senhas.hash")
+                .description("Tempo de hash de senha no pool (sem a espera na fila)")
+                .tag("operacao", "gerar")
+                .register(meterRegistry);
+        recusadas = Counter.builder("nautigo.senhas.recusadas")
+                .description("Hashes de senha recusados por sobrecarga (fila cheia ou tempo esgotado)")
+                .register(meterRegistry);
+        Gauge.builder("nautigo.senhas.fila", executor, pool -> pool.getQueue().size())
+                .description("Hashes de senha aguardando no pool")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    public boolean conferir(String senha, String hash) {
+        return executar(() -> tempoConferir.record(() -> passwordEncoder.matches(senha, hash)));
+    }
+
+    public String gerar(String senha) {
+        return executar(() -> tempoGerar.record(() -> passwordEncoder.encode(senha)));
+    }
+
+    // O hash foi gerado com um custo diferente do configurado (maior ou menor) e deve ser refeito no próximo login.
+    // O upgradeEncoding do BCryptPasswordEncoder só acusa custos menores, então baixar o custo não teria efeito
+    public boolean precisaAtualizar(String hash) {
+        Matcher matcher = CUSTO_BCRYPT.matcher(hash);
+        return !matcher.find() || Integer.parseInt(matcher.group(1)) != custo;
+    }
+
+    private <T> T executar(Callable<T> tarefa) {
+        Future<T> resultado;
+        try {
+            resultado = executor.submit(tarefa);
+        } catch (RejectedExecutionException e) {
+            recusadas.increment();
+            throw new SobrecargaHashSenhasException("Servidor ocupado. Tente novamente em instantes.");
+        }
+        try {
+            return resultado.get(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Se ainda estava na fila, sai dela sem ocupar o pool
+            resultado.cancel(true);
+            recusadas.increment();
+            throw new SobrecargaHashSenhasException("Servidor ocupado. Tente novamente em instantes.");
+        } catch (InterruptedException e) {
+            resultado.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SobrecargaHashSenhasException("Servidor ocupado. Tente novamente em instantes.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
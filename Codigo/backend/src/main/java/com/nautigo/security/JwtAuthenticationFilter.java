@@ -1,18 +1,20 @@
 package com.nautigo.security;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -20,33 +22,33 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private StatusAprovacaoMarinheiros statusAprovacaoMarinheiros;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
-        
-        final String authorizationHeader = request.getHeader("Authorization");
 
-        String email = null;
-        String jwt = null;
+        final String authorizationHeader = request.getHeader("Authorization");
 
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authorizationHeader.substring(7);
+            UsuarioAutenticado usuario = null;
             try {
-                email = jwtUtil.extractEmail(jwt);
-            } catch (Exception e) {
+                // Token verificado uma única vez; as claims seguem no principal para os controllers
+                usuario = jwtUtil.validarToken(jwt);
+            } catch (JwtException | IllegalArgumentException e) {
                 // Token inválido
             }
-        }
 
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(jwt, email)) {
-                Boolean isAdmin = jwtUtil.extractIsAdmin(jwt);
-                String role = isAdmin ? "ROLE_ADMIN" : "ROLE_USER";
-                
+            if (usuario != null) {
+                if (usuario.getMarinheiroId() != null) {
+                    usuario = usuario.comStatusAprovacao(statusAprovacaoMarinheiros.buscar(usuario.getMarinheiroId()));
+                }
+                String role = usuario.isAdmin() ? "ROLE_ADMIN" : "ROLE_USER";
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        email, null, new ArrayList<>() {{
-                            add(new org.springframework.security.core.authority.SimpleGrantedAuthority(role));
-                        }}
+                        usuario, null, List.of(new SimpleGrantedAuthority(role))
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -55,4 +57,3 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         chain.doFilter(request, response);
     }
 }
-
@@ -1,80 +1,120 @@
 package com.nautigo.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
-import java.util.function.Function;
 
 @Component
 public class JwtUtil {
-    
+
     @Value("${jwt.secret}")
     private String secret;
-    
+
     @Value("${jwt.expiration}")
     private Long expiration;
-    
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+
+    @Value("${jwt.cache.tamanho-maximo:10000}")
+    private long tamanhoMaximoCache;
+
+    // Chave e parser são imutáveis e thread-safe: criados uma vez só
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Tokens já verificados, cada um guardado apenas até a própria expiração
+    private Cache<String, UsuarioAutenticado> tokensVerificados;
+
+    @PostConstruct
+    void inicializar() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        tokensVerificados = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximoCache)
+                .expireAfter(new Expiry<String, UsuarioAutenticado>() {
+                    @Override
+                    public long expireAfterCreate(String token, UsuarioAutenticado usuario, long agora) {
+                        return Math.max(0, Duration.between(Instant.now(), usuario.getExpiraEm()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, UsuarioAutenticado usuario, long agora, long duracaoAtual) {
+                        return duracaoAtual;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, UsuarioAutenticado usuario, long agora, long duracaoAtual) {
+                        return duracaoAtual;
+                    }
+                })
+                .build();
     }
-    
-    public String generateToken(String email, Long userId, Boolean isAdmin) {
+
+    // O perfil (tipo e id de passageiro/marinheiro) vai no token para que cada requisição
+    // já chegue aos controllers sem consultar usuário e perfil no banco
+    public String generateToken(String email, Long userId, Boolean isAdmin,
+                                TipoUsuario tipoUsuario, Long passageiroId, Long marinheiroId) {
         return Jwts.builder()
                 .subject(email)
                 .claim("userId", userId)
                 .claim("isAdmin", isAdmin)
+                .claim("tipoUsuario", tipoUsuario.name())
+                .claim("passageiroId", passageiroId)
+                .claim("marinheiroId", marinheiroId)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
-    
-    public String extractEmail(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-    
-    public Long extractUserId(String token) {
-        return extractClaim(token, claims -> claims.get("userId", Long.class));
-    }
-    
-    public Boolean extractIsAdmin(String token) {
-        return extractClaim(token, claims -> claims.get("isAdmin", Boolean.class));
-    }
-    
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-    
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-    
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-    
-    public Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-    
-    public Boolean validateToken(String token, String email) {
-        try {
-            final String tokenEmail = extractEmail(token);
-            return (tokenEmail.equals(email) && !isTokenExpired(token));
-        } catch (Exception e) {
-            return false;
+
+    // Verifica assinatura e expiração uma única vez por token; chamadas seguintes com o mesmo token
+    // (ex.: polling) vêm do cache. Lança JwtException se o token for inválido ou estiver expirado.
+    public UsuarioAutenticado validarToken(String token) {
+        UsuarioAutenticado usuario = tokensVerificados.getIfPresent(token);
+        if (usuario != null && usuario.getExpiraEm().isAfter(Instant.now())) {
+            return usuario;
         }
+
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() == null) {
+            throw new JwtException("Token sem data de expiração");
+        }
+        // Tokens emitidos antes do perfil ir para as claims: exigem novo login
+        String tipoUsuario = claims.get("tipoUsuario", String.class);
+        if (tipoUsuario == null) {
+            throw new JwtException("Token sem perfil do usuário");
+        }
+        usuario = new UsuarioAutenticado(
+                claims.get("userId", Long.class),
+                claims.getSubject(),
+                Boolean.TRUE.equals(claims.get("isAdmin", Boolean.class)),
+                TipoUsuario.valueOf(tipoUsuario),
+                claims.get("passageiroId", Long.class),
+                claims.get("marinheiroId", Long.class),
+                null,
+                claims.getExpiration().toInstant());
+        tokensVerificados.put(token, usuario);
+        return usuario;
     }
-}
 
+    // Usuário de um token que já passou por validarToken, sem verificar nada (null se não estiver no cache).
+    // Usado pelo LimiteRequisicoesFilter para identificar o cliente antes da autenticação.
+    public Long usuarioIdEmCache(String token) {
+        UsuarioAutenticado usuario = tokensVerificados.getIfPresent(token);
+        return usuario != null ? usuario.getUsuarioId() : null;
+    }
+}
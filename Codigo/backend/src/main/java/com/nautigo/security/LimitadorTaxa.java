@@ -0,0 +1,52 @@
+package com.nautigo.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket por cliente na forma GCRA (generic cell rate algorithm): o balde é um único long com o
+// instante teórico em que ele estaria vazio de novo, avançado por CAS a cada requisição. Sem lock e sem
+// alocação por requisição (só um AtomicLong por cliente novo, no mapa concorrente).
+// capacidade é a rajada máxima; depois dela o cliente recebe uma ficha a cada 60s / fichasPorMinuto.
+class LimitadorTaxa {
+
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final ConcurrentHashMap<Object, AtomicLong> baldes = new ConcurrentHashMap<>();
+
+    LimitadorTaxa(int capacidade, int fichasPorMinuto) {
+        this.intervaloNanos = TimeUnit.MINUTES.toNanos(1) / fichasPorMinuto;
+        this.toleranciaNanos = intervaloNanos * capacidade;
+    }
+
+    // 0 se a requisição foi aceita; caso contrário, quantos nanossegundos faltam para a próxima ficha
+    long consumir(Object cliente) {
+        long agora = System.nanoTime();
+        AtomicLong balde = baldes.get(cliente);
+        if (balde == null) {
+            balde = baldes.computeIfAbsent(cliente, c -> new AtomicLong(agora));
+        }
+        while (true) {
+            long vazioEm = balde.get();
+            long novo = Math.max(vazioEm, agora) + intervaloNanos;
+            long excesso = novo - agora - toleranciaNanos;
+            if (excesso > 0) {
+                return excesso;
+            }
+            if (balde.compareAndSet(vazioEm, novo)) {
+                return 0;
+            }
+        }
+    }
+
+    // Remove os baldes que já se encheram de novo: equivalem a um cliente novo. Uma requisição concorrente
+    // com a remoção pode ficar sem ser contada, o que só favorece o cliente em uma ficha.
+    void removerOciosos() {
+        long agora = System.nanoTime();
+        baldes.values().removeIf(balde -> balde.get() - agora <= 0);
+    }
+
+    int clientes() {
+        return baldes.size();
+    }
+}
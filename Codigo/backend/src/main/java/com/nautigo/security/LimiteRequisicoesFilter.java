@@ -0,0 +1,142 @@
+package com.nautigo.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Limite de requisições por cliente (token bucket), na cadeia de segurança antes do JwtAuthenticationFilter:
+// uma requisição recusada não verifica token nem chega ao banco. Grupos de rotas com limites próprios:
+// - AUTH (/api/auth/**): por IP, já que ainda não há usuário (login e cadastro)
+// - DISPONIVEIS (/api/marinheiro/viagens/disponiveis): por usuário, a listagem mais consultada
+// - GERAL (demais /api/**): por usuário
+// O usuário vem do cache de tokens já verificados do JwtUtil; sem ele (primeira requisição com o token,
+// token inválido) o cliente é identificado pelo IP. Recusas respondem 429 com Retry-After.
+// O IP é o getRemoteAddr já resolvido pelo Tomcat (server.forward-headers-strategy=native): atrás de um proxy
+// confiável é o do X-Forwarded-For, senão o da conexão.
+@Component
+@RequiredArgsConstructor
+public class LimiteRequisicoesFilter extends OncePerRequestFilter {
+
+    enum Grupo { AUTH, DISPONIVEIS, GERAL }
+
+    private final JwtUtil jwtUtil;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Grupo, LimitadorTaxa> limitadores = new EnumMap<>(Grupo.class);
+    private final Map<Grupo, Counter> recusadas = new EnumMap<>(Grupo.class);
+
+    @Value("${nautigo.limite.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${nautigo.limite.auth.capacidade:10}")
+    private int capacidadeAuth;
+
+    @Value("${nautigo.limite.auth.por-minuto:20}")
+    private int porMinutoAuth;
+
+    @Value("${nautigo.limite.disponiveis.capacidade:10}")
+    private int capacidadeDisponiveis;
+
+    @Value("${nautigo.limite.disponiveis.por-minuto:60}")
+    private int porMinutoDisponiveis;
+
+    @Value("${nautigo.limite.geral.capacidade:100}")
+    private int capacidadeGeral;
+
+    @Value("${nautigo.limite.geral.por-minuto:600}")
+    private int porMinutoGeral;
+
+    @PostConstruct
+    void iniciar() {
+        limitadores.put(Grupo.AUTH, new LimitadorTaxa(capacidadeAuth, porMinutoAuth));
+        limitadores.put(Grupo.DISPONIVEIS, new LimitadorTaxa(capacidadeDisponiveis, porMinutoDisponiveis));
+        limitadores.put(Grupo.GERAL, new LimitadorTaxa(capacidadeGeral, porMinutoGeral));
+        limitadores.forEach((grupo, limitador) -> {
+            String tag = grupo.name().toLowerCase();
+            recusadas.put(grupo, Counter.builder("nautigo.limite.recusadas")
+                    .description("Requisições recusadas (429) pelo limite de requisições")
+                    .tag("grupo", tag)
+                    .register(meterRegistry));
+            Gauge.builder("nautigo.limite.clientes", limitador, LimitadorTaxa::clientes)
+                    .description("Clientes com balde ativo no limite de requisições")
+                    .tag("grupo", tag)
+                    .register(meterRegistry);
+        });
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Grupo grupo = habilitado ? grupo(request.getRequestURI()) : null;
+        if (grupo == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long esperaNanos = limitadores.get(grupo).consumir(cliente(request, grupo));
+        if (esperaNanos == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        recusadas.get(grupo).increment();
+        long segundos = Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(segundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(Map.of("message",
+                "Muitas requisições. Tente novamente em " + segundos + " segundos.")));
+    }
+
+    @Scheduled(fixedDelayString = "${nautigo.limite.limpeza-ms:60000}")
+    public void removerClientesOciosos() {
+        limitadores.values().forEach(LimitadorTaxa::removerOciosos);
+    }
+
+    private Grupo grupo(String caminho) {
+        if (caminho.startsWith("/api/auth/")) {
+            return Grupo.AUTH;
+        }
+        if (caminho.equals("/api/marinheiro/viagens/disponiveis")) {
+            return Grupo.DISPONIVEIS;
+        }
+        if (caminho.startsWith("/api/")) {
+            return Grupo.GERAL;
+        }
+        return null;
+    }
+
+    private Object cliente(HttpServletRequest request, Grupo grupo) {
+        if (grupo != Grupo.AUTH) {
+            String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (authorization != null && authorization.startsWith("Bearer ")) {
+                Long usuarioId = jwtUtil.usuarioIdEmCache(authorization.substring(7));
+                if (usuarioId != null) {
+                    return usuarioId;
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,69 @@
+package com.nautigo.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nautigo.entity.Marinheiro;
+import com.nautigo.event.MarinheiroAprovacaoAlteradaEvent;
+import com.nautigo.repository.MarinheiroRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+// Cache curto do status de aprovação dos marinheiros, consultado pelo JwtAuthenticationFilter
+// para montar o principal sem ir ao banco a cada requisição.
+// É preenchido no login e invalidado quando o administrador aprova ou rejeita o cadastro.
+@Component
+@RequiredArgsConstructor
+public class StatusAprovacaoMarinheiros {
+
+    private final MarinheiroRepository marinheiroRepository;
+
+    @Value("${nautigo.seguranca.status-aprovacao.ttl-segundos:300}")
+    private long ttlSegundos;
+
+    private AsyncCache<Long, Marinheiro.StatusAprovacao> statusPorMarinheiro;
+
+    @PostConstruct
+    void inicializar() {
+        statusPorMarinheiro = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .buildAsync();
+    }
+
+    // A consulta roda fora do cache: o Cache.get(chave, loader) executaria o loader dentro do compute do
+    // ConcurrentHashMap (synchronized), e uma thread virtual esperando o banco ali prenderia a thread de
+    // plataforma. Quem chega durante a consulta espera o mesmo future; uma invalidação nesse meio tempo
+    // descarta o future, então o status lido antes do commit não volta ao cache.
+    public Marinheiro.StatusAprovacao buscar(Long marinheiroId) {
+        CompletableFuture<Marinheiro.StatusAprovacao> consulta = new CompletableFuture<>();
+        CompletableFuture<Marinheiro.StatusAprovacao> existente = statusPorMarinheiro.asMap().putIfAbsent(marinheiroId, consulta);
+        if (existente != null) {
+            return existente.join();
+        }
+        try {
+            consulta.complete(marinheiroRepository.findStatusAprovacaoById(marinheiroId)
+                    .orElse(Marinheiro.StatusAprovacao.REJEITADO));
+        } catch (RuntimeException e) {
+            // Future com falha sai do cache sozinho; quem estava esperando também recebe a falha
+            consulta.completeExceptionally(e);
+            throw e;
+        }
+        return consulta.join();
+    }
+
+    public void registrar(Long marinheiroId, Marinheiro.StatusAprovacao status) {
+        statusPorMarinheiro.put(marinheiroId, CompletableFuture.completedFuture(status));
+    }
+
+    // Após o commit, para que uma leitura concorrente não volte a guardar o status antigo
+    @TransactionalEventListener
+    public void onAprovacaoAlterada(MarinheiroAprovacaoAlteradaEvent event) {
+        statusPorMarinheiro.synchronous().invalidate(event.getMarinheiroId());
+    }
+}
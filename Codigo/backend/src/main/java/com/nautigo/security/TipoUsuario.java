@@ -0,0 +1,8 @@
+package com.nautigo.security;
+
+// Perfil do usuário, resolvido no login e gravado no token (claim "tipoUsuario")
+public enum TipoUsuario {
+    ADMIN,
+    PASSAGEIRO,
+    MARINHEIRO
+}
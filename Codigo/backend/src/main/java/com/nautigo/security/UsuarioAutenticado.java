@@ -0,0 +1,47 @@
+package com.nautigo.security;
+
+import com.nautigo.entity.Marinheiro;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+// Principal colocado no SecurityContext pelo JwtAuthenticationFilter, com as claims do token já verificadas.
+// Os controllers recebem via @AuthenticationPrincipal em vez de ler o header Authorization de novo.
+// O perfil (tipo e id de passageiro/marinheiro) vem do token; o status de aprovação do marinheiro
+// vem do StatusAprovacaoMarinheiros a cada requisição, porque pode mudar durante a validade do token.
+@Getter
+@AllArgsConstructor
+public class UsuarioAutenticado {
+    private final Long usuarioId;
+    private final String email;
+    private final boolean admin;
+    private final TipoUsuario tipoUsuario;
+    private final Long passageiroId;
+    private final Long marinheiroId;
+    private final Marinheiro.StatusAprovacao statusAprovacao;
+    private final Instant expiraEm;
+
+    public UsuarioAutenticado comStatusAprovacao(Marinheiro.StatusAprovacao status) {
+        return new UsuarioAutenticado(usuarioId, email, admin, tipoUsuario, passageiroId, marinheiroId, status, expiraEm);
+    }
+
+    public Long exigirPassageiroId() {
+        if (passageiroId == null) {
+            throw new RuntimeException("Usuário não é um passageiro");
+        }
+        return passageiroId;
+    }
+
+    public Long exigirMarinheiroId() {
+        if (marinheiroId == null) {
+            throw new RuntimeException("Usuário não é um marinheiro");
+        }
+        return marinheiroId;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
@@ -0,0 +1,107 @@
+package com.nautigo.service;
+
+import com.nautigo.dto.ViagemResponse;
+import com.nautigo.event.ViagemAlteradaEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Long-polling das telas de detalhe: a requisição fica suspensa (sem ocupar thread do servlet)
+// até a viagem mudar de versão (dataAtualizacao) ou o timeout expirar, quando responde 304
+@Service
+public class AcompanhamentoViagemService {
+
+    private final Map<Long, Set<Aguardando>> aguardandoPorViagem = new ConcurrentHashMap<>();
+
+    @Value("${nautigo.viagens.acompanhamento.timeout-ms:25000}")
+    private long timeoutMs;
+
+    // carregar: busca o estado atual já validando a permissão do usuário (lança exceção se não puder ver)
+    // visivel: indica se uma nova versão da viagem ainda pode ser entregue a este usuário
+    public DeferredResult<ResponseEntity<?>> acompanhar(Long viagemId, String versao,
+                                                        Supplier<ViagemResponse> carregar,
+                                                        Predicate<ViagemResponse> visivel) {
+        DeferredResult<ResponseEntity<?>> resultado = new DeferredResult<>(
+                timeoutMs, ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+
+        LocalDateTime versaoConhecida = interpretarVersao(versao);
+        if (versaoConhecida == null) {
+            resultado.setResult(ResponseEntity.ok(carregar.get()));
+            return resultado;
+        }
+
+        // Registrar antes de ler o estado atual para não perder uma alteração que aconteça entre as duas etapas
+        Aguardando aguardando = new Aguardando(resultado, visivel);
+        aguardandoPorViagem.computeIfAbsent(viagemId, id -> ConcurrentHashMap.newKeySet()).add(aguardando);
+        resultado.onCompletion(() -> remover(viagemId, aguardando));
+
+        ViagemResponse atual;
+        try {
+            atual = carregar.get();
+        } catch (RuntimeException e) {
+            remover(viagemId, aguardando);
+            throw e;
+        }
+
+        if (!versaoConhecida.equals(atual.getDataAtualizacao())) {
+            resultado.setResult(ResponseEntity.ok(atual));
+        }
+        return resultado;
+    }
+
+    @TransactionalEventListener
+    public void onViagemAlterada(ViagemAlteradaEvent event) {
+        ViagemResponse viagem = event.getViagem();
+        Set<Aguardando> aguardando = aguardandoPorViagem.remove(viagem.getId());
+        if (aguardando == null) {
+            return;
+        }
+        for (Aguardando a : aguardando) {
+            if (a.visivel.test(viagem)) {
+                a.resultado.setResult(ResponseEntity.ok(viagem));
+            } else {
+                a.resultado.setResult(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("message", "Viagem não encontrada")));
+            }
+        }
+    }
+
+    private void remover(Long viagemId, Aguardando aguardando) {
+        aguardandoPorViagem.computeIfPresent(viagemId, (id, conjunto) -> {
+            conjunto.remove(aguardando);
+            return conjunto.isEmpty() ? null : conjunto;
+        });
+    }
+
+    private LocalDateTime interpretarVersao(String versao) {
+        if (versao == null || versao.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(versao);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static class Aguardando {
+        private final DeferredResult<ResponseEntity<?>> resultado;
+        private final Predicate<ViagemResponse> visivel;
+
+        private Aguardando(DeferredResult<ResponseEntity<?>> resultado, Predicate<ViagemResponse> visivel) {
+            this.resultado = resultado;
+            this.visivel = visivel;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.nautigo.service;
+
+import com.nautigo.dto.ViagemResponse;
+import com.nautigo.entity.Viagem;
+import com.nautigo.event.LembreteViagemEvent;
+import com.nautigo.event.ViagemAlteradaEvent;
+import com.nautigo.event.ViagemLiberadaEvent;
+import com.nautigo.repository.ViagemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Agenda das viagens com dataHoraAgendada, sobre uma RodaTemporizacao (sem thread nem consulta por viagem):
+// - liberação: a viagem pendente sem marinheiro só entra no quadro de disponíveis antecedencia-liberacao antes da saída
+// - lembrete: antecedencia-lembrete antes da saída de uma viagem já aceita, avisa passageiro e marinheiro
+// Os temporizadores acompanham os eventos das transições (após o commit) e são recriados do banco na inicialização.
+@Service
+@RequiredArgsConstructor
+public class AgendaViagens {
+
+    private final ViagemRepository viagemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, RodaTemporizacao.Temporizador> agendamentos = new ConcurrentHashMap<>();
+    private RodaTemporizacao roda;
+
+    @Value("${nautigo.viagens.agendadas.antecedencia-liberacao-min:60}")
+    private long antecedenciaLiberacaoMin;
+
+    @Value("${nautigo.viagens.agendadas.antecedencia-lembrete-min:30}")
+    private long antecedenciaLembreteMin;
+
+    @Value("${nautigo.viagens.agendadas.roda.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${nautigo.viagens.agendadas.roda.posicoes:4096}")
+    private int posicoesRoda;
+
+    @PostConstruct
+    void iniciar() {
+        roda = new RodaTemporizacao("agenda-viagens", tickMs, posicoesRoda);
+    }
+
+    @PreDestroy
+    void encerrar() {
+        roda.parar();
+    }
+
+    // Viagem agendada cuja hora de entrar no quadro ainda não chegou
+    public boolean aguardandoLiberacao(ViagemResponse viagem) {
+        return viagem.getDataHoraAgendada() != null
+                && instanteLiberacao(viagem.getDataHoraAgendada()).isAfter(LocalDateTime.now());
+    }
+
+    // Viagens agendadas até este instante já foram (ou vão agora ser) liberadas para o quadro
+    public LocalDateTime liberadasAte(LocalDateTime agora) {
+        return agora.plusMinutes(antecedenciaLiberacaoMin);
+    }
+
+    @TransactionalEventListener
+    public void onViagemAlterada(ViagemAlteradaEvent event) {
+        agendar(event.getViagem());
+    }
+
+    // Viagens agendadas ainda não iniciadas quando a aplicação subiu
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarViagensAgendadas() {
+        List<ViagemResponse> agendadas = viagemRepository.listarAgendadasComStatus(
+                List.of(Viagem.StatusViagem.PENDENTE, Viagem.StatusViagem.ACEITA),
+                LocalDateTime.now());
+        agendadas.forEach(this::agendar);
+    }
+
+    private void agendar(ViagemResponse viagem) {
+        boolean aberta = viagem.getStatus() == Viagem.StatusViagem.PENDENTE && viagem.getMarinheiroId() == null;
+        boolean aceita = viagem.getStatus() == Viagem.StatusViagem.ACEITA
+                && viagem.getDataHoraAgendada() != null && viagem.getDataHoraAgendada().isAfter(LocalDateTime.now());
+
+        // Cada evento substitui o temporizador anterior da viagem (status ou horário podem ter mudado).
+        // A liberação é agendada mesmo com o instante já passado: dispara no próximo tick e o quadro ignora
+        // viagens que já estão abertas, assim não há janela em que os dois discordem sobre o horário.
+        RodaTemporizacao.Temporizador temporizador = null;
+        if (viagem.getDataHoraAgendada() != null && aberta) {
+            temporizador = roda.agendar(epochMs(instanteLiberacao(viagem.getDataHoraAgendada())), () -> {
+                esquecerDisparado(viagem.getId());
+                eventPublisher.publishEvent(new ViagemLiberadaEvent(viagem.getId()));
+            });
+        } else if (aceita) {
+            LocalDateTime lembrete = viagem.getDataHoraAgendada().minusMinutes(antecedenciaLembreteMin);
+            temporizador = roda.agendar(epochMs(lembrete), () -> {
+                esquecerDisparado(viagem.getId());
+                eventPublisher.publishEvent(new LembreteViagemEvent(viagem.getId(), viagem.getPassageiroId(),
+                        viagem.getMarinheiroId(), viagem.getDataHoraAgendada()));
+            });
+        }
+
+        RodaTemporizacao.Temporizador anterior = temporizador != null
+                ? agendamentos.put(viagem.getId(), temporizador)
+                : agendamentos.remove(viagem.getId());
+        if (anterior != null) {
+            anterior.cancelar();
+        }
+    }
+
+    // Chamado de dentro da tarefa: só remove o temporizador se um evento mais novo não o substituiu
+    private void esquecerDisparado(Long viagemId) {
+        agendamentos.computeIfPresent(viagemId, (id, temporizador) -> temporizador.pendente() ? temporizador : null);
+    }
+
+    private LocalDateTime instanteLiberacao(LocalDateTime dataHoraAgendada) {
+        return dataHoraAgendada.minusMinutes(antecedenciaLiberacaoMin);
+    }
+
+    private static long epochMs(LocalDateTime instante) {
+        return instante.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
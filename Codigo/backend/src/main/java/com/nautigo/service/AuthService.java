@@ -4,38 +4,83 @@ import com.nautigo.dto.*;
 import com.nautigo.entity.Marinheiro;
 import com.nautigo.entity.Passageiro;
 import com.nautigo.entity.Usuario;
+import com.nautigo.exception.SobrecargaHashSenhasException;
 import com.nautigo.repository.MarinheiroRepository;
 import com.nautigo.repository.PassageiroRepository;
 import com.nautigo.repository.UsuarioRepository;
+import com.nautigo.security.HashSenhas;
 import com.nautigo.security.JwtUtil;
+import com.nautigo.security.StatusAprovacaoMarinheiros;
+import com.nautigo.security.TipoUsuario;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Optional;
+
+// O hash das senhas (BCrypt) roda no pool do HashSenhas; no cadastro ele é calculado antes da transação,
+// para que a espera pelo pool não segure uma conexão do banco
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AuthService {
     
     private final UsuarioRepository usuarioRepository;
     private final PassageiroRepository passageiroRepository;
     private final MarinheiroRepository marinheiroRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final HashSenhas hashSenhas;
     private final JwtUtil jwtUtil;
+    private final StatusAprovacaoMarinheiros statusAprovacaoMarinheiros;
+    private final PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate transacao;
+    
+    @PostConstruct
+    void iniciar() {
+        transacao = new TransactionTemplate(transactionManager);
+    }
     
     public LoginResponse login(LoginRequest request) {
         Usuario usuario = usuarioRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("Credenciais inválidas"));
         
-        if (!passwordEncoder.matches(request.getSenha(), usuario.getSenha())) {
+        // Antes do hash: usuário inativo não gasta CPU (a resposta é a mesma 401 de credenciais inválidas)
+        if (!usuario.getAtivo()) {
+            throw new RuntimeException("Usuário inativo");
+        }
+        
+        if (!hashSenhas.conferir(request.getSenha(), usuario.getSenha())) {
             throw new RuntimeException("Credenciais inválidas");
         }
         
-        if (!usuario.getAtivo()) {
-            throw new RuntimeException("Usuário inativo");
+        if (hashSenhas.precisaAtualizar(usuario.getSenha())) {
+            atualizarHash(usuario, request.getSenha());
+        }
+        
+        // Perfil resolvido uma vez aqui e levado no token (mesma precedência do antigo /api/usuario/tipo)
+        TipoUsuario tipoUsuario = TipoUsuario.PASSAGEIRO;
+        Long passageiroId = null;
+        Long marinheiroId = null;
+        Optional<Marinheiro> marinheiro = marinheiroRepository.findByUsuario(usuario);
+        Optional<Passageiro> passageiro = passageiroRepository.findByUsuario(usuario);
+        if (usuario.getIsAdmin()) {
+            tipoUsuario = TipoUsuario.ADMIN;
+        } else if (marinheiro.isPresent()) {
+            tipoUsuario = TipoUsuario.MARINHEIRO;
+        }
+        if (marinheiro.isPresent()) {
+            marinheiroId = marinheiro.get().getId();
+            statusAprovacaoMarinheiros.registrar(marinheiroId, marinheiro.get().getStatusAprovacao());
+        }
+        if (passageiro.isPresent()) {
+            passageiroId = passageiro.get().getId();
         }
         
-        String token = jwtUtil.generateToken(usuario.getEmail(), usuario.getId(), usuario.getIsAdmin());
+        String token = jwtUtil.generateToken(usuario.getEmail(), usuario.getId(), usuario.getIsAdmin(),
+                tipoUsuario, passageiroId, marinheiroId);
         
         UserResponse userResponse = new UserResponse(
                 usuario.getId(),
@@ -47,17 +92,20 @@ public class AuthService {
         return new LoginResponse(token, userResponse);
     }
     
-    @Transactional
     public UserResponse cadastrarPassageiro(CadastroPassageiroRequest request) {
         if (usuarioRepository.existsByEmail(request.getEmail())) {
             throw new RuntimeException("Email já cadastrado");
         }
-        
+        String hash = hashSenhas.gerar(request.getSenha());
+        return transacao.execute(status -> salvarPassageiro(request, hash));
+    }
+    
+    private UserResponse salvarPassageiro(CadastroPassageiroRequest request, String hash) {
         Usuario usuario = new Usuario();
         usuario.setNome(request.getNome());
         usuario.setEmail(request.getEmail());
         usuario.setTelefone(request.getTelefone());
-        usuario.setSenha(passwordEncoder.encode(request.getSenha()));
+        usuario.setSenha(hash);
         usuario.setIsAdmin(false);
         usuario.setAtivo(true);
         
@@ -75,17 +123,20 @@ public class AuthService {
         );
     }
     
-    @Transactional
     public UserResponse cadastrarMarinheiro(CadastroMarinheiroRequest request) {
         if (usuarioRepository.existsByEmail(request.getEmail())) {
             throw new RuntimeException("Email já cadastrado");
         }
-        
+        String hash = hashSenhas.gerar(request.getSenha());
+        return transacao.execute(status -> salvarMarinheiro(request, hash));
+    }
+    
+    private UserResponse salvarMarinheiro(CadastroMarinheiroRequest request, String hash) {
         Usuario usuario = new Usuario();
         usuario.setNome(request.getNome());
         usuario.setEmail(request.getEmail());
         usuario.setTelefone(request.getTelefone());
-        usuario.setSenha(passwordEncoder.encode(request.getSenha()));
+        usuario.setSenha(hash);
         usuario.setIsAdmin(false);
         usuario.setAtivo(true);
         
@@ -109,5 +160,16 @@ public class AuthService {
                 usuario.getIsAdmin()
         );
     }
+    
+    // Rehash com o custo atual; sob sobrecarga fica para um próximo login. A troca passa pela entidade
+    // gerenciada, então só a entrada deste usuário na região "usuarios" do cache de segundo nível é atualizada
+    private void atualizarHash(Usuario usuario, String senha) {
+        try {
+            String hash = hashSenhas.gerar(senha);
+            transacao.executeWithoutResult(status -> usuarioRepository.findById(usuario.getId())
+                    .ifPresent(gerenciado -> gerenciado.setSenha(hash)));
+        } catch (SobrecargaHashSenhasException e) {
+            log.debug("Rehash da senha do usuário {} adiado por sobrecarga", usuario.getId());
+        }
+    }
 }
-
@@ -1,18 +1,23 @@
 package com.nautigo.service;
 
+import com.nautigo.config.LeituraReplica;
 import com.nautigo.dto.AvaliarViagemRequest;
 import com.nautigo.dto.AvaliacaoResponse;
+import com.nautigo.dto.CursorPaginatedResponse;
 import com.nautigo.entity.Avaliacao;
 import com.nautigo.entity.Marinheiro;
 import com.nautigo.entity.Passageiro;
 import com.nautigo.entity.Usuario;
 import com.nautigo.entity.Viagem;
 import com.nautigo.repository.AvaliacaoRepository;
+import com.nautigo.repository.EstadoViagem;
 import com.nautigo.repository.MarinheiroRepository;
 import com.nautigo.repository.PassageiroRepository;
 import com.nautigo.repository.UsuarioRepository;
 import com.nautigo.repository.ViagemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,7 +36,8 @@ public class AvaliacaoService {
     
     @Transactional
     public AvaliacaoResponse avaliarViagem(Long viagemId, Long avaliadorId, AvaliarViagemRequest request) {
-        Viagem viagem = viagemRepository.findById(viagemId)
+        // Só status e participantes da viagem: passageiro, marinheiro e usuários não são carregados
+        EstadoViagem viagem = viagemRepository.findEstadoById(viagemId)
                 .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
         
         if (viagem.getStatus() != Viagem.StatusViagem.CONCLUIDA) {
@@ -43,19 +49,19 @@ public class AvaliacaoService {
         
         // Verificar se o avaliador é passageiro ou marinheiro da viagem
         boolean podeAvaliar = false;
-        Usuario avaliado = null;
+        Long avaliadoId = null;
         
-        if (viagem.getPassageiro().getUsuario().getId().equals(avaliadorId)) {
+        if (viagem.getPassageiroUsuarioId().equals(avaliadorId)) {
             // Passageiro avaliando o marinheiro
-            if (viagem.getMarinheiro() == null) {
+            if (viagem.getMarinheiroId() == null) {
                 throw new RuntimeException("Marinheiro não encontrado na viagem");
             }
-            avaliado = viagem.getMarinheiro().getUsuario();
+            avaliadoId = viagem.getMarinheiroUsuarioId();
             podeAvaliar = true;
-        } else if (viagem.getMarinheiro() != null && 
-                   viagem.getMarinheiro().getUsuario().getId().equals(avaliadorId)) {
+        } else if (viagem.getMarinheiroId() != null && 
+                   viagem.getMarinheiroUsuarioId().equals(avaliadorId)) {
             // Marinheiro avaliando o passageiro
-            avaliado = viagem.getPassageiro().getUsuario();
+            avaliadoId = viagem.getPassageiroUsuarioId();
             podeAvaliar = true;
         }
         
@@ -64,12 +70,17 @@ public class AvaliacaoService {
         }
         
         // Verificar se já existe avaliação
-        if (avaliacaoRepository.findByViagemAndAvaliador(viagem, avaliador).isPresent()) {
+        if (avaliacaoRepository.existsByViagem_IdAndAvaliador_Id(viagemId, avaliadorId)) {
             throw new RuntimeException("Você já avaliou esta viagem");
         }
         
+        // O nome do avaliado vai na resposta. A linha fica bloqueada até o commit: avaliações simultâneas do
+        // mesmo usuário somam uma depois da outra nos agregados
+        Usuario avaliado = usuarioRepository.findComBloqueioById(avaliadoId)
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+        
         Avaliacao avaliacao = new Avaliacao();
-        avaliacao.setViagem(viagem);
+        avaliacao.setViagem(viagemRepository.getReferenceById(viagemId));
         avaliacao.setAvaliador(avaliador);
         avaliacao.setAvaliado(avaliado);
         avaliacao.setNota(request.getNota());
@@ -77,31 +88,38 @@ public class AvaliacaoService {
         
         avaliacao = avaliacaoRepository.save(avaliacao);
         
+        // Agregados do avaliado pela entidade (e não por UPDATE em massa, que descartaria a região inteira
+        // de usuários do cache de segundo nível): só a entrada do avaliado é atualizada após o commit
+        avaliado.setSomaAvaliacoes(avaliado.getSomaAvaliacoes() + request.getNota());
+        avaliado.setQuantidadeAvaliacoes(avaliado.getQuantidadeAvaliacoes() + 1);
+        
         return toResponse(avaliacao);
     }
     
+    @LeituraReplica
     public Double obterNotaMedia(Long usuarioId) {
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
         
-        Long quantidadeAvaliacoes = avaliacaoRepository.contarAvaliacoes(usuario);
-        
         // Se não tem avaliações, retorna 5.0 (nota inicial)
-        if (quantidadeAvaliacoes == 0) {
-            return 5.0;
-        }
-        
-        Double media = avaliacaoRepository.calcularMediaAvaliacoes(usuario);
-        return media != null ? media : 5.0;
+        return usuario.calcularNotaMedia();
     }
     
+    @LeituraReplica
     public Long contarAvaliacoes(Long usuarioId) {
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
         
-        return avaliacaoRepository.contarAvaliacoes(usuario);
+        return usuario.getQuantidadeAvaliacoes();
     }
     
+    // Reconstrói os agregados de avaliação de todos os usuários (backfill/correção)
+    @Transactional
+    public int recalcularAgregadosDeAvaliacao() {
+        return usuarioRepository.recalcularAgregadosDeAvaliacao();
+    }
+    
+    @LeituraReplica
     public List<AvaliacaoResponse> listarAvaliacoesDoUsuario(Long usuarioId) {
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
@@ -112,16 +130,44 @@ public class AvaliacaoService {
                 .collect(Collectors.toList());
     }
     
+    // Avaliações recebidas paginadas por cursor (dataCriacao, id), mais recentes primeiro
+    @LeituraReplica
+    public CursorPaginatedResponse<AvaliacaoResponse> listarAvaliacoesDoUsuarioPorCursor(Long usuarioId, String cursor, int size) {
+        int tamanho = CursorPaginacao.limitarTamanho(size);
+        CursorPaginacao apos = CursorPaginacao.decodificar(cursor);
+        // Uma linha a mais indica se existe próxima página
+        Pageable limite = PageRequest.of(0, tamanho + 1);
+        List<Avaliacao> avaliacoes = apos == null
+                ? avaliacaoRepository.findPrimeirasDoAvaliado(usuarioId, limite)
+                : avaliacaoRepository.findDoAvaliadoApos(usuarioId, apos.getDataCriacao(), apos.getId(), limite);
+        
+        boolean ultima = avaliacoes.size() <= tamanho;
+        List<Avaliacao> pagina = ultima ? avaliacoes : avaliacoes.subList(0, tamanho);
+        String proximoCursor = null;
+        if (!ultima) {
+            Avaliacao ultimaDaPagina = pagina.get(pagina.size() - 1);
+            proximoCursor = CursorPaginacao.codificar(ultimaDaPagina.getDataCriacao(), ultimaDaPagina.getId());
+        }
+        List<AvaliacaoResponse> content = pagina.stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+        return new CursorPaginatedResponse<>(content, tamanho, proximoCursor, ultima);
+    }
+    
     public boolean verificarSeJaAvaliou(Long viagemId, Long usuarioId) {
-        Viagem viagem = viagemRepository.findById(viagemId)
-                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
+        if (!viagemRepository.existsById(viagemId)) {
+            throw new RuntimeException("Viagem não encontrada");
+        }
         
-        Usuario usuario = usuarioRepository.findById(usuarioId)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+        if (!usuarioRepository.existsById(usuarioId)) {
+            throw new RuntimeException("Usuário não encontrado");
+        }
         
-        return avaliacaoRepository.findByViagemAndAvaliador(viagem, usuario).isPresent();
+        return avaliacaoRepository.existsByViagem_IdAndAvaliador_Id(viagemId, usuarioId);
     }
     
+    // A viagem pode ser um proxy não inicializado (só o id é lido); avaliador e avaliado vêm do grafo
+    // Avaliacao.listagem nas listagens
     private AvaliacaoResponse toResponse(Avaliacao avaliacao) {
         return new AvaliacaoResponse(
                 avaliacao.getId(),
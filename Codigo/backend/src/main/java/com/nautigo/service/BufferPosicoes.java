@@ -0,0 +1,57 @@
+package com.nautigo.service;
+
+import com.nautigo.dto.PosicaoResponse;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Buffer circular com as últimas posições recebidas de uma viagem, em resolução completa.
+// Ao encher, cada posição nova sobrescreve a mais antiga; a memória por viagem é fixa.
+class BufferPosicoes {
+
+    private final PosicaoResponse[] posicoes;
+    private int proxima = 0;
+    private int quantidade = 0;
+    private boolean sobrescreveu = false;
+
+    BufferPosicoes(int capacidade) {
+        posicoes = new PosicaoResponse[capacidade];
+    }
+
+    synchronized void adicionar(PosicaoResponse posicao) {
+        if (quantidade == posicoes.length) {
+            sobrescreveu = true;
+        }
+        posicoes[proxima] = posicao;
+        proxima = (proxima + 1) % posicoes.length;
+        if (quantidade < posicoes.length) {
+            quantidade++;
+        }
+    }
+
+    synchronized PosicaoResponse ultima() {
+        if (quantidade == 0) {
+            return null;
+        }
+        return posicoes[(proxima - 1 + posicoes.length) % posicoes.length];
+    }
+
+    // Se alguma posição já saiu do buffer para dar lugar a uma nova
+    synchronized boolean sobrescreveu() {
+        return sobrescreveu;
+    }
+
+    // Posições registradas depois do instante informado (todas, se for null), da mais antiga para a mais recente
+    synchronized List<PosicaoResponse> desde(LocalDateTime instante) {
+        List<PosicaoResponse> resultado = new ArrayList<>();
+        int inicio = (proxima - quantidade + posicoes.length) % posicoes.length;
+        for (int i = 0; i < quantidade; i++) {
+            PosicaoResponse posicao = posicoes[(inicio + i) % posicoes.length];
+            if (instante == null || posicao.getRegistradaEm().isAfter(instante)) {
+                resultado.add(posicao);
+            }
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,54 @@
+package com.nautigo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Cursor opaco da paginação por (dataCriacao, id) em ordem decrescente.
+// O cliente só repassa o valor recebido em nextCursor; o formato interno pode mudar.
+public final class CursorPaginacao {
+
+    public static final int TAMANHO_MAXIMO = 100;
+
+    private final LocalDateTime dataCriacao;
+    private final Long id;
+
+    private CursorPaginacao(LocalDateTime dataCriacao, Long id) {
+        this.dataCriacao = dataCriacao;
+        this.id = id;
+    }
+
+    public LocalDateTime getDataCriacao() {
+        return dataCriacao;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public static String codificar(LocalDateTime dataCriacao, Long id) {
+        String valor = dataCriacao + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Retorna null para a primeira página (cursor vazio)
+    public static CursorPaginacao decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            return new CursorPaginacao(
+                    LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.parseLong(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("Cursor de paginação inválido");
+        }
+    }
+
+    public static int limitarTamanho(int size) {
+        return Math.max(1, Math.min(size, TAMANHO_MAXIMO));
+    }
+}
@@ -0,0 +1,142 @@
+package com.nautigo.service;
+
+import com.nautigo.dto.ViagemResponse;
+import com.nautigo.entity.Viagem;
+import com.nautigo.event.ViagemAlteradaEvent;
+import com.nautigo.repository.ViagemRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Expiração periódica das viagens paradas: PENDENTE sem marinheiro há mais de pendente-min e
+// AGUARDANDO_APROVACAO_PASSAGEIRO sem resposta há mais de aguardando-aprovacao-min (contados da última
+// transição), além das agendadas cuja saída já passou nesses status. Cada lote é um UPDATE ... RETURNING
+// numa transação curta; FOR UPDATE SKIP LOCKED pula as viagens que uma transição está alterando agora.
+// As viagens expiradas geram ViagemAlteradaEvent como qualquer transição (quadro, agenda, acompanhamento).
+// Com várias instâncias, um advisory lock do PostgreSQL garante que só uma faz a varredura de cada rodada.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiracaoViagens {
+
+    // Chave do advisory lock (pg_try_advisory_lock) compartilhada por todas as instâncias
+    private static final long CHAVE_LOCK = 7_340_018L;
+
+    private static final String EXPIRAR_LOTE = "UPDATE viagens SET status = 'EXPIRADA', versao = versao + 1, " +
+            "data_atualizacao = ? " +
+            "WHERE id IN (SELECT id FROM viagens WHERE status = ? " +
+            "AND ((data_hora_agendada IS NULL AND data_atualizacao < ?) OR data_hora_agendada < ?) " +
+            "LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id";
+
+    private final ViagemRepository viagemRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    private TransactionTemplate transacao;
+
+    @Value("${nautigo.viagens.expiracao.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${nautigo.viagens.expiracao.pendente-min:120}")
+    private long prazoPendenteMin;
+
+    @Value("${nautigo.viagens.expiracao.aguardando-aprovacao-min:30}")
+    private long prazoAguardandoAprovacaoMin;
+
+    @Value("${nautigo.viagens.expiracao.tamanho-lote:200}")
+    private int tamanhoLote;
+
+    @PostConstruct
+    void iniciar() {
+        transacao = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${nautigo.viagens.expiracao.intervalo-ms:60000}",
+            initialDelayString = "${nautigo.viagens.expiracao.atraso-inicial-ms:30000}")
+    public void expirarViagensParadas() {
+        if (!habilitada) {
+            return;
+        }
+        // O lock de sessão fica preso a esta conexão durante toda a varredura; os lotes usam outras
+        // conexões (transações próprias) e o lock é liberado no fim ou quando a conexão cai
+        jdbcTemplate.execute((ConnectionCallback<Void>) conexao -> {
+            if (!executarLock(conexao, "SELECT pg_try_advisory_lock(?)")) {
+                log.debug("Expiração de viagens já em execução em outra instância");
+                return null;
+            }
+            try {
+                expirar(Viagem.StatusViagem.PENDENTE, prazoPendenteMin);
+                expirar(Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO, prazoAguardandoAprovacaoMin);
+            } finally {
+                executarLock(conexao, "SELECT pg_advisory_unlock(?)");
+            }
+            return null;
+        });
+    }
+
+    private void expirar(Viagem.StatusViagem status, long prazoMin) {
+        Counter expiradas = Counter.builder("nautigo.viagens.expiradas")
+                .description("Viagens expiradas pela varredura, por status anterior")
+                .tag("status", status.name())
+                .register(meterRegistry);
+        int total = 0;
+        int quantidade;
+        do {
+            Integer lote = transacao.execute(tx -> expirarLote(status, prazoMin));
+            quantidade = lote != null ? lote : 0;
+            total += quantidade;
+        } while (quantidade == tamanhoLote);
+        if (total > 0) {
+            expiradas.increment(total);
+            log.info("{} viagens {} expiradas", total, status);
+        }
+    }
+
+    private int expirarLote(Viagem.StatusViagem status, long prazoMin) {
+        LocalDateTime agora = Viagem.agoraComPrecisaoDoBanco();
+        List<Long> ids = jdbcTemplate.queryForList(EXPIRAR_LOTE, Long.class,
+                Timestamp.valueOf(agora),
+                status.name(),
+                Timestamp.valueOf(agora.minusMinutes(prazoMin)),
+                Timestamp.valueOf(agora),
+                tamanhoLote);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // Publicados dentro da transação do lote: os ouvintes (AFTER_COMMIT) só reagem se ele for confirmado
+        for (ViagemResponse viagem : viagemRepository.listarPorIds(ids)) {
+            eventPublisher.publishEvent(new ViagemAlteradaEvent(viagem));
+        }
+        return ids.size();
+    }
+
+    private static boolean executarLock(Connection conexao, String sql) throws SQLException {
+        try (PreparedStatement ps = conexao.prepareStatement(sql)) {
+            ps.setLong(1, CHAVE_LOCK);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
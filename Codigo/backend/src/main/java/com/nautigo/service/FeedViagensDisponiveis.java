@@ -0,0 +1,284 @@
+package com.nautigo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Stream (Server-Sent Events) das mudanças do quadro de viagens disponíveis para os marinheiros conectados.
+// Os eventos são emitidos pelo QuadroViagensDisponiveis (após o commit) e guardados num histórico curto
+// para que o cliente retome a conexão com Last-Event-ID sem recarregar a lista inteira.
+// Cada conexão tem uma fila limitada: um cliente lento demais é desconectado em vez de acumular memória
+// (ao reconectar ele recupera o que perdeu pelo histórico ou recebe "sincronizar").
+// O envio (escrita bloqueante em cada conexão) usa threads virtuais quando spring.threads.virtual.enabled
+// está ligado em Java 21+; senão, um pool de threads de plataforma que cresce sob demanda.
+@Component
+@RequiredArgsConstructor
+public class FeedViagensDisponiveis {
+
+    public static final String VIAGEM_DISPONIVEL = "viagem-disponivel";
+    public static final String VIAGEM_ACEITA = "viagem-aceita";
+    public static final String VIAGEM_CANCELADA = "viagem-cancelada";
+    public static final String VIAGEM_RECUSADA = "viagem-recusada";
+    // Só para o marinheiro da viagem agendada, pouco antes da saída
+    public static final String LEMBRETE_VIAGEM = "lembrete-viagem";
+    // Enviado quando o histórico não cobre o Last-Event-ID informado: o cliente deve recarregar a lista
+    public static final String SINCRONIZAR = "sincronizar";
+
+    // Os ids dos eventos são "<epoca>-<sequencia>": a época muda a cada inicialização, assim um
+    // Last-Event-ID de antes de um restart nunca é confundido com um evento novo
+    private final long epoca = System.currentTimeMillis();
+    private long ultimaSequencia = 0;
+    private final ArrayDeque<Evento> historico = new ArrayDeque<>();
+    // ReentrantLock em vez de synchronized: encerrar uma conexão (complete) pode escrever na resposta sob o
+    // lock, e uma thread virtual bloqueada dentro de synchronized prende a thread de plataforma que a carrega
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Environment environment;
+    private final Set<Conexao> conexoes = ConcurrentHashMap.newKeySet();
+    private Executor envio;
+
+    @Value("${nautigo.viagens.feed.timeout-ms:300000}")
+    private long timeoutMs;
+
+    @Value("${nautigo.viagens.feed.capacidade-conexao:256}")
+    private int capacidadeConexao;
+
+    @Value("${nautigo.viagens.feed.tamanho-historico:1000}")
+    private int tamanhoHistorico;
+
+    @PostConstruct
+    void iniciar() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtuais = new SimpleAsyncTaskExecutor("feed-viagens-");
+            virtuais.setVirtualThreads(true);
+            envio = virtuais;
+        } else {
+            envio = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "feed-viagens");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Id do último evento emitido; a listagem de viagens disponíveis devolve esse valor para o cliente
+    // abrir o stream a partir dele sem perder nada que aconteça entre a listagem e a conexão
+    public String ultimoEventoId() {
+        lock.lock();
+        try {
+            return formatarId(ultimaSequencia);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SseEmitter conectar(Long marinheiroId, String ultimoEventoId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Conexao conexao = new Conexao(marinheiroId, emitter, capacidadeConexao);
+        emitter.onCompletion(() -> conexoes.remove(conexao));
+        emitter.onTimeout(() -> conexoes.remove(conexao));
+        emitter.onError(e -> conexoes.remove(conexao));
+
+        lock.lock();
+        try {
+            if (ultimoEventoId != null && !ultimoEventoId.isBlank()) {
+                List<Evento> perdidos = eventosDesde(interpretarId(ultimoEventoId), marinheiroId);
+                if (perdidos == null || perdidos.size() >= capacidadeConexao) {
+                    conexao.fila.offer(new Evento(ultimaSequencia, SINCRONIZAR, Map.of(), null, Set.of()));
+                } else {
+                    conexao.fila.addAll(perdidos);
+                }
+            }
+            conexoes.add(conexao);
+        } finally {
+            lock.unlock();
+        }
+        agendarEnvio(conexao);
+        return emitter;
+    }
+
+    // Evento para todos os marinheiros, exceto os que recusaram a viagem
+    public void publicar(String tipo, Object dados, Set<Long> excetoMarinheiros) {
+        emitir(tipo, dados, null, excetoMarinheiros);
+    }
+
+    // Evento para um único marinheiro
+    public void publicarPara(Long marinheiroId, String tipo, Object dados) {
+        emitir(tipo, dados, marinheiroId, Set.of());
+    }
+
+    private void emitir(String tipo, Object dados, Long somenteMarinheiro, Set<Long> excetoMarinheiros) {
+        // Sequência, histórico e enfileiramento sob o mesmo lock garantem que todas as conexões
+        // recebem os eventos na ordem dos ids
+        lock.lock();
+        try {
+            Evento evento = new Evento(++ultimaSequencia, tipo, dados, somenteMarinheiro, excetoMarinheiros);
+            historico.addLast(evento);
+            while (historico.size() > tamanhoHistorico) {
+                historico.removeFirst();
+            }
+            for (Conexao conexao : conexoes) {
+                if (evento.destinadoA(conexao.marinheiroId)) {
+                    enfileirar(conexao, evento);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        conexoes.forEach(this::agendarEnvio);
+    }
+
+    // Comentário periódico para manter a conexão viva em proxies e detectar clientes que sumiram
+    @Scheduled(fixedDelayString = "${nautigo.viagens.feed.heartbeat-ms:15000}")
+    public void enviarHeartbeat() {
+        for (Conexao conexao : conexoes) {
+            enfileirar(conexao, Evento.HEARTBEAT);
+            agendarEnvio(conexao);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        conexoes.forEach(conexao -> conexao.emitter.complete());
+        if (envio instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        } else if (envio instanceof SimpleAsyncTaskExecutor virtuais) {
+            virtuais.close();
+        }
+    }
+
+    private void enfileirar(Conexao conexao, Evento evento) {
+        if (!conexao.fila.offer(evento)) {
+            // Cliente não está acompanhando o ritmo: encerra para ele retomar pelo Last-Event-ID
+            conexoes.remove(conexao);
+            conexao.emitter.complete();
+        }
+    }
+
+    private void agendarEnvio(Conexao conexao) {
+        if (!conexao.fila.isEmpty() && conexao.enviando.compareAndSet(false, true)) {
+            envio.execute(() -> drenar(conexao));
+        }
+    }
+
+    private void drenar(Conexao conexao) {
+        try {
+            Evento evento;
+            while ((evento = conexao.fila.poll()) != null) {
+                if (evento == Evento.HEARTBEAT) {
+                    conexao.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    conexao.emitter.send(SseEmitter.event()
+                            .id(formatarId(evento.sequencia))
+                            .name(evento.tipo)
+                            .data(evento.dados, MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Conexão fechada pelo cliente
+            conexoes.remove(conexao);
+            conexao.fila.clear();
+            conexao.emitter.completeWithError(e);
+        } finally {
+            conexao.enviando.set(false);
+        }
+        // Evento que chegou depois do último poll, mas antes de liberar o "enviando"
+        agendarEnvio(conexao);
+    }
+
+    // Eventos do histórico posteriores à sequência informada, ou null se o histórico não os cobre mais
+    private List<Evento> eventosDesde(Long sequencia, Long marinheiroId) {
+        if (sequencia == null || sequencia > ultimaSequencia
+                || (!historico.isEmpty() && sequencia < historico.peekFirst().sequencia - 1)) {
+            return null;
+        }
+        List<Evento> eventos = new ArrayList<>();
+        for (Evento evento : historico) {
+            if (evento.sequencia > sequencia && evento.destinadoA(marinheiroId)) {
+                eventos.add(evento);
+            }
+        }
+        return eventos;
+    }
+
+    private String formatarId(long sequencia) {
+        return epoca + "-" + sequencia;
+    }
+
+    // Devolve a sequência do Last-Event-ID, ou null se ele não for desta execução do servidor
+    private Long interpretarId(String id) {
+        if (id == null || id.isBlank()) {
+            return null;
+        }
+        String[] partes = id.trim().split("-");
+        if (partes.length != 2 || !partes[0].equals(String.valueOf(epoca))) {
+            return null;
+        }
+        try {
+            return Long.parseLong(partes[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static class Evento {
+        private static final Evento HEARTBEAT = new Evento(0, null, null, null, Set.of());
+
+        private final long sequencia;
+        private final String tipo;
+        private final Object dados;
+        private final Long somenteMarinheiro;
+        private final Set<Long> excetoMarinheiros;
+
+        private Evento(long sequencia, String tipo, Object dados, Long somenteMarinheiro, Set<Long> excetoMarinheiros) {
+            this.sequencia = sequencia;
+            this.tipo = tipo;
+            this.dados = dados;
+            this.somenteMarinheiro = somenteMarinheiro;
+            this.excetoMarinheiros = excetoMarinheiros;
+        }
+
+        private boolean destinadoA(Long marinheiroId) {
+            if (somenteMarinheiro != null) {
+                return somenteMarinheiro.equals(marinheiroId);
+            }
+            return !excetoMarinheiros.contains(marinheiroId);
+        }
+    }
+
+    private static class Conexao {
+        private final Long marinheiroId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Evento> fila;
+        private final AtomicBoolean enviando = new AtomicBoolean(false);
+
+        private Conexao(Long marinheiroId, SseEmitter emitter, int capacidade) {
+            this.marinheiroId = marinheiroId;
+            this.emitter = emitter;
+            this.fila = new ArrayBlockingQueue<>(capacidade);
+        }
+    }
+}
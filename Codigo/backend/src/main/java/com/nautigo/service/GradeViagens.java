@@ -0,0 +1,109 @@
+package com.nautigo.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Índice espacial em grade das viagens do quadro que têm ponto de embarque: cada viagem fica na célula
+// (TAMANHO_CELULA_GRAUS x TAMANHO_CELULA_GRAUS) que contém a origem. Uma busca por raio visita só as células
+// que cobrem o círculo, então o custo depende de quantas viagens há perto do marinheiro e não do total
+// de viagens abertas no mercado.
+// Escritas (eventos do quadro) são serializadas; leituras percorrem os conjuntos concorrentes sem bloqueio.
+class GradeViagens {
+
+    // Cerca de 5,5 km de latitude: um raio de 20 km visita algumas dezenas de células
+    static final double TAMANHO_CELULA_GRAUS = 0.05;
+
+    private static final double RAIO_TERRA_KM = 6371.0;
+    private static final double KM_POR_GRAU_LATITUDE = Math.PI * RAIO_TERRA_KM / 180.0;
+    private static final int LINHAS = (int) Math.ceil(180.0 / TAMANHO_CELULA_GRAUS);
+    private static final int COLUNAS = (int) Math.ceil(360.0 / TAMANHO_CELULA_GRAUS);
+
+    private final Map<Long, Set<Long>> viagensPorCelula = new ConcurrentHashMap<>();
+    private final Map<Long, Long> celulaPorViagem = new ConcurrentHashMap<>();
+
+    synchronized void adicionar(Long viagemId, double latitude, double longitude) {
+        long celula = celula(linha(latitude), coluna(longitude));
+        Long anterior = celulaPorViagem.put(viagemId, celula);
+        if (anterior != null) {
+            if (anterior == celula) {
+                return;
+            }
+            removerDaCelula(anterior, viagemId);
+        }
+        viagensPorCelula.computeIfAbsent(celula, c -> ConcurrentHashMap.newKeySet()).add(viagemId);
+    }
+
+    synchronized void remover(Long viagemId) {
+        Long celula = celulaPorViagem.remove(viagemId);
+        if (celula != null) {
+            removerDaCelula(celula, viagemId);
+        }
+    }
+
+    synchronized void limpar() {
+        viagensPorCelula.clear();
+        celulaPorViagem.clear();
+    }
+
+    // Entrega os ids das viagens nas células que cobrem o círculo; quem chama ainda filtra pela distância
+    void candidatos(double latitude, double longitude, double raioKm, Consumer<Long> destino) {
+        double deltaLatitude = raioKm / KM_POR_GRAU_LATITUDE;
+        int linhaMin = linha(Math.max(-90.0, latitude - deltaLatitude));
+        int linhaMax = linha(Math.min(90.0, latitude + deltaLatitude));
+
+        // A largura de um grau de longitude diminui com a latitude: usa a borda do círculo mais próxima do polo
+        double latitudeExtrema = Math.min(90.0, Math.abs(latitude) + deltaLatitude);
+        double kmPorGrauLongitude = KM_POR_GRAU_LATITUDE * Math.cos(Math.toRadians(latitudeExtrema));
+        double deltaLongitude = kmPorGrauLongitude > 0 ? raioKm / kmPorGrauLongitude : 360.0;
+        int colunaMin;
+        int colunaMax;
+        if (deltaLongitude >= 180.0) {
+            colunaMin = 0;
+            colunaMax = COLUNAS - 1;
+        } else {
+            // Sem normalizar: o intervalo pode atravessar o antimeridiano e é ajustado célula a célula
+            colunaMin = (int) Math.floor((longitude - deltaLongitude + 180.0) / TAMANHO_CELULA_GRAUS);
+            colunaMax = (int) Math.floor((longitude + deltaLongitude + 180.0) / TAMANHO_CELULA_GRAUS);
+        }
+
+        for (int linha = linhaMin; linha <= linhaMax; linha++) {
+            for (int coluna = colunaMin; coluna <= colunaMax; coluna++) {
+                Set<Long> viagens = viagensPorCelula.get(celula(linha, Math.floorMod(coluna, COLUNAS)));
+                if (viagens != null) {
+                    viagens.forEach(destino);
+                }
+            }
+        }
+    }
+
+    // Distância em km pela fórmula de haversine
+    static double distanciaKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+        return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private void removerDaCelula(long celula, Long viagemId) {
+        viagensPorCelula.computeIfPresent(celula, (c, viagens) -> {
+            viagens.remove(viagemId);
+            return viagens.isEmpty() ? null : viagens;
+        });
+    }
+
+    private static int linha(double latitude) {
+        return Math.min(LINHAS - 1, (int) Math.floor((latitude + 90.0) / TAMANHO_CELULA_GRAUS));
+    }
+
+    private static int coluna(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / TAMANHO_CELULA_GRAUS), COLUNAS);
+    }
+
+    private static long celula(int linha, int coluna) {
+        return (long) linha * COLUNAS + coluna;
+    }
+}
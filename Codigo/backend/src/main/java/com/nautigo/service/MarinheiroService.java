@@ -1,9 +1,12 @@
 package com.nautigo.service;
 
+import com.nautigo.config.LeituraReplica;
 import com.nautigo.dto.MarinheiroResponse;
 import com.nautigo.entity.Marinheiro;
+import com.nautigo.event.MarinheiroAprovacaoAlteradaEvent;
 import com.nautigo.repository.MarinheiroRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,7 +18,9 @@ import java.util.stream.Collectors;
 public class MarinheiroService {
     
     private final MarinheiroRepository marinheiroRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
+    @LeituraReplica
     public List<MarinheiroResponse> listarPendentes() {
         return marinheiroRepository.findByStatusAprovacao(Marinheiro.StatusAprovacao.PENDENTE)
                 .stream()
@@ -29,6 +34,7 @@ public class MarinheiroService {
                 .orElseThrow(() -> new RuntimeException("Marinheiro não encontrado"));
         marinheiro.setStatusAprovacao(Marinheiro.StatusAprovacao.APROVADO);
         marinheiroRepository.save(marinheiro);
+        eventPublisher.publishEvent(new MarinheiroAprovacaoAlteradaEvent(id));
     }
     
     @Transactional
@@ -38,10 +44,11 @@ public class MarinheiroService {
         marinheiro.setStatusAprovacao(Marinheiro.StatusAprovacao.REJEITADO);
         marinheiro.setObservacoes(motivo);
         marinheiroRepository.save(marinheiro);
+        eventPublisher.publishEvent(new MarinheiroAprovacaoAlteradaEvent(id));
     }
     
     public MarinheiroResponse buscarPorId(Long id) {
-        Marinheiro marinheiro = marinheiroRepository.findById(id)
+        Marinheiro marinheiro = marinheiroRepository.findComUsuarioById(id)
                 .orElseThrow(() -> new RuntimeException("Marinheiro não encontrado"));
         return toResponse(marinheiro);
     }
@@ -0,0 +1,61 @@
+package com.nautigo.service;
+
+import com.nautigo.entity.Viagem;
+import com.nautigo.repository.ViagemRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Gauges com a quantidade de viagens em cada StatusViagem (nautigo.viagens.status{status=...}).
+// Uma única consulta agrupada alimenta todos os gauges e o resultado é reaproveitado por alguns
+// segundos, então cada coleta do Prometheus custa no máximo uma ida ao banco.
+@Component
+@RequiredArgsConstructor
+public class MetricasViagens implements MeterBinder {
+
+    private final ViagemRepository viagemRepository;
+
+    @Value("${nautigo.metricas.viagens-por-status.validade-ms:10000}")
+    private long validadeMs;
+
+    // A consulta roda sob o lock: com synchronized, uma thread virtual esperando o banco prenderia a
+    // thread de plataforma que a carrega
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Viagem.StatusViagem, Long> contagem = new EnumMap<>(Viagem.StatusViagem.class);
+    private long atualizadoEm;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Viagem.StatusViagem status : Viagem.StatusViagem.values()) {
+            Gauge.builder("nautigo.viagens.status", this, metricas -> metricas.quantidade(status))
+                    .description("Quantidade de viagens por status")
+                    .tag("status", status.name())
+                    .register(registry);
+        }
+    }
+
+    private double quantidade(Viagem.StatusViagem status) {
+        lock.lock();
+        try {
+            long agora = System.currentTimeMillis();
+            if (agora - atualizadoEm > validadeMs) {
+                Map<Viagem.StatusViagem, Long> novaContagem = new EnumMap<>(Viagem.StatusViagem.class);
+                for (Object[] linha : viagemRepository.contarPorStatus()) {
+                    novaContagem.put((Viagem.StatusViagem) linha[0], (Long) linha[1]);
+                }
+                contagem = novaContagem;
+                atualizadoEm = agora;
+            }
+            return contagem.getOrDefault(status, 0L);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
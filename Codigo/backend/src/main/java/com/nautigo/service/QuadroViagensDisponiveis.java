@@ -0,0 +1,336 @@
+package com.nautigo.service;
+
+import com.nautigo.dto.ViagemResponse;
+import com.nautigo.entity.Viagem;
+import com.nautigo.event.LembreteViagemEvent;
+import com.nautigo.event.ViagemAlteradaEvent;
+import com.nautigo.event.ViagemLiberadaEvent;
+import com.nautigo.event.ViagemRecusadaEvent;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice em memória das viagens PENDENTE sem marinheiro (o "quadro" de viagens disponíveis),
+// com um bitmap compacto das viagens recusadas por cada marinheiro (e o índice inverso, por viagem).
+// É mantido pelos eventos das transições do ViagemService (após o commit) e reconstruído do banco
+// na inicialização, então a listagem de viagens disponíveis não acessa o banco.
+// Cada mudança no quadro também é repassada ao FeedViagensDisponiveis (stream SSE dos marinheiros).
+// Viagens com ponto de embarque também ficam na GradeViagens, para a busca das mais próximas de um marinheiro.
+// Viagens agendadas ficam fora do quadro até a AgendaViagens liberá-las (antecedência configurável da saída).
+@Component
+@RequiredArgsConstructor
+public class QuadroViagensDisponiveis {
+
+    private final FeedViagensDisponiveis feed;
+    private final AgendaViagens agendaViagens;
+
+    // Ordenado por id decrescente: ids são gerados em ordem de criação, então equivale a dataCriacao DESC
+    private final ConcurrentSkipListMap<Long, ViagemResponse> abertas =
+            new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+
+    private final Map<Long, Roaring64Bitmap> recusasPorMarinheiro = new ConcurrentHashMap<>();
+
+    // Índice inverso das recusas (viagem -> marinheiros que a recusaram), para publicar e esquecer as recusas
+    // de uma viagem sem percorrer o bitmap de todos os marinheiros
+    private final Map<Long, Set<Long>> recusasPorViagem = new ConcurrentHashMap<>();
+
+    private final GradeViagens grade = new GradeViagens();
+
+    // Viagens agendadas PENDENTE sem marinheiro cuja liberação ainda não chegou
+    private final Map<Long, ViagemResponse> aguardandoLiberacao = new ConcurrentHashMap<>();
+
+    // Versão (dataAtualizacao) do último estado aplicado de cada viagem que ainda pode estar no quadro
+    // (PENDENTE ou em negociação). Os eventos chegam de threads diferentes, em qualquer ordem: um estado que
+    // não é mais novo que o aplicado é descartado, e a verificação e a aplicação de uma viagem acontecem dentro
+    // do compute da entrada dela, uma de cada vez.
+    private final Map<Long, LocalDateTime> versoes = new ConcurrentHashMap<>();
+
+    // Viagens que seguiram adiante (aceita, cancelada, expirada...) e não voltam mais ao quadro: qualquer evento
+    // atrasado delas é descartado. Ids sequenciais, então o bitmap fica pequeno mesmo com todo o histórico.
+    private final Roaring64Bitmap saiuDoQuadro = new Roaring64Bitmap();
+
+    // Os eventos aplicam alterações sob a leitura (em paralelo entre si); a reconstrução usa a escrita.
+    // Entre iniciarReconstrucao e reconstruir os eventos ficam em eventosDuranteReconstrucao e são aplicados
+    // depois do conteúdo lido do banco: uma transição com commit durante a leitura não se perde.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private List<Runnable> eventosDuranteReconstrucao;
+
+    // Só viagens que cabem na embarcação (numeroPessoas <= capacidadePassageiros), como na listagem por cursor
+    public List<ViagemResponse> listar(Long marinheiroId, int capacidadePassageiros) {
+        Roaring64Bitmap recusadas = recusasPorMarinheiro.get(marinheiroId);
+        List<ViagemResponse> viagens = new ArrayList<>();
+        for (ViagemResponse viagem : abertas.values()) {
+            if (cabe(viagem, capacidadePassageiros)
+                    && (recusadas == null || !contem(recusadas, viagem.getId()))) {
+                viagens.add(viagem);
+            }
+        }
+        return viagens;
+    }
+
+    // Viagens com ponto de embarque a até raioKm da posição informada, da mais próxima para a mais distante
+    // (empate: mais recente primeiro). Viagens sem coordenadas só aparecem em listar.
+    public List<ViagemResponse> listarProximas(Long marinheiroId, int capacidadePassageiros,
+                                               double latitude, double longitude, double raioKm) {
+        Roaring64Bitmap recusadas = recusasPorMarinheiro.get(marinheiroId);
+        List<ViagemProxima> proximas = new ArrayList<>();
+        grade.candidatos(latitude, longitude, raioKm, viagemId -> {
+            ViagemResponse viagem = abertas.get(viagemId);
+            if (viagem == null || viagem.getOrigemLatitude() == null || !cabe(viagem, capacidadePassageiros)
+                    || (recusadas != null && contem(recusadas, viagemId))) {
+                return;
+            }
+            double distancia = GradeViagens.distanciaKm(latitude, longitude,
+                    viagem.getOrigemLatitude(), viagem.getOrigemLongitude());
+            if (distancia <= raioKm) {
+                proximas.add(new ViagemProxima(viagem, distancia));
+            }
+        });
+        proximas.sort(Comparator.comparingDouble(ViagemProxima::distanciaKm)
+                .thenComparing(proxima -> proxima.viagem().getId(), Comparator.reverseOrder()));
+
+        List<ViagemResponse> viagens = new ArrayList<>(proximas.size());
+        for (ViagemProxima proxima : proximas) {
+            viagens.add(proxima.viagem());
+        }
+        return viagens;
+    }
+
+    // Chamado antes de ler do banco o conteúdo passado a reconstruir. Espera os eventos em aplicação
+    // terminarem; os seguintes ficam guardados até o fim da reconstrução.
+    public void iniciarReconstrucao() {
+        lock.writeLock().lock();
+        try {
+            eventosDuranteReconstrucao = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Substitui todo o conteúdo do quadro (usado na inicialização) e aplica os eventos guardados desde
+    // iniciarReconstrucao. As versões e as viagens que saíram do quadro são mantidas: uma transição já aplicada
+    // continua valendo contra uma leitura mais antiga e contra eventos guardados fora de ordem.
+    public void reconstruir(Collection<ViagemResponse> viagensAbertas, List<Object[]> recusas) {
+        lock.writeLock().lock();
+        try {
+            abertas.clear();
+            grade.limpar();
+            aguardandoLiberacao.clear();
+            recusasPorMarinheiro.clear();
+            recusasPorViagem.clear();
+            for (ViagemResponse viagem : viagensAbertas) {
+                if (!registrarVersao(viagem)) {
+                    continue;
+                }
+                if (agendaViagens.aguardandoLiberacao(viagem)) {
+                    aguardandoLiberacao.put(viagem.getId(), viagem);
+                } else {
+                    abrir(viagem);
+                }
+            }
+            for (Object[] recusa : recusas) {
+                registrarRecusa((Long) recusa[0], (Long) recusa[1]);
+            }
+            if (eventosDuranteReconstrucao != null) {
+                eventosDuranteReconstrucao.forEach(Runnable::run);
+                eventosDuranteReconstrucao = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onViagemAlterada(ViagemAlteradaEvent event) {
+        aplicarOuGuardar(() -> aplicarAlteracao(event.getViagem()));
+    }
+
+    @TransactionalEventListener
+    public void onViagemRecusada(ViagemRecusadaEvent event) {
+        aplicarOuGuardar(() -> aplicarRecusa(event.getViagemId(), event.getMarinheiroId()));
+    }
+
+    // Hora de a viagem agendada entrar no quadro; ids que não estão aguardando (já abertas ou que deixaram
+    // de estar pendentes) são ignorados
+    @EventListener
+    public void onViagemLiberada(ViagemLiberadaEvent event) {
+        aplicarOuGuardar(() -> aplicarLiberacao(event.getViagemId()));
+    }
+
+    // O passageiro ainda não tem canal de push: o lembrete chega pelo stream só ao marinheiro
+    @EventListener
+    public void onLembreteViagem(LembreteViagemEvent event) {
+        if (event.getMarinheiroId() == null) {
+            return;
+        }
+        feed.publicarPara(event.getMarinheiroId(), FeedViagensDisponiveis.LEMBRETE_VIAGEM,
+                Map.of("viagemId", event.getViagemId(), "dataHoraAgendada", event.getDataHoraAgendada()));
+    }
+
+    private void aplicarOuGuardar(Runnable evento) {
+        lock.readLock().lock();
+        try {
+            if (eventosDuranteReconstrucao != null) {
+                synchronized (eventosDuranteReconstrucao) {
+                    eventosDuranteReconstrucao.add(evento);
+                }
+                return;
+            }
+            evento.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void aplicarAlteracao(ViagemResponse viagem) {
+        versoes.compute(viagem.getId(), (id, aplicada) -> {
+            if (saiu(id) || (aplicada != null && viagem.getDataAtualizacao() != null
+                    && !viagem.getDataAtualizacao().isAfter(aplicada))) {
+                return aplicada;
+            }
+            aplicarEstado(viagem);
+            if (podeVoltarAoQuadro(viagem.getStatus())) {
+                return viagem.getDataAtualizacao() != null ? viagem.getDataAtualizacao() : aplicada;
+            }
+            synchronized (saiuDoQuadro) {
+                saiuDoQuadro.addLong(id);
+            }
+            return null;
+        });
+    }
+
+    // Versão lida do banco na reconstrução; false se o quadro já conhece um estado mais novo da viagem
+    private boolean registrarVersao(ViagemResponse viagem) {
+        boolean[] nova = {false};
+        versoes.compute(viagem.getId(), (id, aplicada) -> {
+            if (saiu(id) || (aplicada != null && viagem.getDataAtualizacao() != null
+                    && viagem.getDataAtualizacao().isBefore(aplicada))) {
+                return aplicada;
+            }
+            nova[0] = true;
+            return viagem.getDataAtualizacao() != null ? viagem.getDataAtualizacao() : aplicada;
+        });
+        return nova[0];
+    }
+
+    private boolean saiu(Long viagemId) {
+        synchronized (saiuDoQuadro) {
+            return saiuDoQuadro.contains(viagemId);
+        }
+    }
+
+    private static boolean podeVoltarAoQuadro(Viagem.StatusViagem status) {
+        return status == Viagem.StatusViagem.PENDENTE || status == Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO;
+    }
+
+    private void aplicarEstado(ViagemResponse viagem) {
+        if (viagem.getStatus() == Viagem.StatusViagem.PENDENTE && viagem.getMarinheiroId() == null) {
+            if (!abertas.containsKey(viagem.getId()) && agendaViagens.aguardandoLiberacao(viagem)) {
+                aguardandoLiberacao.put(viagem.getId(), viagem);
+                return;
+            }
+            aguardandoLiberacao.remove(viagem.getId());
+            abrir(viagem);
+            // Quem já recusou a viagem (ex.: contra-proposta recusada pelo passageiro) não deve recebê-la de volta
+            feed.publicar(FeedViagensDisponiveis.VIAGEM_DISPONIVEL, viagem, marinheirosQueRecusaram(viagem.getId()));
+            return;
+        }
+        aguardandoLiberacao.remove(viagem.getId());
+        if (abertas.remove(viagem.getId()) != null) {
+            grade.remover(viagem.getId());
+            String tipo = viagem.getStatus() == Viagem.StatusViagem.CANCELADA
+                    || viagem.getStatus() == Viagem.StatusViagem.EXPIRADA
+                    ? FeedViagensDisponiveis.VIAGEM_CANCELADA
+                    : FeedViagensDisponiveis.VIAGEM_ACEITA;
+            feed.publicar(tipo, Map.of("viagemId", viagem.getId()), Set.of());
+        }
+        // Em negociação a viagem ainda pode voltar ao quadro (contra-proposta recusada), então as recusas
+        // só são descartadas quando ela segue adiante no ciclo de vida
+        if (viagem.getStatus() != Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO) {
+            esquecerRecusas(viagem.getId());
+        }
+    }
+
+    private void aplicarRecusa(Long viagemId, Long marinheiroId) {
+        registrarRecusa(viagemId, marinheiroId);
+        feed.publicarPara(marinheiroId, FeedViagensDisponiveis.VIAGEM_RECUSADA, Map.of("viagemId", viagemId));
+    }
+
+    private void aplicarLiberacao(Long viagemId) {
+        ViagemResponse viagem = aguardandoLiberacao.remove(viagemId);
+        if (viagem == null) {
+            return;
+        }
+        abrir(viagem);
+        feed.publicar(FeedViagensDisponiveis.VIAGEM_DISPONIVEL, viagem, marinheirosQueRecusaram(viagem.getId()));
+    }
+
+    private void abrir(ViagemResponse viagem) {
+        abertas.put(viagem.getId(), viagem);
+        if (viagem.getOrigemLatitude() != null && viagem.getOrigemLongitude() != null) {
+            grade.adicionar(viagem.getId(), viagem.getOrigemLatitude(), viagem.getOrigemLongitude());
+        } else {
+            grade.remover(viagem.getId());
+        }
+    }
+
+    private void registrarRecusa(Long viagemId, Long marinheiroId) {
+        // Recusa que chega depois de a viagem sair do quadro: não há mais o que esconder
+        if (saiu(viagemId)) {
+            return;
+        }
+        Roaring64Bitmap recusadas = recusasPorMarinheiro.computeIfAbsent(marinheiroId, id -> new Roaring64Bitmap());
+        synchronized (recusadas) {
+            recusadas.addLong(viagemId);
+        }
+        recusasPorViagem.computeIfAbsent(viagemId, id -> ConcurrentHashMap.newKeySet()).add(marinheiroId);
+    }
+
+    // A viagem não volta mais ao quadro: as recusas dela não são mais necessárias
+    private void esquecerRecusas(Long viagemId) {
+        Set<Long> marinheiros = recusasPorViagem.remove(viagemId);
+        if (marinheiros == null) {
+            return;
+        }
+        for (Long marinheiroId : marinheiros) {
+            Roaring64Bitmap recusadas = recusasPorMarinheiro.get(marinheiroId);
+            if (recusadas != null) {
+                synchronized (recusadas) {
+                    recusadas.removeLong(viagemId);
+                }
+            }
+        }
+    }
+
+    private Set<Long> marinheirosQueRecusaram(Long viagemId) {
+        Set<Long> marinheiros = recusasPorViagem.get(viagemId);
+        return marinheiros != null ? new HashSet<>(marinheiros) : Set.of();
+    }
+
+    private static boolean cabe(ViagemResponse viagem, int capacidadePassageiros) {
+        return viagem.getNumeroPessoas() != null && viagem.getNumeroPessoas() <= capacidadePassageiros;
+    }
+
+    private boolean contem(Roaring64Bitmap recusadas, Long viagemId) {
+        synchronized (recusadas) {
+            return recusadas.contains(viagemId);
+        }
+    }
+
+    private record ViagemProxima(ViagemResponse viagem, double distanciaKm) {
+    }
+}
@@ -0,0 +1,297 @@
+package com.nautigo.service;
+
+import com.nautigo.dto.PosicaoRequest;
+import com.nautigo.dto.PosicaoResponse;
+import com.nautigo.dto.ViagemResponse;
+import com.nautigo.entity.PosicaoViagem;
+import com.nautigo.entity.Viagem;
+import com.nautigo.event.ViagemAlteradaEvent;
+import com.nautigo.repository.EstadoViagem;
+import com.nautigo.repository.PosicaoViagemRepository;
+import com.nautigo.repository.ViagemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Rastreamento GPS das viagens EM_ANDAMENTO. Cada posição recebida vai para o buffer circular da viagem
+// (resolução completa, para quem acompanha ao vivo) sem acessar o banco; só uma parte delas (no máximo uma
+// por intervalo mínimo, ou quando a embarcação se desloca mais que a distância mínima) entra na fila de
+// gravação, que é descarregada periodicamente em INSERTs em lote numa única transação.
+// As viagens rastreadas acompanham os eventos das transições (após o commit) e são recarregadas do banco
+// na inicialização.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RastreamentoViagens {
+
+    private static final String INSERT_POSICAO = "INSERT INTO posicoes_viagens " +
+            "(viagem_id, latitude, longitude, velocidade_nos, rumo_graus, registrada_em) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final ViagemRepository viagemRepository;
+    private final PosicaoViagemRepository posicaoViagemRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<Long, ViagemRastreada> emAndamento = new ConcurrentHashMap<>();
+    private final AtomicLong descartadas = new AtomicLong();
+    private BlockingQueue<PosicaoResponse> pendentes;
+    private TransactionTemplate transacao;
+
+    @Value("${nautigo.rastreamento.buffer-por-viagem:360}")
+    private int capacidadeBuffer;
+
+    @Value("${nautigo.rastreamento.gravacao.intervalo-minimo-ms:30000}")
+    private long intervaloMinimoMs;
+
+    @Value("${nautigo.rastreamento.gravacao.distancia-minima-m:100}")
+    private double distanciaMinimaMetros;
+
+    @Value("${nautigo.rastreamento.gravacao.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    @Value("${nautigo.rastreamento.gravacao.capacidade-fila:50000}")
+    private int capacidadeFila;
+
+    @PostConstruct
+    void iniciar() {
+        pendentes = new ArrayBlockingQueue<>(capacidadeFila);
+        transacao = new TransactionTemplate(transactionManager);
+    }
+
+    public void registrar(Long viagemId, Long marinheiroId, PosicaoRequest request) {
+        ViagemRastreada viagem = emAndamento.get(viagemId);
+        if (viagem == null) {
+            throw new RuntimeException("Apenas viagens em andamento recebem posições");
+        }
+        if (!viagem.marinheiroId.equals(marinheiroId)) {
+            throw new RuntimeException("Você não tem permissão para enviar posições desta viagem");
+        }
+
+        PosicaoResponse posicao = new PosicaoResponse(viagemId, request.getLatitude(), request.getLongitude(),
+                request.getVelocidadeNos(), request.getRumoGraus(), LocalDateTime.now());
+        viagem.buffer.adicionar(posicao);
+        if (viagem.deveGravar(posicao)) {
+            enfileirar(posicao);
+        }
+    }
+
+    // Última posição da viagem do passageiro: do buffer enquanto ela está em andamento, do banco depois
+    // (ou logo após um restart, antes de chegar uma posição nova)
+    public Optional<PosicaoResponse> ultimaPosicao(Long viagemId, Long passageiroId) {
+        ViagemRastreada viagem = emAndamento.get(viagemId);
+        if (viagem != null && viagem.passageiroId.equals(passageiroId)) {
+            PosicaoResponse ultima = viagem.buffer.ultima();
+            if (ultima != null) {
+                return Optional.of(ultima);
+            }
+        }
+        verificarPassageiro(viagemId, passageiroId);
+        return posicaoViagemRepository.findFirstByViagem_IdOrderByRegistradaEmDesc(viagemId).map(this::toResponse);
+    }
+
+    // Trajeto depois do instante informado: resolução completa (buffer) durante a viagem, as posições
+    // gravadas (rarefeitas) depois que ela termina. Durante a viagem, o trecho anterior à posição mais antiga
+    // do buffer (sobrescrita pelo buffer circular ou recebida antes de um restart) vem do banco.
+    public List<PosicaoResponse> listarPosicoes(Long viagemId, Long passageiroId, LocalDateTime desde) {
+        ViagemRastreada viagem = emAndamento.get(viagemId);
+        if (viagem != null && viagem.passageiroId.equals(passageiroId)) {
+            return trajetoEmAndamento(viagemId, viagem, desde);
+        }
+        verificarPassageiro(viagemId, passageiroId);
+        List<PosicaoViagem> gravadas = desde != null
+                ? posicaoViagemRepository.findByViagem_IdAndRegistradaEmAfterOrderByRegistradaEm(viagemId, desde)
+                : posicaoViagemRepository.findByViagem_IdOrderByRegistradaEm(viagemId);
+        return gravadas.stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    @TransactionalEventListener
+    public void onViagemAlterada(ViagemAlteradaEvent event) {
+        ViagemResponse viagem = event.getViagem();
+        if (viagem.getStatus() == Viagem.StatusViagem.EM_ANDAMENTO) {
+            emAndamento.putIfAbsent(viagem.getId(),
+                    new ViagemRastreada(viagem.getPassageiroId(), viagem.getMarinheiroId(), capacidadeBuffer, true));
+            return;
+        }
+        ViagemRastreada encerrada = emAndamento.remove(viagem.getId());
+        if (encerrada != null) {
+            // O último ponto do trajeto sempre vai para o banco, mesmo que a rarefação o tenha descartado
+            PosicaoResponse ultima = encerrada.buffer.ultima();
+            if (ultima != null && encerrada.marcarGravada(ultima)) {
+                enfileirar(ultima);
+            }
+        }
+    }
+
+    // Viagens que já estavam em andamento quando a aplicação subiu: as posições anteriores ao restart
+    // só estão no banco
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarViagensEmAndamento() {
+        for (EstadoViagem viagem : viagemRepository.listarEstadosComStatus(Viagem.StatusViagem.EM_ANDAMENTO)) {
+            emAndamento.putIfAbsent(viagem.getId(),
+                    new ViagemRastreada(viagem.getPassageiroId(), viagem.getMarinheiroId(), capacidadeBuffer, false));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${nautigo.rastreamento.gravacao.intervalo-ms:2000}")
+    public void gravarPendentes() {
+        long perdidas = descartadas.getAndSet(0);
+        if (perdidas > 0) {
+            log.warn("Fila de gravação de posições cheia: {} posições descartadas", perdidas);
+        }
+        List<PosicaoResponse> lote = new ArrayList<>(tamanhoLote);
+        while (pendentes.drainTo(lote, tamanhoLote) > 0) {
+            try {
+                gravar(lote);
+            } catch (RuntimeException e) {
+                log.error("Falha ao gravar lote de {} posições", lote.size(), e);
+            }
+            lote.clear();
+        }
+    }
+
+    @PreDestroy
+    void gravarAntesDeEncerrar() {
+        gravarPendentes();
+    }
+
+    private void gravar(List<PosicaoResponse> lote) {
+        // Um lote, uma transação (com reWriteBatchedInserts o driver ainda junta as linhas em INSERTs multi-valor)
+        transacao.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_POSICAO, lote, lote.size(), (ps, posicao) -> {
+            ps.setLong(1, posicao.getViagemId());
+            ps.setDouble(2, posicao.getLatitude());
+            ps.setDouble(3, posicao.getLongitude());
+            ps.setObject(4, posicao.getVelocidadeNos(), Types.DOUBLE);
+            ps.setObject(5, posicao.getRumoGraus(), Types.DOUBLE);
+            ps.setTimestamp(6, Timestamp.valueOf(posicao.getRegistradaEm()));
+        }));
+    }
+
+    private void enfileirar(PosicaoResponse posicao) {
+        if (!pendentes.offer(posicao)) {
+            descartadas.incrementAndGet();
+        }
+    }
+
+    private List<PosicaoResponse> trajetoEmAndamento(Long viagemId, ViagemRastreada viagem, LocalDateTime desde) {
+        // Cópia do buffer antes de olhar se ele está completo: uma sobrescrita depois da cópia só leva a
+        // uma consulta desnecessária, não a um buraco no trajeto
+        List<PosicaoResponse> noBuffer = viagem.buffer.desde(null);
+        LocalDateTime maisAntiga = noBuffer.isEmpty() ? null : noBuffer.get(0).getRegistradaEm();
+        boolean bufferCobre = viagem.bufferCompleto()
+                || (maisAntiga != null && desde != null && !maisAntiga.isAfter(desde));
+
+        List<PosicaoResponse> trajeto = new ArrayList<>();
+        if (!bufferCobre) {
+            gravadasAntesDoBuffer(viagemId, desde, maisAntiga).forEach(posicao -> trajeto.add(toResponse(posicao)));
+        }
+        for (PosicaoResponse posicao : noBuffer) {
+            if (desde == null || posicao.getRegistradaEm().isAfter(desde)) {
+                trajeto.add(posicao);
+            }
+        }
+        return trajeto;
+    }
+
+    // Posições gravadas depois de "desde" (todas, se for null) e antes da mais antiga do buffer (sem limite,
+    // se o buffer estiver vazio)
+    private List<PosicaoViagem> gravadasAntesDoBuffer(Long viagemId, LocalDateTime desde, LocalDateTime maisAntiga) {
+        if (maisAntiga == null) {
+            return desde != null
+                    ? posicaoViagemRepository.findByViagem_IdAndRegistradaEmAfterOrderByRegistradaEm(viagemId, desde)
+                    : posicaoViagemRepository.findByViagem_IdOrderByRegistradaEm(viagemId);
+        }
+        if (desde == null) {
+            return posicaoViagemRepository.findByViagem_IdAndRegistradaEmBeforeOrderByRegistradaEm(
+                    viagemId, maisAntiga);
+        }
+        return posicaoViagemRepository.findByViagem_IdAndRegistradaEmAfterAndRegistradaEmBeforeOrderByRegistradaEm(
+                viagemId, desde, maisAntiga);
+    }
+
+    private void verificarPassageiro(Long viagemId, Long passageiroId) {
+        EstadoViagem viagem = viagemRepository.findEstadoById(viagemId)
+                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
+        if (!viagem.getPassageiroId().equals(passageiroId)) {
+            throw new RuntimeException("Viagem não encontrada");
+        }
+    }
+
+    private PosicaoResponse toResponse(PosicaoViagem posicao) {
+        return new PosicaoResponse(
+                posicao.getViagem().getId(),
+                posicao.getLatitude(),
+                posicao.getLongitude(),
+                posicao.getVelocidadeNos(),
+                posicao.getRumoGraus(),
+                posicao.getRegistradaEm()
+        );
+    }
+
+    private class ViagemRastreada {
+        private final Long passageiroId;
+        private final Long marinheiroId;
+        private final BufferPosicoes buffer;
+        // Rastreada desde o início da viagem nesta instância (não recarregada na inicialização)
+        private final boolean desdeOInicio;
+        private PosicaoResponse ultimaGravada;
+
+        ViagemRastreada(Long passageiroId, Long marinheiroId, int capacidade, boolean desdeOInicio) {
+            this.passageiroId = passageiroId;
+            this.marinheiroId = marinheiroId;
+            this.buffer = new BufferPosicoes(capacidade);
+            this.desdeOInicio = desdeOInicio;
+        }
+
+        // O buffer tem todas as posições da viagem
+        boolean bufferCompleto() {
+            return desdeOInicio && !buffer.sobrescreveu();
+        }
+
+        // Rarefação do que vai para o banco: grava se passou o intervalo mínimo desde a última posição
+        // gravada ou se a embarcação se deslocou mais que a distância mínima
+        synchronized boolean deveGravar(PosicaoResponse posicao) {
+            if (ultimaGravada != null
+                    && Duration.between(ultimaGravada.getRegistradaEm(), posicao.getRegistradaEm()).toMillis() < intervaloMinimoMs
+                    && GradeViagens.distanciaKm(ultimaGravada.getLatitude(), ultimaGravada.getLongitude(),
+                            posicao.getLatitude(), posicao.getLongitude()) * 1000 < distanciaMinimaMetros) {
+                return false;
+            }
+            ultimaGravada = posicao;
+            return true;
+        }
+
+        synchronized boolean marcarGravada(PosicaoResponse posicao) {
+            if (posicao == ultimaGravada) {
+                return false;
+            }
+            ultimaGravada = posicao;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.nautigo.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Roda de temporização com hash (hashed timer wheel): o tempo é dividido em ticks de duracaoTickMs e cada
+// tarefa entra na posição (tick de disparo % quantidade de posições). Agendar e cancelar são O(1); uma única
+// thread avança um tick por vez e só percorre a posição atual, disparando as tarefas cujo tick já chegou
+// (as demais ficam para as próximas voltas). Não há uma thread nem uma consulta por tarefa agendada.
+// As tarefas rodam na própria thread da roda e devem ser rápidas (ex.: publicar um evento).
+@Slf4j
+class RodaTemporizacao {
+
+    private final long duracaoTickMs;
+    private final Set<Temporizador>[] posicoes;
+    private final long inicioMs;
+    private final Thread thread;
+    private volatile long tickAtual = 0;
+    private volatile boolean ativa = true;
+
+    @SuppressWarnings("unchecked")
+    RodaTemporizacao(String nome, long duracaoTickMs, int quantidadePosicoes) {
+        this.duracaoTickMs = duracaoTickMs;
+        this.posicoes = new Set[quantidadePosicoes];
+        for (int i = 0; i < quantidadePosicoes; i++) {
+            posicoes[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.inicioMs = System.currentTimeMillis();
+        this.thread = new Thread(this::girar, nome);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Agenda a tarefa para o instante informado (epoch em ms); instantes já passados disparam em até dois ticks.
+    // O mínimo de tickAtual + 2 evita a posição que a thread da roda pode estar percorrendo neste momento.
+    Temporizador agendar(long instanteMs, Runnable tarefa) {
+        long tick = Math.max(tickAtual + 2, Math.floorDiv(instanteMs - inicioMs + duracaoTickMs - 1, duracaoTickMs));
+        Temporizador temporizador = new Temporizador(tick, tarefa);
+        temporizador.posicao = posicoes[(int) (tick % posicoes.length)];
+        temporizador.posicao.add(temporizador);
+        return temporizador;
+    }
+
+    void parar() {
+        ativa = false;
+        thread.interrupt();
+    }
+
+    private void girar() {
+        while (ativa) {
+            long proximoTickMs = inicioMs + (tickAtual + 1) * duracaoTickMs;
+            long esperaMs = proximoTickMs - System.currentTimeMillis();
+            if (esperaMs > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(esperaMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            long tick = tickAtual + 1;
+            disparar(tick);
+            tickAtual = tick;
+        }
+    }
+
+    private void disparar(long tick) {
+        Iterator<Temporizador> iterator = posicoes[(int) (tick % posicoes.length)].iterator();
+        while (iterator.hasNext()) {
+            Temporizador temporizador = iterator.next();
+            if (temporizador.tick > tick) {
+                continue;
+            }
+            iterator.remove();
+            try {
+                temporizador.tarefa.run();
+            } catch (RuntimeException e) {
+                log.error("Falha em tarefa da roda de temporização", e);
+            }
+        }
+    }
+
+    static final class Temporizador {
+        private final long tick;
+        private final Runnable tarefa;
+        private Set<Temporizador> posicao;
+
+        private Temporizador(long tick, Runnable tarefa) {
+            this.tick = tick;
+            this.tarefa = tarefa;
+        }
+
+        // O(1): retira a tarefa da posição da roda; sem efeito se ela já disparou
+        void cancelar() {
+            posicao.remove(this);
+        }
+
+        // Ainda na roda: nem disparou nem foi cancelado
+        boolean pendente() {
+            return posicao.contains(this);
+        }
+    }
+}
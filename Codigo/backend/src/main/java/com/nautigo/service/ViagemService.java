@@ -1,26 +1,37 @@
 package com.nautigo.service;
 
+import com.nautigo.config.LeituraReplica;
+import com.nautigo.dto.CursorPaginatedResponse;
 import com.nautigo.dto.PaginatedResponse;
 import com.nautigo.dto.SolicitarViagemRequest;
 import com.nautigo.dto.ViagemResponse;
 import com.nautigo.entity.Marinheiro;
 import com.nautigo.entity.Passageiro;
-import com.nautigo.entity.Usuario;
 import com.nautigo.entity.Viagem;
 import com.nautigo.entity.ViagemRecusada;
-import com.nautigo.repository.AvaliacaoRepository;
+import com.nautigo.event.ViagemAlteradaEvent;
+import com.nautigo.event.ViagemRecusadaEvent;
+import com.nautigo.exception.ConflitoTransicaoViagemException;
+import com.nautigo.repository.EstadoViagem;
 import com.nautigo.repository.MarinheiroRepository;
 import com.nautigo.repository.PassageiroRepository;
-import com.nautigo.repository.UsuarioRepository;
 import com.nautigo.repository.ViagemRecusadaRepository;
 import com.nautigo.repository.ViagemRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,28 +39,42 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ViagemService {
     
+    // Timer de cada transição do ciclo de vida, com a tag "transicao" (percentis em application.properties)
+    public static final String TIMER_TRANSICOES = "nautigo.viagens.transicoes";
+    
+    // Busca de viagens próximas ao marinheiro (quadro de disponíveis)
+    public static final double RAIO_PADRAO_KM = 20.0;
+    public static final double RAIO_MAXIMO_KM = 200.0;
+    
     private final ViagemRepository viagemRepository;
     private final PassageiroRepository passageiroRepository;
     private final MarinheiroRepository marinheiroRepository;
-    private final UsuarioRepository usuarioRepository;
-    private final AvaliacaoRepository avaliacaoRepository;
     private final ViagemRecusadaRepository viagemRecusadaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final QuadroViagensDisponiveis quadroViagensDisponiveis;
+    private final AgendaViagens agendaViagens;
     
     @Transactional
+    @Timed(value = TIMER_TRANSICOES, extraTags = {"transicao", "solicitar"})
     public ViagemResponse solicitarViagem(Long passageiroId, SolicitarViagemRequest request) {
-        Passageiro passageiro = passageiroRepository.findById(passageiroId)
+        if ((request.getOrigemLatitude() == null) != (request.getOrigemLongitude() == null)) {
+            throw new RuntimeException("Informe latitude e longitude da origem juntas");
+        }
+        
+        // O usuário vem junto porque a resposta leva o nome e a nota do passageiro
+        Passageiro passageiro = passageiroRepository.findComUsuarioById(passageiroId)
                 .orElseThrow(() -> new RuntimeException("Passageiro não encontrado"));
         
         // Verificar se o passageiro já tem viagem ativa (não agendada)
         // Permitir múltiplas viagens apenas se todas forem agendadas
         if (request.getDataHoraAgendada() == null) {
-            List<Viagem> viagensAtivas = viagemRepository.findByPassageiroAndStatusInAndDataHoraAgendadaIsNull(
-                passageiro,
+            boolean possuiViagemAtiva = viagemRepository.existsByPassageiro_IdAndStatusInAndDataHoraAgendadaIsNull(
+                passageiroId,
                 List.of(Viagem.StatusViagem.PENDENTE, Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO, 
                         Viagem.StatusViagem.ACEITA, Viagem.StatusViagem.EM_ANDAMENTO)
             );
             
-            if (!viagensAtivas.isEmpty()) {
+            if (possuiViagemAtiva) {
                 throw new RuntimeException("Você já possui uma viagem ativa. Finalize ou cancele a viagem atual antes de solicitar uma nova.");
             }
         }
@@ -58,6 +83,8 @@ public class ViagemService {
         viagem.setPassageiro(passageiro);
         viagem.setOrigem(request.getOrigem());
         viagem.setDestino(request.getDestino());
+        viagem.setOrigemLatitude(request.getOrigemLatitude());
+        viagem.setOrigemLongitude(request.getOrigemLongitude());
         viagem.setObservacoes(request.getObservacoes());
         viagem.setDataHoraAgendada(request.getDataHoraAgendada());
         viagem.setMetodoPagamento(request.getMetodoPagamento());
@@ -68,38 +95,28 @@ public class ViagemService {
         
         viagem = viagemRepository.save(viagem);
         
-        return toResponse(viagem);
+        return publicarAlteracao(viagem);
     }
     
+    // Listagens usam as projeções do repositório: um SELECT por página (mais o COUNT na paginada),
+    // sem carregar entidades
+    @LeituraReplica
     public List<ViagemResponse> listarViagensDoPassageiro(Long passageiroId) {
-        Passageiro passageiro = passageiroRepository.findById(passageiroId)
-                .orElseThrow(() -> new RuntimeException("Passageiro não encontrado"));
-        
         // Filtrar viagens canceladas - não devem aparecer no histórico
-        return viagemRepository.findByPassageiroAndStatusNotOrderByDataCriacaoDesc(passageiro, Viagem.StatusViagem.CANCELADA)
-                .stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        return viagemRepository.listarDoPassageiro(passageiroId, Viagem.StatusViagem.CANCELADA);
     }
     
+    @LeituraReplica
     public PaginatedResponse<ViagemResponse> listarViagensDoPassageiroPaginado(Long passageiroId, int page, int size) {
-        Passageiro passageiro = passageiroRepository.findById(passageiroId)
-                .orElseThrow(() -> new RuntimeException("Passageiro não encontrado"));
-        
         Pageable pageable = PageRequest.of(page, size);
-        Page<Viagem> viagensPage = viagemRepository.findByPassageiroAndStatusNotOrderByDataCriacaoDesc(
-                passageiro, 
+        Page<ViagemResponse> viagensPage = viagemRepository.listarDoPassageiro(
+                passageiroId, 
                 Viagem.StatusViagem.CANCELADA, 
                 pageable
         );
         
-        List<ViagemResponse> content = viagensPage.getContent()
-                .stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
-        
         return new PaginatedResponse<>(
-                content,
+                viagensPage.getContent(),
                 viagensPage.getNumber(),
                 viagensPage.getSize(),
                 viagensPage.getTotalElements(),
@@ -109,54 +126,108 @@ public class ViagemService {
         );
     }
     
+    // Histórico do passageiro paginado por cursor (dataCriacao, id): sem COUNT e sem OFFSET
+    @LeituraReplica
+    public CursorPaginatedResponse<ViagemResponse> listarViagensDoPassageiroPorCursor(Long passageiroId, String cursor, int size) {
+        int tamanho = CursorPaginacao.limitarTamanho(size);
+        CursorPaginacao apos = CursorPaginacao.decodificar(cursor);
+        // Uma linha a mais indica se existe próxima página
+        Pageable limite = PageRequest.of(0, tamanho + 1);
+        List<ViagemResponse> viagens = apos == null
+                ? viagemRepository.findPrimeirasDoPassageiro(passageiroId, Viagem.StatusViagem.CANCELADA, limite)
+                : viagemRepository.findDoPassageiroApos(passageiroId, Viagem.StatusViagem.CANCELADA,
+                        apos.getDataCriacao(), apos.getId(), limite);
+        return paginaPorCursor(viagens, tamanho);
+    }
+    
     public List<ViagemResponse> listarViagensDisponiveis(Long marinheiroId) {
-        // Buscar viagens pendentes que ainda não foram recusadas por este marinheiro
-        List<Long> recusadasIds = viagemRecusadaRepository.findViagemIdsByMarinheiroId(marinheiroId);
-
-        List<Viagem> viagens;
-        if (recusadasIds == null || recusadasIds.isEmpty()) {
-            viagens = viagemRepository.findByStatusAndMarinheiroIsNullOrderByDataCriacaoDesc(Viagem.StatusViagem.PENDENTE);
-        } else {
-            viagens = viagemRepository.findByStatusAndMarinheiroIsNullAndIdNotInOrderByDataCriacaoDesc(
-                    Viagem.StatusViagem.PENDENTE,
-                    recusadasIds
-            );
+        // Viagens pendentes que ainda não foram recusadas por este marinheiro e cabem na embarcação dele,
+        // direto do quadro em memória
+        return quadroViagensDisponiveis.listar(marinheiroId, capacidadePassageiros(marinheiroId));
+    }
+    
+    // Capacidade da embarcação, da região "marinheiros" do cache de segundo nível (não muda após o cadastro)
+    private int capacidadePassageiros(Long marinheiroId) {
+        return marinheiroRepository.findById(marinheiroId)
+                .map(Marinheiro::getCapacidadePassageiros)
+                .orElse(0);
+    }
+    
+    // Quadro de disponíveis paginado por cursor e filtrado no banco (anti-join nas recusas do marinheiro).
+    // agendadas: null traz todas, true só as agendadas (já liberadas), false só as imediatas.
+    // Lê do primário: o cliente abre o stream a partir do último evento lido antes da listagem, e uma réplica
+    // atrasada devolveria viagens cuja saída do quadro ele não vai mais receber.
+    @Transactional(readOnly = true)
+    public CursorPaginatedResponse<ViagemResponse> listarViagensDisponiveisPorCursor(
+            Long marinheiroId, String cursor, int size,
+            BigDecimal valorMinimo, Integer numeroPessoasMaximo, Boolean agendadas) {
+        if (valorMinimo != null && valorMinimo.signum() < 0) {
+            throw new RuntimeException("O valor mínimo não pode ser negativo");
         }
-
-        return viagens.stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        if (numeroPessoasMaximo != null && numeroPessoasMaximo < 1) {
+            throw new RuntimeException("O número máximo de pessoas deve ser pelo menos 1");
+        }
+        int tamanho = CursorPaginacao.limitarTamanho(size);
+        CursorPaginacao apos = CursorPaginacao.decodificar(cursor);
+        boolean imediatas = !Boolean.TRUE.equals(agendadas);
+        boolean incluirAgendadas = !Boolean.FALSE.equals(agendadas);
+        LocalDateTime liberadasAte = agendaViagens.liberadasAte(LocalDateTime.now());
+        // Uma linha a mais indica se existe próxima página
+        Pageable limite = PageRequest.of(0, tamanho + 1);
+        List<ViagemResponse> viagens = apos == null
+                ? viagemRepository.findPrimeirasDisponiveis(marinheiroId, Viagem.StatusViagem.PENDENTE,
+                        valorMinimo, numeroPessoasMaximo, imediatas, incluirAgendadas, liberadasAte, limite)
+                : viagemRepository.findDisponiveisApos(marinheiroId, Viagem.StatusViagem.PENDENTE,
+                        valorMinimo, numeroPessoasMaximo, imediatas, incluirAgendadas, liberadasAte,
+                        apos.getDataCriacao(), apos.getId(), limite);
+        return paginaPorCursor(viagens, tamanho);
+    }
+    
+    // Viagens disponíveis com ponto de embarque a até raioKm da posição do marinheiro, mais próximas primeiro
+    public List<ViagemResponse> listarViagensDisponiveisProximas(Long marinheiroId, Double latitude, Double longitude, Double raioKm) {
+        if (latitude == null || longitude == null) {
+            throw new RuntimeException("Informe latitude e longitude juntas");
+        }
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new RuntimeException("Coordenadas inválidas");
+        }
+        double raio = raioKm != null ? raioKm : RAIO_PADRAO_KM;
+        if (raio <= 0 || raio > RAIO_MAXIMO_KM) {
+            throw new RuntimeException("O raio deve ser maior que zero e no máximo " + (int) RAIO_MAXIMO_KM + " km");
+        }
+        return quadroViagensDisponiveis.listarProximas(marinheiroId, capacidadePassageiros(marinheiroId),
+                latitude, longitude, raio);
+    }
+    
+    // Reconstrói o quadro de viagens disponíveis a partir do banco ao iniciar a aplicação. As transições
+    // que terminarem durante a leitura ficam guardadas no quadro e são aplicadas depois dela.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void carregarQuadroViagensDisponiveis() {
+        quadroViagensDisponiveis.iniciarReconstrucao();
+        List<ViagemResponse> abertas = viagemRepository.listarSemMarinheiroComStatus(Viagem.StatusViagem.PENDENTE);
+        List<Object[]> recusas = viagemRecusadaRepository.findRecusasDeViagensComStatus(
+                List.of(Viagem.StatusViagem.PENDENTE, Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO));
+        quadroViagensDisponiveis.reconstruir(abertas, recusas);
     }
     
+    @LeituraReplica
     public List<ViagemResponse> listarViagensDoMarinheiro(Long marinheiroId) {
-        Marinheiro marinheiro = marinheiroRepository.findById(marinheiroId)
-                .orElseThrow(() -> new RuntimeException("Marinheiro não encontrado"));
-        
         // Filtrar viagens canceladas - não devem aparecer no histórico
-        return viagemRepository.findByMarinheiroAndStatusNotOrderByDataCriacaoDesc(marinheiro, Viagem.StatusViagem.CANCELADA)
-                .stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+        return viagemRepository.listarDoMarinheiro(marinheiroId, Viagem.StatusViagem.CANCELADA);
     }
     
+    @LeituraReplica
     public PaginatedResponse<ViagemResponse> listarViagensDoMarinheiroPaginado(Long marinheiroId, int page, int size) {
-        Marinheiro marinheiro = marinheiroRepository.findById(marinheiroId)
-                .orElseThrow(() -> new RuntimeException("Marinheiro não encontrado"));
-        
         Pageable pageable = PageRequest.of(page, size);
-        Page<Viagem> viagensPage = viagemRepository.findByMarinheiroAndStatusNotOrderByDataCriacaoDesc(
-                marinheiro, 
+        Page<ViagemResponse> viagensPage = viagemRepository.listarDoMarinheiro(
+                marinheiroId, 
                 Viagem.StatusViagem.CANCELADA, 
                 pageable
         );
         
-        List<ViagemResponse> content = viagensPage.getContent()
-                .stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
-        
         return new PaginatedResponse<>(
-                content,
+                viagensPage.getContent(),
                 viagensPage.getNumber(),
                 viagensPage.getSize(),
                 viagensPage.getTotalElements(),
@@ -166,251 +237,375 @@ public class ViagemService {
         );
     }
     
+    // Histórico do marinheiro paginado por cursor (dataCriacao, id): sem COUNT e sem OFFSET
+    @LeituraReplica
+    public CursorPaginatedResponse<ViagemResponse> listarViagensDoMarinheiroPorCursor(Long marinheiroId, String cursor, int size) {
+        int tamanho = CursorPaginacao.limitarTamanho(size);
+        CursorPaginacao apos = CursorPaginacao.decodificar(cursor);
+        Pageable limite = PageRequest.of(0, tamanho + 1);
+        List<ViagemResponse> viagens = apos == null
+                ? viagemRepository.findPrimeirasDoMarinheiro(marinheiroId, Viagem.StatusViagem.CANCELADA, limite)
+                : viagemRepository.findDoMarinheiroApos(marinheiroId, Viagem.StatusViagem.CANCELADA,
+                        apos.getDataCriacao(), apos.getId(), limite);
+        return paginaPorCursor(viagens, tamanho);
+    }
+    
+    private CursorPaginatedResponse<ViagemResponse> paginaPorCursor(List<ViagemResponse> viagens, int tamanho) {
+        boolean ultima = viagens.size() <= tamanho;
+        List<ViagemResponse> pagina = ultima ? viagens : new ArrayList<>(viagens.subList(0, tamanho));
+        String proximoCursor = null;
+        if (!ultima) {
+            ViagemResponse ultimaDaPagina = pagina.get(pagina.size() - 1);
+            proximoCursor = CursorPaginacao.codificar(ultimaDaPagina.getDataCriacao(), ultimaDaPagina.getId());
+        }
+        return new CursorPaginatedResponse<>(pagina, tamanho, proximoCursor, ultima);
+    }
+    
     @Transactional
+    @Timed(value = TIMER_TRANSICOES, extraTags = {"transicao", "aceitar"})
     public ViagemResponse aceitarViagem(Long viagemId, Long marinheiroId) {
-        Viagem viagem = viagemRepository.findById(viagemId)
-                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
-        
-        if (viagem.getStatus() != Viagem.StatusViagem.PENDENTE) {
-            throw new RuntimeException("Viagem não está disponível para aceitação");
-        }
-        
-        if (viagem.getMarinheiro() != null) {
-            throw new RuntimeException("Viagem já foi aceita por outro marinheiro");
-        }
-        
-        Marinheiro marinheiro = marinheiroRepository.findById(marinheiroId)
-                .orElseThrow(() -> new RuntimeException("Marinheiro não encontrado"));
-        
-        if (marinheiro.getStatusAprovacao() != Marinheiro.StatusAprovacao.APROVADO) {
-            throw new RuntimeException("Marinheiro não está aprovado para aceitar viagens");
-        }
-        
-        viagem.setMarinheiro(marinheiro);
         // Aceitou diretamente o valor do passageiro
-        viagem.setValor(viagem.getValorPropostoPassageiro());
-        viagem.setValorContraPropostaMarinheiro(null);
-        viagem.setStatus(Viagem.StatusViagem.ACEITA);
+        int alteradas = viagemRepository.aceitarSeDisponivel(
+                viagemId,
+                marinheiroRepository.getReferenceById(marinheiroId),
+                Viagem.StatusViagem.PENDENTE,
+                Viagem.StatusViagem.ACEITA,
+                Marinheiro.StatusAprovacao.APROVADO,
+                Viagem.agoraComPrecisaoDoBanco()
+        );
         
-        viagem = viagemRepository.save(viagem);
+        if (alteradas == 0) {
+            EstadoViagem viagem = buscarEstado(viagemId);
+            
+            if (viagem.getStatus() != Viagem.StatusViagem.PENDENTE) {
+                throw new ConflitoTransicaoViagemException("Viagem não está disponível para aceitação");
+            }
+            
+            if (viagem.getMarinheiroId() != null) {
+                throw new ConflitoTransicaoViagemException("Viagem já foi aceita por outro marinheiro");
+            }
+            
+            if (buscarStatusAprovacao(marinheiroId) != Marinheiro.StatusAprovacao.APROVADO) {
+                throw new RuntimeException("Marinheiro não está aprovado para aceitar viagens");
+            }
+            
+            throw conflitoGenerico();
+        }
         
-        return toResponse(viagem);
+        return publicarAlteracao(buscarDetalhe(viagemId));
     }
 
     @Transactional
+    @Timed(value = TIMER_TRANSICOES, extraTags = {"transicao", "recusar"})
     public ViagemResponse recusarViagem(Long viagemId, Long marinheiroId) {
-        Viagem viagem = viagemRepository.findById(viagemId)
-                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
+        // Condicionada ao status como as transições: com a linha travada, um aceite ou contra-proposta
+        // concorrente não passa entre a conferência e a gravação da recusa
+        int travadas = viagemRepository.travarSeDisponivel(
+                viagemId,
+                marinheiroRepository.getReferenceById(marinheiroId),
+                Viagem.StatusViagem.PENDENTE,
+                Marinheiro.StatusAprovacao.APROVADO
+        );
 
-        if (viagem.getStatus() != Viagem.StatusViagem.PENDENTE) {
-            throw new RuntimeException("Apenas viagens pendentes podem ser recusadas");
-        }
+        if (travadas == 0) {
+            EstadoViagem viagem = buscarEstado(viagemId);
 
-        if (viagem.getMarinheiro() != null) {
-            throw new RuntimeException("Viagem já foi aceita por um marinheiro");
-        }
+            if (viagem.getStatus() != Viagem.StatusViagem.PENDENTE) {
+                throw new ConflitoTransicaoViagemException("Apenas viagens pendentes podem ser recusadas");
+            }
 
-        Marinheiro marinheiro = marinheiroRepository.findById(marinheiroId)
-                .orElseThrow(() -> new RuntimeException("Marinheiro não encontrado"));
+            if (viagem.getMarinheiroId() != null) {
+                throw new ConflitoTransicaoViagemException("Viagem já foi aceita por um marinheiro");
+            }
 
-        if (marinheiro.getStatusAprovacao() != Marinheiro.StatusAprovacao.APROVADO) {
-            throw new RuntimeException("Marinheiro não está aprovado para recusar viagens");
-        }
+            if (buscarStatusAprovacao(marinheiroId) != Marinheiro.StatusAprovacao.APROVADO) {
+                throw new RuntimeException("Marinheiro não está aprovado para recusar viagens");
+            }
 
-        // Se já houver registro de recusa, não cria outro
-        if (!viagemRecusadaRepository.existsByViagem_IdAndMarinheiro_Id(viagemId, marinheiroId)) {
-            ViagemRecusada recusa = new ViagemRecusada();
-            recusa.setViagem(viagem);
-            recusa.setMarinheiro(marinheiro);
-            viagemRecusadaRepository.save(recusa);
+            throw conflitoGenerico();
         }
 
+        registrarRecusa(viagemId, marinheiroId);
+        eventPublisher.publishEvent(new ViagemRecusadaEvent(viagemId, marinheiroId));
+
         // A viagem continua pendente para outros marinheiros, só deixa de aparecer para este
-        return toResponse(viagem);
+        return toResponse(buscarDetalhe(viagemId));
     }
 
     @Transactional
+    @Timed(value = TIMER_TRANSICOES, extraTags = {"transicao", "contra-proposta"})
     public ViagemResponse proporContraProposta(Long viagemId, Long marinheiroId, java.math.BigDecimal novoValor) {
-        Viagem viagem = viagemRepository.findById(viagemId)
-                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
-
-        if (viagem.getStatus() != Viagem.StatusViagem.PENDENTE) {
-            throw new RuntimeException("Apenas viagens pendentes podem receber contra-proposta");
+        if (novoValor == null || novoValor.compareTo(java.math.BigDecimal.ZERO) <= 0) {
+            throw new RuntimeException("Valor da contra-proposta deve ser maior que zero");
         }
 
-        if (viagem.getMarinheiro() != null && !viagem.getMarinheiro().getId().equals(marinheiroId)) {
-            throw new RuntimeException("Viagem já está em negociação com outro marinheiro");
-        }
+        int alteradas = viagemRepository.proporContraPropostaSeDisponivel(
+                viagemId,
+                marinheiroRepository.getReferenceById(marinheiroId),
+                novoValor,
+                Viagem.StatusViagem.PENDENTE,
+                Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO,
+                Marinheiro.StatusAprovacao.APROVADO,
+                Viagem.agoraComPrecisaoDoBanco()
+        );
 
-        Marinheiro marinheiro = marinheiroRepository.findById(marinheiroId)
-                .orElseThrow(() -> new RuntimeException("Marinheiro não encontrado"));
+        if (alteradas == 0) {
+            EstadoViagem viagem = buscarEstado(viagemId);
 
-        if (marinheiro.getStatusAprovacao() != Marinheiro.StatusAprovacao.APROVADO) {
-            throw new RuntimeException("Marinheiro não está aprovado para propor valores");
-        }
+            if (viagem.getStatus() != Viagem.StatusViagem.PENDENTE) {
+                throw new ConflitoTransicaoViagemException("Apenas viagens pendentes podem receber contra-proposta");
+            }
 
-        if (novoValor == null || novoValor.compareTo(java.math.BigDecimal.ZERO) <= 0) {
-            throw new RuntimeException("Valor da contra-proposta deve ser maior que zero");
-        }
+            if (viagem.getMarinheiroId() != null && !viagem.getMarinheiroId().equals(marinheiroId)) {
+                throw new ConflitoTransicaoViagemException("Viagem já está em negociação com outro marinheiro");
+            }
 
-        viagem.setMarinheiro(marinheiro);
-        viagem.setValorContraPropostaMarinheiro(novoValor);
-        viagem.setStatus(Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO);
+            if (buscarStatusAprovacao(marinheiroId) != Marinheiro.StatusAprovacao.APROVADO) {
+                throw new RuntimeException("Marinheiro não está aprovado para propor valores");
+            }
 
-        viagem = viagemRepository.save(viagem);
-        return toResponse(viagem);
+            throw conflitoGenerico();
+        }
+
+        return publicarAlteracao(buscarDetalhe(viagemId));
     }
 
     @Transactional
+    @Timed(value = TIMER_TRANSICOES, extraTags = {"transicao", "responder-contra-proposta"})
     public ViagemResponse responderContraProposta(Long viagemId, Long passageiroId, boolean aceitar) {
-        Viagem viagem = viagemRepository.findById(viagemId)
-                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
+        // A leitura é necessária para saber qual marinheiro fez a contra-proposta; a transição em si
+        // continua condicionada a esse marinheiro e ao status
+        EstadoViagem viagem = buscarEstado(viagemId);
 
-        if (viagem.getStatus() != Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO) {
-            throw new RuntimeException("Esta viagem não está aguardando resposta de contra-proposta");
+        if (!viagem.getPassageiroId().equals(passageiroId)) {
+            throw new RuntimeException("Você não tem permissão para responder esta contra-proposta");
         }
 
-        if (!viagem.getPassageiro().getId().equals(passageiroId)) {
-            throw new RuntimeException("Você não tem permissão para responder esta contra-proposta");
+        if (viagem.getStatus() != Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO) {
+            throw new ConflitoTransicaoViagemException("Esta viagem não está aguardando resposta de contra-proposta");
         }
 
-        if (viagem.getMarinheiro() == null || viagem.getValorContraPropostaMarinheiro() == null) {
+        if (viagem.getMarinheiroId() == null || viagem.getValorContraPropostaMarinheiro() == null) {
             throw new RuntimeException("Contra-proposta inválida");
         }
 
+        Marinheiro marinheiro = marinheiroRepository.getReferenceById(viagem.getMarinheiroId());
+        int alteradas;
         if (aceitar) {
-            // Passageiro aceitou o valor do marinheiro
-            viagem.setValor(viagem.getValorContraPropostaMarinheiro());
-            viagem.setStatus(Viagem.StatusViagem.ACEITA);
-            // Limpa o campo de contra-proposta
-            viagem.setValorContraPropostaMarinheiro(null);
+            // Passageiro aceitou o valor do marinheiro (a contra-proposta vira o valor final)
+            alteradas = viagemRepository.aceitarContraProposta(
+                    viagemId,
+                    marinheiro,
+                    Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO,
+                    Viagem.StatusViagem.ACEITA,
+                    Viagem.agoraComPrecisaoDoBanco()
+            );
         } else {
             // Passageiro recusou a contra-proposta: volta a ficar pendente sem marinheiro
-            // e registra recusa para este marinheiro (para não voltar a aparecer para ele)
-            if (!viagemRecusadaRepository.existsByViagem_IdAndMarinheiro_Id(viagem.getId(), viagem.getMarinheiro().getId())) {
-                ViagemRecusada recusa = new ViagemRecusada();
-                recusa.setViagem(viagem);
-                recusa.setMarinheiro(viagem.getMarinheiro());
-                viagemRecusadaRepository.save(recusa);
-            }
+            alteradas = viagemRepository.recusarContraProposta(
+                    viagemId,
+                    marinheiro,
+                    Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO,
+                    Viagem.StatusViagem.PENDENTE,
+                    Viagem.agoraComPrecisaoDoBanco()
+            );
+        }
 
-            viagem.setMarinheiro(null);
-            viagem.setValorContraPropostaMarinheiro(null);
-            viagem.setStatus(Viagem.StatusViagem.PENDENTE);
+        if (alteradas == 0) {
+            throw conflitoGenerico();
         }
 
-        viagem = viagemRepository.save(viagem);
-        return toResponse(viagem);
+        if (!aceitar) {
+            // Registra recusa para este marinheiro (para não voltar a aparecer para ele)
+            registrarRecusa(viagemId, marinheiro.getId());
+            eventPublisher.publishEvent(new ViagemRecusadaEvent(viagemId, marinheiro.getId()));
+        }
+
+        return publicarAlteracao(buscarDetalhe(viagemId));
     }
     
     @Transactional
+    @Timed(value = TIMER_TRANSICOES, extraTags = {"transicao", "cancelar"})
     public ViagemResponse cancelarViagem(Long viagemId, Long usuarioId) {
-        Viagem viagem = viagemRepository.findById(viagemId)
-                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
-        
-        Usuario usuario = usuarioRepository.findById(usuarioId)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
-        
-        // Verificar se o usuário tem permissão para cancelar
-        boolean podeCancelar = false;
-        if (viagem.getPassageiro().getUsuario().getId().equals(usuarioId)) {
-            podeCancelar = true;
-        } else if (viagem.getMarinheiro() != null && viagem.getMarinheiro().getUsuario().getId().equals(usuarioId)) {
-            podeCancelar = true;
-        }
+        int alteradas = viagemRepository.cancelarSePermitido(
+                viagemId,
+                usuarioId,
+                List.of(Viagem.StatusViagem.PENDENTE, Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO,
+                        Viagem.StatusViagem.ACEITA),
+                Viagem.StatusViagem.CANCELADA,
+                Viagem.agoraComPrecisaoDoBanco()
+        );
         
-        if (!podeCancelar) {
-            throw new RuntimeException("Você não tem permissão para cancelar esta viagem");
+        if (alteradas == 0) {
+            EstadoViagem viagem = buscarEstado(viagemId);
+            
+            // Verificar se o usuário tem permissão para cancelar
+            boolean podeCancelar = false;
+            if (viagem.getPassageiroUsuarioId().equals(usuarioId)) {
+                podeCancelar = true;
+            } else if (viagem.getMarinheiroId() != null && viagem.getMarinheiroUsuarioId().equals(usuarioId)) {
+                podeCancelar = true;
+            }
+            
+            if (!podeCancelar) {
+                throw new RuntimeException("Você não tem permissão para cancelar esta viagem");
+            }
+            
+            if (viagem.getStatus() == Viagem.StatusViagem.CONCLUIDA) {
+                throw new ConflitoTransicaoViagemException("Não é possível cancelar uma viagem já concluída");
+            }
+            
+            if (viagem.getStatus() == Viagem.StatusViagem.EM_ANDAMENTO) {
+                throw new ConflitoTransicaoViagemException("Não é possível cancelar uma viagem em andamento");
+            }
+            
+            if (viagem.getStatus() == Viagem.StatusViagem.CANCELADA) {
+                throw new ConflitoTransicaoViagemException("Esta viagem já foi cancelada");
+            }
+            
+            if (viagem.getStatus() == Viagem.StatusViagem.EXPIRADA) {
+                throw new ConflitoTransicaoViagemException("Esta viagem expirou");
+            }
+            
+            throw conflitoGenerico();
         }
         
-        if (viagem.getStatus() == Viagem.StatusViagem.CONCLUIDA) {
-            throw new RuntimeException("Não é possível cancelar uma viagem já concluída");
-        }
+        return publicarAlteracao(buscarDetalhe(viagemId));
+    }
+    
+    @Transactional
+    @Timed(value = TIMER_TRANSICOES, extraTags = {"transicao", "iniciar"})
+    public ViagemResponse iniciarViagem(Long viagemId, Long marinheiroId) {
+        int alteradas = viagemRepository.iniciarSeAceita(
+                viagemId,
+                marinheiroRepository.getReferenceById(marinheiroId),
+                Viagem.StatusViagem.ACEITA,
+                Viagem.StatusViagem.EM_ANDAMENTO,
+                Viagem.agoraComPrecisaoDoBanco()
+        );
         
-        if (viagem.getStatus() == Viagem.StatusViagem.EM_ANDAMENTO) {
-            throw new RuntimeException("Não é possível cancelar uma viagem em andamento");
+        if (alteradas == 0) {
+            EstadoViagem viagem = buscarEstado(viagemId);
+            
+            if (viagem.getMarinheiroId() == null || !viagem.getMarinheiroId().equals(marinheiroId)) {
+                throw new RuntimeException("Você não tem permissão para iniciar esta viagem");
+            }
+            
+            if (viagem.getStatus() != Viagem.StatusViagem.ACEITA) {
+                throw new ConflitoTransicaoViagemException("Apenas viagens aceitas podem ser iniciadas");
+            }
+            
+            throw conflitoGenerico();
         }
         
-        viagem.setStatus(Viagem.StatusViagem.CANCELADA);
-        viagem = viagemRepository.save(viagem);
-        
-        return toResponse(viagem);
+        return publicarAlteracao(buscarDetalhe(viagemId));
     }
     
     @Transactional
-    public ViagemResponse iniciarViagem(Long viagemId, Long marinheiroId) {
-        Viagem viagem = viagemRepository.findById(viagemId)
-                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
+    @Timed(value = TIMER_TRANSICOES, extraTags = {"transicao", "concluir"})
+    public ViagemResponse concluirViagem(Long viagemId, Long marinheiroId) {
+        int alteradas = viagemRepository.concluirSeEmAndamento(
+                viagemId,
+                marinheiroRepository.getReferenceById(marinheiroId),
+                Viagem.StatusViagem.EM_ANDAMENTO,
+                Viagem.StatusViagem.CONCLUIDA,
+                Viagem.agoraComPrecisaoDoBanco()
+        );
         
-        if (viagem.getMarinheiro() == null || !viagem.getMarinheiro().getId().equals(marinheiroId)) {
-            throw new RuntimeException("Você não tem permissão para iniciar esta viagem");
+        if (alteradas == 0) {
+            EstadoViagem viagem = buscarEstado(viagemId);
+            
+            if (viagem.getMarinheiroId() == null || !viagem.getMarinheiroId().equals(marinheiroId)) {
+                throw new RuntimeException("Você não tem permissão para concluir esta viagem");
+            }
+            
+            if (viagem.getStatus() != Viagem.StatusViagem.EM_ANDAMENTO) {
+                throw new ConflitoTransicaoViagemException("Apenas viagens em andamento podem ser concluídas");
+            }
+            
+            throw conflitoGenerico();
         }
         
-        if (viagem.getStatus() != Viagem.StatusViagem.ACEITA) {
-            throw new RuntimeException("Apenas viagens aceitas podem ser iniciadas");
-        }
+        return publicarAlteracao(buscarDetalhe(viagemId));
+    }
+    
+    public ViagemResponse buscarViagemDoPassageiro(Long viagemId, Long passageiroId) {
+        Viagem viagem = buscarDetalhe(viagemId);
         
-        viagem.setStatus(Viagem.StatusViagem.EM_ANDAMENTO);
-        viagem.setDataHoraIniciada(java.time.LocalDateTime.now());
-        viagem = viagemRepository.save(viagem);
+        if (!viagem.getPassageiro().getId().equals(passageiroId)) {
+            throw new RuntimeException("Viagem não encontrada");
+        }
         
         return toResponse(viagem);
     }
     
-    @Transactional
-    public ViagemResponse concluirViagem(Long viagemId, Long marinheiroId) {
-        Viagem viagem = viagemRepository.findById(viagemId)
-                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
+    public ViagemResponse buscarViagemDoMarinheiro(Long viagemId, Long marinheiroId) {
+        Viagem viagem = buscarDetalhe(viagemId);
         
         if (viagem.getMarinheiro() == null || !viagem.getMarinheiro().getId().equals(marinheiroId)) {
-            throw new RuntimeException("Você não tem permissão para concluir esta viagem");
+            throw new RuntimeException("Viagem não encontrada");
         }
         
-        if (viagem.getStatus() != Viagem.StatusViagem.EM_ANDAMENTO) {
-            throw new RuntimeException("Apenas viagens em andamento podem ser concluídas");
-        }
-        
-        viagem.setStatus(Viagem.StatusViagem.CONCLUIDA);
-        viagem.setDataHoraConcluida(java.time.LocalDateTime.now());
-        viagem = viagemRepository.save(viagem);
-        
         return toResponse(viagem);
     }
     
-    private ViagemResponse toResponse(Viagem viagem) {
-        // Calcular nota média do marinheiro (5.0 se não tiver avaliações)
-        Double notaMediaMarinheiro = null;
-        if (viagem.getMarinheiro() != null) {
-            Long qtdAvaliacoesMarinheiro = avaliacaoRepository.contarAvaliacoes(
-                    viagem.getMarinheiro().getUsuario()
-            );
-            if (qtdAvaliacoesMarinheiro == 0) {
-                notaMediaMarinheiro = 5.0;
-            } else {
-                notaMediaMarinheiro = avaliacaoRepository.calcularMediaAvaliacoes(
-                        viagem.getMarinheiro().getUsuario()
-                );
-                if (notaMediaMarinheiro == null) {
-                    notaMediaMarinheiro = 5.0;
-                }
-            }
+    // Viagem com passageiro, marinheiro e usuários carregados (grafo Viagem.detalhe), pronta para toResponse
+    private Viagem buscarDetalhe(Long viagemId) {
+        return viagemRepository.findDetalheById(viagemId)
+                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
+    }
+    
+    // Só as colunas que as transições verificam
+    private EstadoViagem buscarEstado(Long viagemId) {
+        return viagemRepository.findEstadoById(viagemId)
+                .orElseThrow(() -> new RuntimeException("Viagem não encontrada"));
+    }
+    
+    private Marinheiro.StatusAprovacao buscarStatusAprovacao(Long marinheiroId) {
+        return marinheiroRepository.findStatusAprovacaoById(marinheiroId)
+                .orElseThrow(() -> new RuntimeException("Marinheiro não encontrado"));
+    }
+    
+    // A transição condicional não alterou nenhuma linha, mas a viagem parece válida: outra operação
+    // concorrente mudou o estado entre o UPDATE e a releitura
+    // Chamado com a linha da viagem travada pela transição, então duas recusas da mesma viagem não se cruzam
+    // aqui; a restrição única (viagem, marinheiro) fica como garantia, e uma violação dela vira conflito (409)
+    private void registrarRecusa(Long viagemId, Long marinheiroId) {
+        // Se já houver registro de recusa, não cria outro
+        if (viagemRecusadaRepository.existsByViagem_IdAndMarinheiro_Id(viagemId, marinheiroId)) {
+            return;
         }
-        
-        // Calcular nota média do passageiro (5.0 se não tiver avaliações)
-        Long qtdAvaliacoesPassageiro = avaliacaoRepository.contarAvaliacoes(
-                viagem.getPassageiro().getUsuario()
-        );
-        Double notaMediaPassageiro;
-        if (qtdAvaliacoesPassageiro == 0) {
-            notaMediaPassageiro = 5.0;
-        } else {
-            notaMediaPassageiro = avaliacaoRepository.calcularMediaAvaliacoes(
-                    viagem.getPassageiro().getUsuario()
-            );
-            if (notaMediaPassageiro == null) {
-                notaMediaPassageiro = 5.0;
-            }
+        ViagemRecusada recusa = new ViagemRecusada();
+        recusa.setViagem(viagemRepository.getReferenceById(viagemId));
+        recusa.setMarinheiro(marinheiroRepository.getReferenceById(marinheiroId));
+        try {
+            viagemRecusadaRepository.saveAndFlush(recusa);
+        } catch (DataIntegrityViolationException e) {
+            throw conflitoGenerico();
         }
+    }
+    
+    private ConflitoTransicaoViagemException conflitoGenerico() {
+        return new ConflitoTransicaoViagemException(
+                "A viagem foi alterada por outra operação. Atualize os dados e tente novamente.");
+    }
+    
+    // Monta a resposta e avisa os interessados (acompanhamento, quadro, etc.) após o commit da transação
+    private ViagemResponse publicarAlteracao(Viagem viagem) {
+        // Flush para que o @PreUpdate atualize dataAtualizacao (versão) antes de montar a resposta
+        viagemRepository.flush();
+        ViagemResponse response = toResponse(viagem);
+        eventPublisher.publishEvent(new ViagemAlteradaEvent(response));
+        return response;
+    }
+    
+    // Visível no pacote para os benchmarks (src/jmh)
+    ViagemResponse toResponse(Viagem viagem) {
+        // Notas médias lidas dos agregados do usuário (5.0 se não tiver avaliações)
+        Double notaMediaMarinheiro = viagem.getMarinheiro() != null
+                ? viagem.getMarinheiro().getUsuario().calcularNotaMedia()
+                : null;
+        Double notaMediaPassageiro = viagem.getPassageiro().getUsuario().calcularNotaMedia();
         
         return new ViagemResponse(
                 viagem.getId(),
@@ -420,6 +615,8 @@ public class ViagemService {
                 viagem.getMarinheiro() != null ? viagem.getMarinheiro().getUsuario().getNome() : null,
                 viagem.getOrigem(),
                 viagem.getDestino(),
+                viagem.getOrigemLatitude(),
+                viagem.getOrigemLongitude(),
                 viagem.getObservacoes(),
                 viagem.getDataHoraSolicitada(),
                 viagem.getDataHoraAgendada(),
@@ -434,7 +631,8 @@ public class ViagemService {
                 viagem.getValor(),
                 viagem.getValorPropostoPassageiro(),
                 viagem.getValorContraPropostaMarinheiro(),
-                viagem.getDataCriacao()
+                viagem.getDataCriacao(),
+                viagem.getDataAtualizacao()
         );
     }
 }
@@ -0,0 +1,115 @@
+-- Esquema inicial do Nautigo.
+-- Bancos criados antes do Flyway (pelo ddl-auto=update + DatabaseMigration) recebem o baseline
+-- na versão 0 e também executam este script: por isso tudo aqui é idempotente e apenas completa
+-- o que ainda faltar nesses bancos.
+
+CREATE TABLE IF NOT EXISTS usuarios (
+    id BIGSERIAL PRIMARY KEY,
+    email VARCHAR(255) NOT NULL,
+    senha VARCHAR(255) NOT NULL,
+    nome VARCHAR(255) NOT NULL,
+    telefone VARCHAR(255) NOT NULL,
+    is_admin BOOLEAN NOT NULL,
+    ativo BOOLEAN NOT NULL,
+    soma_avaliacoes BIGINT NOT NULL DEFAULT 0,
+    quantidade_avaliacoes BIGINT NOT NULL DEFAULT 0,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6),
+    CONSTRAINT uk_usuarios_email UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS passageiros (
+    id BIGSERIAL PRIMARY KEY,
+    usuario_id BIGINT NOT NULL,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6),
+    CONSTRAINT uk_passageiros_usuario UNIQUE (usuario_id),
+    CONSTRAINT fk_passageiros_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios(id)
+);
+
+CREATE TABLE IF NOT EXISTS marinheiros (
+    id BIGSERIAL PRIMARY KEY,
+    usuario_id BIGINT NOT NULL,
+    numero_documento_marinha VARCHAR(255) NOT NULL,
+    nome_embarcacao VARCHAR(255) NOT NULL,
+    tipo_embarcacao VARCHAR(255) NOT NULL,
+    numero_registro_embarcacao VARCHAR(255) NOT NULL,
+    capacidade_passageiros INTEGER NOT NULL,
+    status_aprovacao VARCHAR(255) NOT NULL,
+    observacoes TEXT,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6),
+    CONSTRAINT uk_marinheiros_usuario UNIQUE (usuario_id),
+    CONSTRAINT fk_marinheiros_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios(id),
+    CONSTRAINT marinheiros_status_aprovacao_check CHECK (status_aprovacao IN ('PENDENTE','APROVADO','REJEITADO'))
+);
+
+CREATE TABLE IF NOT EXISTS viagens (
+    id BIGSERIAL PRIMARY KEY,
+    passageiro_id BIGINT NOT NULL,
+    marinheiro_id BIGINT,
+    origem VARCHAR(255) NOT NULL,
+    destino VARCHAR(255) NOT NULL,
+    observacoes TEXT,
+    data_hora_solicitada TIMESTAMP(6) NOT NULL,
+    data_hora_agendada TIMESTAMP(6),
+    data_hora_iniciada TIMESTAMP(6),
+    data_hora_concluida TIMESTAMP(6),
+    status VARCHAR(255) NOT NULL,
+    metodo_pagamento VARCHAR(255) NOT NULL,
+    numero_pessoas INTEGER NOT NULL DEFAULT 1,
+    valor NUMERIC(10,2),
+    valor_proposto_passageiro NUMERIC(10,2),
+    valor_contra_proposta_marinheiro NUMERIC(10,2),
+    versao BIGINT NOT NULL DEFAULT 0,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6),
+    CONSTRAINT fk_viagens_passageiro FOREIGN KEY (passageiro_id) REFERENCES passageiros(id),
+    CONSTRAINT fk_viagens_marinheiro FOREIGN KEY (marinheiro_id) REFERENCES marinheiros(id),
+    CONSTRAINT viagens_metodo_pagamento_check CHECK (metodo_pagamento IN ('DINHEIRO','PIX'))
+);
+
+CREATE TABLE IF NOT EXISTS avaliacoes (
+    id BIGSERIAL PRIMARY KEY,
+    viagem_id BIGINT NOT NULL,
+    avaliador_id BIGINT NOT NULL,
+    avaliado_id BIGINT NOT NULL,
+    nota INTEGER NOT NULL,
+    comentario TEXT,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    CONSTRAINT fk_avaliacoes_viagem FOREIGN KEY (viagem_id) REFERENCES viagens(id),
+    CONSTRAINT fk_avaliacoes_avaliador FOREIGN KEY (avaliador_id) REFERENCES usuarios(id),
+    CONSTRAINT fk_avaliacoes_avaliado FOREIGN KEY (avaliado_id) REFERENCES usuarios(id)
+);
+
+CREATE TABLE IF NOT EXISTS viagens_recusadas (
+    id BIGSERIAL PRIMARY KEY,
+    viagem_id BIGINT NOT NULL,
+    marinheiro_id BIGINT NOT NULL,
+    data_recusa TIMESTAMP(6) NOT NULL DEFAULT NOW(),
+    CONSTRAINT uk_viagens_recusadas_viagem_marinheiro UNIQUE (viagem_id, marinheiro_id),
+    CONSTRAINT fk_viagens_recusadas_viagem FOREIGN KEY (viagem_id) REFERENCES viagens(id),
+    CONSTRAINT fk_viagens_recusadas_marinheiro FOREIGN KEY (marinheiro_id) REFERENCES marinheiros(id)
+);
+
+-- Colunas que a antiga DatabaseMigration acrescentava a bancos mais antigos
+ALTER TABLE viagens ADD COLUMN IF NOT EXISTS numero_pessoas INTEGER NOT NULL DEFAULT 1;
+ALTER TABLE viagens ADD COLUMN IF NOT EXISTS valor_proposto_passageiro NUMERIC(10,2);
+ALTER TABLE viagens ADD COLUMN IF NOT EXISTS valor_contra_proposta_marinheiro NUMERIC(10,2);
+ALTER TABLE viagens ADD COLUMN IF NOT EXISTS versao BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE usuarios ADD COLUMN IF NOT EXISTS soma_avaliacoes BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE usuarios ADD COLUMN IF NOT EXISTS quantidade_avaliacoes BIGINT NOT NULL DEFAULT 0;
+
+-- Recalcular os agregados de avaliação (sem efeito em bancos novos ou já consistentes)
+UPDATE usuarios u SET
+    soma_avaliacoes = COALESCE((SELECT SUM(a.nota) FROM avaliacoes a WHERE a.avaliado_id = u.id), 0),
+    quantidade_avaliacoes = (SELECT COUNT(*) FROM avaliacoes a WHERE a.avaliado_id = u.id);
+
+-- Status da viagem, incluindo AGUARDANDO_APROVACAO_PASSAGEIRO
+ALTER TABLE viagens DROP CONSTRAINT IF EXISTS viagens_status_check;
+ALTER TABLE viagens ADD CONSTRAINT viagens_status_check
+    CHECK (status IN ('PENDENTE','AGUARDANDO_APROVACAO_PASSAGEIRO','ACEITA','EM_ANDAMENTO','CONCLUIDA','CANCELADA'));
+
+-- viagens_recusadas chegou a ser criada com id SERIAL; a entidade usa Long
+ALTER TABLE viagens_recusadas ALTER COLUMN id TYPE BIGINT;
+ALTER SEQUENCE IF EXISTS viagens_recusadas_id_seq AS BIGINT;
@@ -0,0 +1,26 @@
+-- Índices das consultas mais frequentes sobre viagens e avaliações
+
+-- Viagens disponíveis (status = PENDENTE e marinheiro_id IS NULL, ordenadas por data_criacao)
+CREATE INDEX IF NOT EXISTS idx_viagens_status_marinheiro_criacao
+    ON viagens (status, marinheiro_id, data_criacao);
+
+-- Viagens ativas do passageiro (status IN ...) e verificações por passageiro + status
+CREATE INDEX IF NOT EXISTS idx_viagens_passageiro_status_criacao
+    ON viagens (passageiro_id, status, data_criacao);
+
+-- Viagens do marinheiro por status (aceitas, em andamento)
+CREATE INDEX IF NOT EXISTS idx_viagens_marinheiro_status_criacao
+    ON viagens (marinheiro_id, status, data_criacao);
+
+-- Paginação por cursor (data_criacao, id) dos históricos; antes criados pela DatabaseMigration.
+-- O índice de avaliações começa por avaliado_id e também atende às buscas por avaliado.
+CREATE INDEX IF NOT EXISTS idx_viagens_passageiro_cursor
+    ON viagens (passageiro_id, data_criacao DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_viagens_marinheiro_cursor
+    ON viagens (marinheiro_id, data_criacao DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_avaliacoes_avaliado_cursor
+    ON avaliacoes (avaliado_id, data_criacao DESC, id DESC);
+
+-- Avaliação já feita por este avaliador nesta viagem
+CREATE INDEX IF NOT EXISTS idx_avaliacoes_viagem_avaliador
+    ON avaliacoes (viagem_id, avaliador_id);
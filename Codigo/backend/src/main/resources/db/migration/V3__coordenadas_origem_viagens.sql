@@ -0,0 +1,11 @@
+-- Coordenadas (opcionais) do ponto de embarque, usadas na busca de viagens próximas ao marinheiro.
+-- A busca é feita pelo índice em grade do quadro de viagens disponíveis (em memória), então não há
+-- índice espacial no banco.
+ALTER TABLE viagens ADD COLUMN IF NOT EXISTS origem_latitude DOUBLE PRECISION;
+ALTER TABLE viagens ADD COLUMN IF NOT EXISTS origem_longitude DOUBLE PRECISION;
+
+ALTER TABLE viagens DROP CONSTRAINT IF EXISTS viagens_origem_coordenadas_check;
+ALTER TABLE viagens ADD CONSTRAINT viagens_origem_coordenadas_check CHECK (
+    (origem_latitude IS NULL AND origem_longitude IS NULL)
+    OR (origem_latitude BETWEEN -90 AND 90 AND origem_longitude BETWEEN -180 AND 180)
+);
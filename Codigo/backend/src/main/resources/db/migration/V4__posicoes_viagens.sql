@@ -0,0 +1,16 @@
+-- Posições GPS das viagens em andamento. São gravadas em lote pelo RastreamentoViagens e já rarefeitas
+-- (a resolução completa fica só em memória, para quem acompanha a viagem ao vivo)
+CREATE TABLE IF NOT EXISTS posicoes_viagens (
+    id BIGSERIAL PRIMARY KEY,
+    viagem_id BIGINT NOT NULL,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    velocidade_nos DOUBLE PRECISION,
+    rumo_graus DOUBLE PRECISION,
+    registrada_em TIMESTAMP NOT NULL,
+    CONSTRAINT fk_posicoes_viagens_viagem FOREIGN KEY (viagem_id) REFERENCES viagens(id)
+);
+
+-- Trajeto e última posição de uma viagem
+CREATE INDEX IF NOT EXISTS idx_posicoes_viagens_viagem_registro
+    ON posicoes_viagens (viagem_id, registrada_em);
@@ -0,0 +1,17 @@
+-- Status EXPIRADA: viagens PENDENTE sem marinheiro ou AGUARDANDO_APROVACAO_PASSAGEIRO sem resposta
+-- além do prazo configurado, expiradas em lote pela ExpiracaoViagens
+ALTER TABLE viagens DROP CONSTRAINT IF EXISTS viagens_status_check;
+ALTER TABLE viagens ADD CONSTRAINT viagens_status_check
+    CHECK (status IN ('PENDENTE','AGUARDANDO_APROVACAO_PASSAGEIRO','ACEITA','EM_ANDAMENTO','CONCLUIDA','CANCELADA',
+                      'EXPIRADA'));
+
+-- O prazo conta a partir da última transição; linhas antigas sem data_atualizacao usam a criação
+UPDATE viagens SET data_atualizacao = data_criacao WHERE data_atualizacao IS NULL;
+
+-- Só as viagens que ainda podem expirar entram nos índices da varredura
+CREATE INDEX IF NOT EXISTS idx_viagens_expiracao_atualizacao
+    ON viagens (status, data_atualizacao)
+    WHERE status IN ('PENDENTE','AGUARDANDO_APROVACAO_PASSAGEIRO');
+CREATE INDEX IF NOT EXISTS idx_viagens_expiracao_agendada
+    ON viagens (status, data_hora_agendada)
+    WHERE status IN ('PENDENTE','AGUARDANDO_APROVACAO_PASSAGEIRO') AND data_hora_agendada IS NOT NULL;
@@ -0,0 +1,12 @@
+-- Respostas guardadas das requisições com Idempotency-Key (por usuário, método, caminho e chave).
+-- Servem de reserva ao cache em memória: reenvios depois de um restart ou em outra instância.
+-- Linhas mais antigas que o TTL são apagadas periodicamente pelo RespostasIdempotentes.
+CREATE TABLE IF NOT EXISTS respostas_idempotentes (
+    chave VARCHAR(400) PRIMARY KEY,
+    status_http INTEGER NOT NULL,
+    corpo TEXT,
+    criada_em TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_respostas_idempotentes_criada_em
+    ON respostas_idempotentes (criada_em);
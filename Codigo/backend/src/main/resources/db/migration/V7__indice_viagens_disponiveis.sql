@@ -0,0 +1,6 @@
+-- Quadro de viagens disponíveis paginado por cursor (data_criacao, id): só as viagens PENDENTE sem
+-- marinheiro entram no índice, então ele fica do tamanho do quadro, não do histórico de viagens.
+-- As recusas do marinheiro saem por NOT EXISTS na chave única (viagem_id, marinheiro_id) de viagens_recusadas.
+CREATE INDEX IF NOT EXISTS idx_viagens_disponiveis_cursor
+    ON viagens (data_criacao DESC, id DESC)
+    WHERE status = 'PENDENTE' AND marinheiro_id IS NULL;
@@ -0,0 +1,4 @@
+-- Hash (SHA-256) do corpo da requisição que gerou cada resposta idempotente: a mesma Idempotency-Key
+-- reenviada com outro corpo recebe 422 em vez da resposta guardada. Linhas anteriores ficam sem hash
+-- e continuam sendo repetidas sem comparação até expirarem.
+ALTER TABLE respostas_idempotentes ADD COLUMN IF NOT EXISTS hash_corpo VARCHAR(64);
@@ -0,0 +1,162 @@
+package com.nautigo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.nautigo.entity.Passageiro;
+import com.nautigo.entity.RespostaIdempotente;
+import com.nautigo.entity.Usuario;
+import com.nautigo.repository.PassageiroRepository;
+import com.nautigo.repository.RespostaIdempotenteRepository;
+import com.nautigo.repository.UsuarioRepository;
+import com.nautigo.security.JwtUtil;
+import com.nautigo.security.TipoUsuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Idempotency-Key no POST de solicitação de viagem: o reenvio com o mesmo corpo devolve a resposta guardada,
+// com outro corpo recebe 422. Com o cache em memória esvaziado, a resposta vem da tabela respostas_idempotentes
+// (como depois de um restart ou em outra instância).
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class IdempotenciaTest {
+
+    private static final String CORPO = "{\"origem\": \"Marina\", \"destino\": \"Ilha\", \"metodoPagamento\": \"PIX\", "
+            + "\"numeroPessoas\": 2, \"valorPropostoPassageiro\": 150}";
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private PassageiroRepository passageiroRepository;
+
+    @Autowired
+    private RespostasIdempotentes respostasIdempotentes;
+
+    @Autowired
+    private RespostaIdempotenteRepository respostaIdempotenteRepository;
+
+    private String token;
+
+    @BeforeEach
+    void criarPassageiro() {
+        Usuario usuario = new Usuario();
+        usuario.setEmail("idempotencia-" + UUID.randomUUID() + "@teste.nautigo");
+        usuario.setSenha("nao-usada");
+        usuario.setNome("Passageiro idempotência");
+        usuario.setTelefone("00000000000");
+        usuario = usuarioRepository.save(usuario);
+        Passageiro passageiro = new Passageiro();
+        passageiro.setUsuario(usuario);
+        passageiro = passageiroRepository.save(passageiro);
+        token = jwtUtil.generateToken(usuario.getEmail(), usuario.getId(), false, TipoUsuario.PASSAGEIRO,
+                passageiro.getId(), null);
+    }
+
+    @Test
+    void mesmoCorpoRepeteResposta() {
+        String chave = UUID.randomUUID().toString();
+        ResponseEntity<String> primeira = solicitar(chave, CORPO);
+        assertThat(primeira.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(primeira.getHeaders().getFirst(IdempotenciaInterceptor.HEADER_REPETIDA)).isNull();
+
+        ResponseEntity<String> repetida = solicitar(chave, CORPO);
+        assertThat(repetida.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(repetida.getHeaders().getFirst(IdempotenciaInterceptor.HEADER_REPETIDA)).isEqualTo("true");
+        assertThat(repetida.getBody()).isEqualTo(primeira.getBody());
+    }
+
+    @Test
+    void outroCorpoComMesmaChaveRecebe422() {
+        String chave = UUID.randomUUID().toString();
+        assertThat(solicitar(chave, CORPO).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        ResponseEntity<String> outra = solicitar(chave, CORPO.replace("Ilha", "Praia"));
+        assertThat(outra.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(outra.getHeaders().getFirst(IdempotenciaInterceptor.HEADER_REPETIDA)).isNull();
+        assertThat(outra.getBody()).contains("outro corpo");
+    }
+
+    @Test
+    void repeteRespostaGuardadaNoBanco() {
+        String chave = UUID.randomUUID().toString();
+        ResponseEntity<String> primeira = solicitar(chave, CORPO);
+        assertThat(primeira.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        esvaziarCache();
+
+        ResponseEntity<String> repetida = solicitar(chave, CORPO);
+        assertThat(repetida.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(repetida.getHeaders().getFirst(IdempotenciaInterceptor.HEADER_REPETIDA)).isEqualTo("true");
+        assertThat(repetida.getBody()).isEqualTo(primeira.getBody());
+
+        esvaziarCache();
+        assertThat(solicitar(chave, CORPO.replace("Ilha", "Praia")).getStatusCode())
+                .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void primeiraRespostaGuardadaPrevalece() {
+        String chave = "teste:" + UUID.randomUUID();
+        respostasIdempotentes.guardar(chave, 201, "{\"id\": 1}", "hash-1");
+        // Outra instância guardando a mesma chave depois: a chave primária recusa, sem erro para quem chamou
+        respostasIdempotentes.guardar(chave, 201, "{\"id\": 2}", "hash-2");
+
+        RespostaIdempotente gravada = respostaIdempotenteRepository.findById(chave).orElseThrow();
+        assertThat(gravada.getCorpo()).isEqualTo("{\"id\": 1}");
+        assertThat(gravada.getHashCorpo()).isEqualTo("hash-1");
+    }
+
+    @Test
+    void erro400NaoEGuardado() {
+        String chave = UUID.randomUUID().toString();
+        ResponseEntity<String> primeira = post("/api/passageiro/viagens/999999/cancelar", chave, "{}");
+        assertThat(primeira.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        // Executa de novo em vez de repetir a falha
+        ResponseEntity<String> segunda = post("/api/passageiro/viagens/999999/cancelar", chave, "{}");
+        assertThat(segunda.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(segunda.getHeaders().getFirst(IdempotenciaInterceptor.HEADER_REPETIDA)).isNull();
+    }
+
+    @Test
+    void corpoAcimaDoLimiteRecebe413() {
+        String grande = CORPO.replace("\"Marina\"", "\"" + "x".repeat(70_000) + "\"");
+        ResponseEntity<String> resposta = solicitar(UUID.randomUUID().toString(), grande);
+        assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void esvaziarCache() {
+        ((Cache<String, RespostaIdempotente>) ReflectionTestUtils.getField(respostasIdempotentes, "respostas"))
+                .invalidateAll();
+    }
+
+    private ResponseEntity<String> solicitar(String chave, String corpo) {
+        return post("/api/passageiro/viagens", chave, corpo);
+    }
+
+    private ResponseEntity<String> post(String url, String chave, String corpo) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(IdempotenciaInterceptor.HEADER_CHAVE, chave);
+        return rest.exchange(url, HttpMethod.POST, new HttpEntity<>(corpo, headers), String.class);
+    }
+}
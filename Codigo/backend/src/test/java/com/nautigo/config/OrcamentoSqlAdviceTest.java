@@ -0,0 +1,94 @@
+package com.nautigo.config;
+
+import com.nautigo.repository.UsuarioRepository;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Contagem real (StatementInspector do Hibernate) e o OrcamentoSqlAdvice da aplicação, com um handler próprio do
+// teste registrado só neste MockMvc. Por ser uma classe interna não estática, a varredura de componentes o
+// ignora: ele não entra no contexto da aplicação (nem no dos benchmarks, que também têm src/test no classpath)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class OrcamentoSqlAdviceTest {
+
+    @Autowired
+    private OrcamentoSqlAdvice orcamentoSqlAdvice;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void configurar() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new HandlerContagem())
+                .setControllerAdvice(orcamentoSqlAdvice)
+                .addFilters(new ContadorSqlFilter())
+                .build();
+    }
+
+    @Test
+    void publicaContagemDentroDoOrcamento() throws Exception {
+        mockMvc.perform(get("/teste/dentro-do-orcamento"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(OrcamentoSqlAdvice.HEADER_COMANDOS_SQL, "2"));
+    }
+
+    @Test
+    void falhaAcimaDoOrcamento() {
+        assertThatThrownBy(() -> mockMvc.perform(get("/teste/acima-do-orcamento")))
+                .isInstanceOf(ServletException.class)
+                .rootCause()
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("executou 2 comandos SQL (orçamento: 1)");
+    }
+
+    @Test
+    void semOrcamentoSoPublicaContagem() throws Exception {
+        String comandos = mockMvc.perform(get("/teste/sem-orcamento"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(OrcamentoSqlAdvice.HEADER_COMANDOS_SQL);
+        assertThat(comandos).isEqualTo("2");
+    }
+
+    // Cada chamada ao repositório é um SELECT (sem transação em volta, nada é reaproveitado entre elas)
+    @RestController
+    class HandlerContagem {
+
+        @GetMapping("/teste/dentro-do-orcamento")
+        @OrcamentoSql(2)
+        Map<String, Long> dentroDoOrcamento() {
+            return contarDuasVezes();
+        }
+
+        @GetMapping("/teste/acima-do-orcamento")
+        @OrcamentoSql(1)
+        Map<String, Long> acimaDoOrcamento() {
+            return contarDuasVezes();
+        }
+
+        @GetMapping("/teste/sem-orcamento")
+        Map<String, Long> semOrcamento() {
+            return contarDuasVezes();
+        }
+
+        private Map<String, Long> contarDuasVezes() {
+            usuarioRepository.count();
+            return Map.of("usuarios", usuarioRepository.count());
+        }
+    }
+}
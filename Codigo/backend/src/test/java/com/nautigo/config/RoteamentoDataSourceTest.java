@@ -0,0 +1,212 @@
+package com.nautigo.config;
+
+import com.nautigo.security.TipoUsuario;
+import com.nautigo.security.UsuarioAutenticado;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Roteamento do RoteamentoDataSource com dois bancos H2 no papel de primário e réplica, montados como no
+// ReplicasConfig (LazyConnectionDataSourceProxy e transações do Spring). A réplica ganha versões das funções de
+// recuperação do PostgreSQL usadas na verificação de atraso, controladas pelo teste (EstadoReplica).
+// O teste com instâncias reais do PostgreSQL (réplica em streaming) continua manual: ver INSTRUCOES_EXECUCAO.md.
+public class RoteamentoDataSourceTest {
+
+    private static final long ATRASO_MAXIMO_MS = 2000;
+    private static final long JANELA_LEITURA_PROPRIA_MS = 60_000;
+
+    private HikariDataSource primario;
+    private HikariDataSource replica;
+    private RoteamentoDataSource roteamento;
+    private MeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate escrita;
+    private TransactionTemplate leitura;
+
+    @BeforeEach
+    void configurar() {
+        EstadoReplica.emRecuperacao = true;
+        EstadoReplica.walPendente = false;
+        EstadoReplica.atrasoSegundos = 0;
+
+        primario = criarBanco("primario");
+        replica = criarBanco("replica");
+        JdbcTemplate naReplica = new JdbcTemplate(replica);
+        String classe = EstadoReplica.class.getName();
+        naReplica.execute("CREATE ALIAS pg_is_in_recovery FOR \"" + classe + ".emRecuperacao\"");
+        naReplica.execute("CREATE ALIAS pg_last_wal_receive_lsn FOR \"" + classe + ".lsnRecebido\"");
+        naReplica.execute("CREATE ALIAS pg_last_wal_replay_lsn FOR \"" + classe + ".lsnReproduzido\"");
+        naReplica.execute("CREATE ALIAS pg_last_xact_replay_timestamp FOR \"" + classe + ".ultimoCommitReproduzido\"");
+
+        meterRegistry = new SimpleMeterRegistry();
+        roteamento = new RoteamentoDataSource(primario, List.of(replica), ATRASO_MAXIMO_MS,
+                JANELA_LEITURA_PROPRIA_MS, meterRegistry);
+        roteamento.iniciar();
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(roteamento);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        escrita = new TransactionTemplate(transactionManager);
+        leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+    }
+
+    @AfterEach
+    void encerrar() {
+        SecurityContextHolder.clearContext();
+        roteamento.close();
+        primario.close();
+    }
+
+    @Test
+    void leituraReplicaVaiParaReplica() {
+        assertThat(lerComLeituraReplica()).isEqualTo("replica");
+        assertThat(leituras("replica")).isEqualTo(1);
+        assertThat(leituras("primario")).isZero();
+    }
+
+    @Test
+    void transacoesSemLeituraReplicaFicamNoPrimario() {
+        assertThat(origemNa(leitura)).isEqualTo("primario");
+        assertThat(origemNa(escrita)).isEqualTo("primario");
+        RoteamentoDataSource.LEITURA_REPLICA.set(Boolean.TRUE);
+        try {
+            // Sem readOnly, mesmo com a marca do @LeituraReplica
+            assertThat(origemNa(escrita)).isEqualTo("primario");
+        } finally {
+            RoteamentoDataSource.LEITURA_REPLICA.remove();
+        }
+        assertThat(leituras("replica")).isZero();
+    }
+
+    @Test
+    void replicaAtrasadaSaiDoRodizioEVolta() {
+        EstadoReplica.walPendente = true;
+        EstadoReplica.atrasoSegundos = 10;
+        roteamento.verificarAtraso();
+        assertThat(lerComLeituraReplica()).isEqualTo("primario");
+        assertThat(meterRegistry.get("nautigo.datasource.replica.atraso").gauge().value())
+                .isGreaterThan(ATRASO_MAXIMO_MS);
+
+        // Já reproduziu todo o WAL recebido: em dia, mesmo com o último commit reproduzido antigo
+        EstadoReplica.walPendente = false;
+        EstadoReplica.atrasoSegundos = 600;
+        roteamento.verificarAtraso();
+        assertThat(lerComLeituraReplica()).isEqualTo("replica");
+    }
+
+    @Test
+    void replicaForaDoArVaiParaPrimario() {
+        replica.close();
+        assertThat(lerComLeituraReplica()).isEqualTo("primario");
+        assertThat(leituras("primario")).isEqualTo(1);
+
+        // A verificação seguinte também não consegue conectar: continua fora do rodízio
+        roteamento.verificarAtraso();
+        assertThat(lerComLeituraReplica()).isEqualTo("primario");
+        assertThat(meterRegistry.get("nautigo.datasource.replica.atraso").gauge().value()).isNaN();
+    }
+
+    @Test
+    void usuarioLeAsPropriasEscritasNoPrimario() {
+        autenticar(1L);
+        assertThat(lerComLeituraReplica()).isEqualTo("replica");
+
+        escrita.executeWithoutResult(status -> jdbcTemplate.update("UPDATE origem SET nome = nome"));
+        assertThat(lerComLeituraReplica()).isEqualTo("primario");
+
+        // Outro usuário continua lendo da réplica
+        autenticar(2L);
+        assertThat(lerComLeituraReplica()).isEqualTo("replica");
+    }
+
+    @Test
+    void escritaDesfeitaNaoDesviaLeituras() {
+        autenticar(1L);
+        escrita.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE origem SET nome = nome");
+            status.setRollbackOnly();
+        });
+        assertThat(lerComLeituraReplica()).isEqualTo("replica");
+    }
+
+    private String lerComLeituraReplica() {
+        RoteamentoDataSource.LEITURA_REPLICA.set(Boolean.TRUE);
+        try {
+            return origemNa(leitura);
+        } finally {
+            RoteamentoDataSource.LEITURA_REPLICA.remove();
+        }
+    }
+
+    private String origemNa(TransactionTemplate transacao) {
+        return transacao.execute(status -> jdbcTemplate.queryForObject("SELECT nome FROM origem", String.class));
+    }
+
+    private double leituras(String destino) {
+        return meterRegistry.get("nautigo.datasource.leituras").tag("destino", destino).counter().count();
+    }
+
+    private static void autenticar(Long usuarioId) {
+        UsuarioAutenticado usuario = new UsuarioAutenticado(usuarioId, "usuario" + usuarioId + "@teste.nautigo",
+                false, TipoUsuario.PASSAGEIRO, usuarioId, null, null, Instant.now().plusSeconds(3600));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(usuario, null, List.of()));
+    }
+
+    // Cada banco tem uma tabela com o próprio nome, para o teste saber de onde veio a leitura
+    private static HikariDataSource criarBanco(String nome) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + nome + "-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPoolName(nome);
+        dataSource.setMaximumPoolSize(2);
+        dataSource.setConnectionTimeout(250);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE origem (nome VARCHAR(20))");
+        jdbc.update("INSERT INTO origem VALUES (?)", nome);
+        return dataSource;
+    }
+
+    // Estado de recuperação informado pela réplica H2: walPendente indica WAL recebido e ainda não reproduzido,
+    // atrasoSegundos a idade do último commit reproduzido
+    public static final class EstadoReplica {
+
+        static volatile boolean emRecuperacao;
+        static volatile boolean walPendente;
+        static volatile long atrasoSegundos;
+
+        public static boolean emRecuperacao() {
+            return emRecuperacao;
+        }
+
+        public static long lsnRecebido() {
+            return walPendente ? 2 : 1;
+        }
+
+        public static long lsnReproduzido() {
+            return 1;
+        }
+
+        public static Timestamp ultimoCommitReproduzido() {
+            return Timestamp.valueOf(LocalDateTime.now().minusSeconds(atrasoSegundos));
+        }
+    }
+}
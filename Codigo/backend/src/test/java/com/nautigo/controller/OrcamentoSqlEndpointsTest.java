@@ -0,0 +1,248 @@
+package com.nautigo.controller;
+
+import com.nautigo.config.OrcamentoSqlAdvice;
+import com.nautigo.dto.SolicitarViagemRequest;
+import com.nautigo.entity.Avaliacao;
+import com.nautigo.entity.Marinheiro;
+import com.nautigo.entity.Passageiro;
+import com.nautigo.entity.Usuario;
+import com.nautigo.entity.Viagem;
+import com.nautigo.repository.AvaliacaoRepository;
+import com.nautigo.repository.MarinheiroRepository;
+import com.nautigo.repository.PassageiroRepository;
+import com.nautigo.repository.UsuarioRepository;
+import com.nautigo.repository.ViagemRepository;
+import com.nautigo.security.JwtUtil;
+import com.nautigo.security.TipoUsuario;
+import com.nautigo.service.ViagemService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Chama cada endpoint com @OrcamentoSql e confere o header X-Sql-Statements. Com nautigo.sql.orcamento.falhar=true
+// (src/test/resources/config) um endpoint acima do orçamento responde 500. Os dados têm vários marinheiros,
+// avaliadores e pendentes distintos, para que um N+1 apareça na contagem, e o cache de segundo nível é
+// esvaziado antes de cada teste (pior caso: nenhuma entidade em cache).
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrcamentoSqlEndpointsTest {
+
+    private static final AtomicLong SEQUENCIA = new AtomicLong();
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private PassageiroRepository passageiroRepository;
+
+    @Autowired
+    private MarinheiroRepository marinheiroRepository;
+
+    @Autowired
+    private ViagemRepository viagemRepository;
+
+    @Autowired
+    private AvaliacaoRepository avaliacaoRepository;
+
+    @Autowired
+    private ViagemService viagemService;
+
+    private Passageiro passageiro;
+    private Marinheiro marinheiro;
+    private Long viagemEmAndamentoId;
+    private String tokenPassageiro;
+    private String tokenMarinheiro;
+    private String tokenAdmin;
+
+    @BeforeAll
+    void criarDados() {
+        passageiro = criarPassageiro();
+        List<Marinheiro> marinheiros = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            marinheiros.add(criarMarinheiro(Marinheiro.StatusAprovacao.APROVADO));
+            criarMarinheiro(Marinheiro.StatusAprovacao.PENDENTE);
+        }
+        marinheiro = marinheiros.get(0);
+
+        // Histórico do passageiro com marinheiros diferentes, cada um avaliando o passageiro
+        for (Marinheiro outro : marinheiros) {
+            for (int i = 0; i < 2; i++) {
+                Viagem viagem = criarViagemConcluida(passageiro, outro);
+                criarAvaliacao(viagem, outro.getUsuario(), passageiro.getUsuario());
+            }
+        }
+
+        // Viagens disponíveis (no quadro, pelos eventos do ViagemService) e uma em andamento, com rastreamento
+        for (int i = 0; i < 3; i++) {
+            viagemService.solicitarViagem(criarPassageiro().getId(), solicitacao());
+        }
+        Long viagemId = viagemService.solicitarViagem(passageiro.getId(), solicitacao()).getId();
+        viagemService.aceitarViagem(viagemId, marinheiro.getId());
+        viagemService.iniciarViagem(viagemId, marinheiro.getId());
+        viagemEmAndamentoId = viagemId;
+
+        tokenPassageiro = jwtUtil.generateToken(passageiro.getUsuario().getEmail(), passageiro.getUsuario().getId(),
+                false, TipoUsuario.PASSAGEIRO, passageiro.getId(), null);
+        tokenMarinheiro = jwtUtil.generateToken(marinheiro.getUsuario().getEmail(), marinheiro.getUsuario().getId(),
+                false, TipoUsuario.MARINHEIRO, null, marinheiro.getId());
+        Usuario admin = usuarioRepository.findByEmail("admin@nautigo.com").orElseThrow();
+        tokenAdmin = jwtUtil.generateToken(admin.getEmail(), admin.getId(), true, TipoUsuario.ADMIN, null, null);
+    }
+
+    @BeforeEach
+    void esvaziarCacheSegundoNivel() {
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void historicoDoPassageiro() {
+        assertDentroDoOrcamento(get("/api/passageiro/viagens?page=0&size=10", tokenPassageiro), 2);
+        assertDentroDoOrcamento(get("/api/passageiro/viagens?page=0&size=3", tokenPassageiro), 2);
+        assertDentroDoOrcamento(get("/api/passageiro/viagens?cursor=&size=10", tokenPassageiro), 2);
+    }
+
+    @Test
+    void posicoesDaViagemDoPassageiro() {
+        ResponseEntity<String> envio = post("/api/marinheiro/viagens/" + viagemEmAndamentoId + "/posicoes",
+                tokenMarinheiro, "{\"latitude\": -20.3, \"longitude\": -40.3}");
+        assertDentroDoOrcamento(envio, 1);
+
+        assertDentroDoOrcamento(get("/api/passageiro/viagens/" + viagemEmAndamentoId + "/posicao", tokenPassageiro), 2);
+        assertDentroDoOrcamento(get("/api/passageiro/viagens/" + viagemEmAndamentoId + "/posicoes", tokenPassageiro), 2);
+    }
+
+    @Test
+    void viagensDisponiveis() {
+        assertDentroDoOrcamento(get("/api/marinheiro/viagens/disponiveis", tokenMarinheiro), 2);
+        assertDentroDoOrcamento(get("/api/marinheiro/viagens/disponiveis?cursor=&size=2", tokenMarinheiro), 2);
+    }
+
+    @Test
+    void historicoDoMarinheiro() {
+        assertDentroDoOrcamento(get("/api/marinheiro/viagens?page=0&size=10", tokenMarinheiro), 3);
+        assertDentroDoOrcamento(get("/api/marinheiro/viagens?cursor=&size=10", tokenMarinheiro), 3);
+    }
+
+    @Test
+    void avaliacoesDoUsuario() {
+        Long avaliadoId = passageiro.getUsuario().getId();
+        assertDentroDoOrcamento(get("/api/avaliacoes/usuario/" + avaliadoId + "/media", tokenMarinheiro), 2);
+        assertDentroDoOrcamento(get("/api/avaliacoes/usuario/" + avaliadoId, tokenMarinheiro), 2);
+        assertDentroDoOrcamento(get("/api/avaliacoes/usuario/" + avaliadoId + "?cursor=&size=10", tokenMarinheiro), 2);
+    }
+
+    @Test
+    void marinheirosPendentes() {
+        assertDentroDoOrcamento(get("/api/admin/marinheiros/pendentes", tokenAdmin), 1);
+    }
+
+    private static void assertDentroDoOrcamento(ResponseEntity<String> resposta, int orcamento) {
+        assertThat(resposta.getStatusCode().is2xxSuccessful())
+                .as("status %s, corpo %s", resposta.getStatusCode(), resposta.getBody())
+                .isTrue();
+        String comandos = resposta.getHeaders().getFirst(OrcamentoSqlAdvice.HEADER_COMANDOS_SQL);
+        assertThat(comandos).isNotNull();
+        assertThat(Integer.parseInt(comandos)).isBetween(0, orcamento);
+    }
+
+    private ResponseEntity<String> get(String url, String token) {
+        return rest.exchange(url, HttpMethod.GET, new HttpEntity<>(cabecalhos(token)), String.class);
+    }
+
+    private ResponseEntity<String> post(String url, String token, String corpo) {
+        HttpHeaders headers = cabecalhos(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return rest.exchange(url, HttpMethod.POST, new HttpEntity<>(corpo, headers), String.class);
+    }
+
+    private static HttpHeaders cabecalhos(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return headers;
+    }
+
+    private static SolicitarViagemRequest solicitacao() {
+        SolicitarViagemRequest request = new SolicitarViagemRequest();
+        request.setOrigem("Marina");
+        request.setDestino("Ilha");
+        request.setMetodoPagamento(Viagem.MetodoPagamento.PIX);
+        request.setNumeroPessoas(2);
+        request.setValorPropostoPassageiro(BigDecimal.valueOf(150));
+        return request;
+    }
+
+    private Passageiro criarPassageiro() {
+        Passageiro novo = new Passageiro();
+        novo.setUsuario(criarUsuario("passageiro"));
+        return passageiroRepository.save(novo);
+    }
+
+    private Marinheiro criarMarinheiro(Marinheiro.StatusAprovacao status) {
+        Marinheiro novo = new Marinheiro();
+        novo.setUsuario(criarUsuario("marinheiro"));
+        novo.setNumeroDocumentoMarinha("DOC-" + novo.getUsuario().getId());
+        novo.setTipoEmbarcacao("Lancha");
+        novo.setNomeEmbarcacao("Barco " + novo.getUsuario().getId());
+        novo.setNumeroRegistroEmbarcacao("REG-" + novo.getUsuario().getId());
+        novo.setCapacidadePassageiros(6);
+        novo.setStatusAprovacao(status);
+        return marinheiroRepository.save(novo);
+    }
+
+    private Usuario criarUsuario(String prefixo) {
+        long numero = SEQUENCIA.incrementAndGet();
+        Usuario usuario = new Usuario();
+        usuario.setEmail(prefixo + numero + "@teste.nautigo");
+        usuario.setSenha("nao-usada");
+        usuario.setNome(prefixo + " " + numero);
+        usuario.setTelefone("00000000000");
+        return usuarioRepository.save(usuario);
+    }
+
+    private Viagem criarViagemConcluida(Passageiro dono, Marinheiro responsavel) {
+        Viagem viagem = new Viagem();
+        viagem.setPassageiro(dono);
+        viagem.setMarinheiro(responsavel);
+        viagem.setOrigem("Marina");
+        viagem.setDestino("Ilha");
+        viagem.setMetodoPagamento(Viagem.MetodoPagamento.PIX);
+        viagem.setStatus(Viagem.StatusViagem.CONCLUIDA);
+        viagem.setValor(BigDecimal.valueOf(150));
+        return viagemRepository.save(viagem);
+    }
+
+    private void criarAvaliacao(Viagem viagem, Usuario avaliador, Usuario avaliado) {
+        Avaliacao avaliacao = new Avaliacao();
+        avaliacao.setViagem(viagem);
+        avaliacao.setAvaliador(avaliador);
+        avaliacao.setAvaliado(avaliado);
+        avaliacao.setNota(5);
+        avaliacaoRepository.save(avaliacao);
+    }
+}
@@ -0,0 +1,22 @@
+package com.nautigo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Mudar o custo do BCrypt em qualquer direção refaz o hash no próximo login
+class HashSenhasTest {
+
+    @Test
+    void hashComOutroCustoPrecisaSerRefeito() {
+        HashSenhas hashSenhas = new HashSenhas(new BCryptPasswordEncoder(5), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(hashSenhas, "custo", 5);
+
+        assertThat(hashSenhas.precisaAtualizar(new BCryptPasswordEncoder(5).encode("123456"))).isFalse();
+        assertThat(hashSenhas.precisaAtualizar(new BCryptPasswordEncoder(4).encode("123456"))).isTrue();
+        assertThat(hashSenhas.precisaAtualizar(new BCryptPasswordEncoder(6).encode("123456"))).isTrue();
+    }
+}
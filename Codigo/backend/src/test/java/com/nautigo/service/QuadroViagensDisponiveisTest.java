@@ -0,0 +1,185 @@
+package com.nautigo.service;
+
+import com.nautigo.dto.ViagemResponse;
+import com.nautigo.entity.Viagem;
+import com.nautigo.event.ViagemAlteradaEvent;
+import com.nautigo.event.ViagemRecusadaEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+// Reconstrução do quadro com transições que terminam enquanto o ViagemService lê o banco: a leitura pode não
+// ter visto a transição, que é aplicada sobre o conteúdo lido em vez de ser apagada por ele. Eventos fora de
+// ordem (pela dataAtualizacao) não desfazem um estado mais novo.
+class QuadroViagensDisponiveisTest {
+
+    private static final Long MARINHEIRO_ID = 10L;
+    private static final int CAPACIDADE = 4;
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private FeedViagensDisponiveis feed;
+    private QuadroViagensDisponiveis quadro;
+
+    @BeforeEach
+    void criarQuadro() {
+        feed = mock(FeedViagensDisponiveis.class);
+        quadro = new QuadroViagensDisponiveis(feed, mock(AgendaViagens.class));
+        quadro.reconstruir(List.of(viagem(1L, Viagem.StatusViagem.PENDENTE, null)), List.of());
+    }
+
+    @Test
+    void transicaoDuranteReconstrucaoNaoSePerde() {
+        quadro.iniciarReconstrucao();
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(viagem(1L, Viagem.StatusViagem.ACEITA, MARINHEIRO_ID)));
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(viagem(2L, Viagem.StatusViagem.PENDENTE, null)));
+
+        // Leitura feita antes dos commits: a viagem 1 ainda pendente e a 2 ainda não existia
+        quadro.reconstruir(List.of(viagem(1L, Viagem.StatusViagem.PENDENTE, null)), List.of());
+
+        assertThat(ids(quadro.listar(MARINHEIRO_ID, CAPACIDADE))).containsExactly(2L);
+    }
+
+    @Test
+    void recusaDuranteReconstrucaoNaoSePerde() {
+        quadro.iniciarReconstrucao();
+        quadro.onViagemRecusada(new ViagemRecusadaEvent(1L, MARINHEIRO_ID));
+        quadro.reconstruir(List.of(viagem(1L, Viagem.StatusViagem.PENDENTE, null)), List.of());
+
+        assertThat(quadro.listar(MARINHEIRO_ID, CAPACIDADE)).isEmpty();
+        assertThat(ids(quadro.listar(MARINHEIRO_ID + 1, CAPACIDADE))).containsExactly(1L);
+    }
+
+    @Test
+    void transicaoJaVistaPelaLeituraNaoMudaNada() {
+        quadro.iniciarReconstrucao();
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(viagem(1L, Viagem.StatusViagem.ACEITA, MARINHEIRO_ID)));
+        quadro.reconstruir(List.of(), List.of());
+
+        assertThat(quadro.listar(MARINHEIRO_ID, CAPACIDADE)).isEmpty();
+    }
+
+    @Test
+    void foraDaReconstrucaoEventosSaoAplicadosNaHora() {
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(viagem(2L, Viagem.StatusViagem.PENDENTE, null)));
+        assertThat(ids(quadro.listar(MARINHEIRO_ID, CAPACIDADE))).containsExactly(2L, 1L);
+
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(viagem(1L, Viagem.StatusViagem.ACEITA, MARINHEIRO_ID)));
+        assertThat(ids(quadro.listar(MARINHEIRO_ID, CAPACIDADE))).containsExactly(2L);
+    }
+
+    @Test
+    void eventoAtrasadoNaoDevolveViagemAceitaAoQuadro() {
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(3L, Viagem.StatusViagem.ACEITA, MARINHEIRO_ID, INICIO.plusSeconds(2))));
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(3L, Viagem.StatusViagem.PENDENTE, null, INICIO.plusSeconds(1))));
+
+        assertThat(ids(quadro.listar(MARINHEIRO_ID, CAPACIDADE))).containsExactly(1L);
+        verify(feed, never()).publicar(eq(FeedViagensDisponiveis.VIAGEM_DISPONIVEL),
+                argThat(dados -> dados instanceof ViagemResponse viagem && viagem.getId() == 3L), any());
+    }
+
+    @Test
+    void versaoMaisAntigaDaMesmaViagemEDescartada() {
+        // Contra-proposta recusada (volta a PENDENTE) aplicada antes do evento da contra-proposta em si
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(3L, Viagem.StatusViagem.PENDENTE, null, INICIO.plusSeconds(3))));
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(3L, Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO, MARINHEIRO_ID, INICIO.plusSeconds(2))));
+
+        assertThat(ids(quadro.listar(MARINHEIRO_ID, CAPACIDADE))).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void eventoGuardadoAtrasadoNaoDesfazTransicaoJaAplicada() {
+        // O aceite foi aplicado antes da reconstrução; o evento anterior dele só chega durante ela
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(3L, Viagem.StatusViagem.ACEITA, MARINHEIRO_ID, INICIO.plusSeconds(2))));
+        quadro.iniciarReconstrucao();
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(3L, Viagem.StatusViagem.PENDENTE, null, INICIO.plusSeconds(1))));
+        quadro.reconstruir(List.of(viagem(1L, Viagem.StatusViagem.PENDENTE, null)), List.of());
+
+        assertThat(ids(quadro.listar(MARINHEIRO_ID, CAPACIDADE))).containsExactly(1L);
+    }
+
+    @Test
+    void leituraAntigaNaoReabreViagemQueSaiuDoQuadro() {
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(1L, Viagem.StatusViagem.CANCELADA, null, INICIO.plusSeconds(1))));
+        quadro.iniciarReconstrucao();
+        quadro.reconstruir(List.of(viagem(1L, Viagem.StatusViagem.PENDENTE, null)), List.of());
+
+        assertThat(quadro.listar(MARINHEIRO_ID, CAPACIDADE)).isEmpty();
+    }
+
+    @Test
+    void viagemQueVoltaAoQuadroNaoEPublicadaParaQuemARecusou() {
+        quadro.onViagemRecusada(new ViagemRecusadaEvent(1L, MARINHEIRO_ID));
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(1L, Viagem.StatusViagem.AGUARDANDO_APROVACAO_PASSAGEIRO, MARINHEIRO_ID + 1, INICIO.plusSeconds(1))));
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(1L, Viagem.StatusViagem.PENDENTE, null, INICIO.plusSeconds(2))));
+
+        verify(feed).publicar(eq(FeedViagensDisponiveis.VIAGEM_DISPONIVEL),
+                argThat(dados -> dados instanceof ViagemResponse viagem && viagem.getId() == 1L),
+                eq(Set.of(MARINHEIRO_ID)));
+        assertThat(quadro.listar(MARINHEIRO_ID, CAPACIDADE)).isEmpty();
+    }
+
+    @Test
+    void recusaDeViagemQueSaiuDoQuadroNaoFicaGuardada() {
+        quadro.onViagemRecusada(new ViagemRecusadaEvent(1L, MARINHEIRO_ID));
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(
+                viagem(1L, Viagem.StatusViagem.CANCELADA, null, INICIO.plusSeconds(1))));
+        quadro.onViagemRecusada(new ViagemRecusadaEvent(1L, MARINHEIRO_ID + 1));
+
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(quadro, "recusasPorViagem")).isEmpty();
+    }
+
+    @Test
+    void viagemQueNaoCabeNaEmbarcacaoNaoEListada() {
+        ViagemResponse grupoGrande = viagem(2L, Viagem.StatusViagem.PENDENTE, null);
+        grupoGrande.setNumeroPessoas(CAPACIDADE + 1);
+        grupoGrande.setOrigemLatitude(-23.0);
+        grupoGrande.setOrigemLongitude(-43.0);
+        quadro.onViagemAlterada(new ViagemAlteradaEvent(grupoGrande));
+
+        assertThat(ids(quadro.listar(MARINHEIRO_ID, CAPACIDADE))).containsExactly(1L);
+        assertThat(quadro.listarProximas(MARINHEIRO_ID, CAPACIDADE, -23.0, -43.0, 10)).isEmpty();
+        assertThat(ids(quadro.listarProximas(MARINHEIRO_ID, CAPACIDADE + 1, -23.0, -43.0, 10))).containsExactly(2L);
+    }
+
+    private static ViagemResponse viagem(Long id, Viagem.StatusViagem status, Long marinheiroId,
+                                         LocalDateTime dataAtualizacao) {
+        ViagemResponse viagem = viagem(id, status, marinheiroId);
+        viagem.setDataAtualizacao(dataAtualizacao);
+        return viagem;
+    }
+
+    private static ViagemResponse viagem(Long id, Viagem.StatusViagem status, Long marinheiroId) {
+        ViagemResponse viagem = new ViagemResponse();
+        viagem.setId(id);
+        viagem.setStatus(status);
+        viagem.setMarinheiroId(marinheiroId);
+        viagem.setNumeroPessoas(2);
+        return viagem;
+    }
+
+    private static List<Long> ids(List<ViagemResponse> viagens) {
+        return viagens.stream().map(ViagemResponse::getId).toList();
+    }
+}
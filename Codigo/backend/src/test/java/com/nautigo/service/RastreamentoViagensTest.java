@@ -0,0 +1,155 @@
+package com.nautigo.service;
+
+import com.nautigo.dto.PosicaoRequest;
+import com.nautigo.dto.PosicaoResponse;
+import com.nautigo.dto.ViagemResponse;
+import com.nautigo.entity.PosicaoViagem;
+import com.nautigo.entity.Viagem;
+import com.nautigo.event.ViagemAlteradaEvent;
+import com.nautigo.repository.EstadoViagem;
+import com.nautigo.repository.PosicaoViagemRepository;
+import com.nautigo.repository.ViagemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Trajeto de uma viagem em andamento: o buffer circular (3 posições aqui) responde sozinho enquanto tem a
+// viagem inteira; quando parte dela saiu do buffer ou chegou antes de um restart, o trecho vem do banco
+class RastreamentoViagensTest {
+
+    private static final Long VIAGEM_ID = 1L;
+    private static final Long PASSAGEIRO_ID = 2L;
+    private static final Long MARINHEIRO_ID = 3L;
+
+    private ViagemRepository viagemRepository;
+    private PosicaoViagemRepository posicaoViagemRepository;
+    private RastreamentoViagens rastreamento;
+
+    @BeforeEach
+    void criarRastreamento() {
+        viagemRepository = mock(ViagemRepository.class);
+        posicaoViagemRepository = mock(PosicaoViagemRepository.class);
+        rastreamento = new RastreamentoViagens(viagemRepository, posicaoViagemRepository, mock(JdbcTemplate.class),
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(rastreamento, "capacidadeBuffer", 3);
+        ReflectionTestUtils.setField(rastreamento, "capacidadeFila", 100);
+        ReflectionTestUtils.setField(rastreamento, "intervaloMinimoMs", 30_000L);
+        ReflectionTestUtils.setField(rastreamento, "distanciaMinimaMetros", 100.0);
+        rastreamento.iniciar();
+    }
+
+    @Test
+    void bufferComAViagemInteiraNaoConsultaOBanco() {
+        iniciarViagem();
+        registrar(3);
+
+        assertThat(latitudes(rastreamento.listarPosicoes(VIAGEM_ID, PASSAGEIRO_ID, null)))
+                .containsExactly(0.0, 1.0, 2.0);
+        verifyNoInteractions(posicaoViagemRepository);
+    }
+
+    @Test
+    void trechoSobrescritoVemDoBanco() {
+        iniciarViagem();
+        List<PosicaoResponse> enviadas = registrar(5);
+        LocalDateTime maisAntigaNoBuffer = enviadas.get(2).getRegistradaEm();
+        when(posicaoViagemRepository.findByViagem_IdAndRegistradaEmBeforeOrderByRegistradaEm(
+                VIAGEM_ID, maisAntigaNoBuffer))
+                .thenReturn(List.of(gravada(enviadas.get(0)), gravada(enviadas.get(1))));
+
+        assertThat(latitudes(rastreamento.listarPosicoes(VIAGEM_ID, PASSAGEIRO_ID, null)))
+                .containsExactly(0.0, 1.0, 2.0, 3.0, 4.0);
+    }
+
+    @Test
+    void desdeAnteriorAoBufferCompletaComOBanco() {
+        iniciarViagem();
+        List<PosicaoResponse> enviadas = registrar(5);
+        LocalDateTime desde = enviadas.get(0).getRegistradaEm();
+        LocalDateTime maisAntigaNoBuffer = enviadas.get(2).getRegistradaEm();
+        when(posicaoViagemRepository.findByViagem_IdAndRegistradaEmAfterAndRegistradaEmBeforeOrderByRegistradaEm(
+                VIAGEM_ID, desde, maisAntigaNoBuffer))
+                .thenReturn(List.of(gravada(enviadas.get(1))));
+
+        assertThat(latitudes(rastreamento.listarPosicoes(VIAGEM_ID, PASSAGEIRO_ID, desde)))
+                .containsExactly(1.0, 2.0, 3.0, 4.0);
+    }
+
+    @Test
+    void desdeDentroDoBufferNaoConsultaOBanco() {
+        iniciarViagem();
+        List<PosicaoResponse> enviadas = registrar(5);
+
+        assertThat(latitudes(rastreamento.listarPosicoes(VIAGEM_ID, PASSAGEIRO_ID, enviadas.get(3).getRegistradaEm())))
+                .containsExactly(4.0);
+        verifyNoInteractions(posicaoViagemRepository);
+    }
+
+    @Test
+    void viagemRecarregadaNaInicializacaoBuscaOTrechoAnteriorAoRestart() {
+        when(viagemRepository.listarEstadosComStatus(Viagem.StatusViagem.EM_ANDAMENTO)).thenReturn(List.of(
+                new EstadoViagem(VIAGEM_ID, Viagem.StatusViagem.EM_ANDAMENTO, PASSAGEIRO_ID, 20L, MARINHEIRO_ID, 30L,
+                        null)));
+        rastreamento.carregarViagensEmAndamento();
+        PosicaoResponse antesDoRestart = new PosicaoResponse(VIAGEM_ID, -1.0, -40.0, null, null,
+                LocalDateTime.now().minusMinutes(5));
+        when(posicaoViagemRepository.findByViagem_IdOrderByRegistradaEm(VIAGEM_ID))
+                .thenReturn(List.of(gravada(antesDoRestart)));
+        assertThat(latitudes(rastreamento.listarPosicoes(VIAGEM_ID, PASSAGEIRO_ID, null))).containsExactly(-1.0);
+
+        registrar(1);
+        when(posicaoViagemRepository.findByViagem_IdAndRegistradaEmBeforeOrderByRegistradaEm(eq(VIAGEM_ID), any()))
+                .thenReturn(List.of(gravada(antesDoRestart)));
+        assertThat(latitudes(rastreamento.listarPosicoes(VIAGEM_ID, PASSAGEIRO_ID, null))).containsExactly(-1.0, 0.0);
+    }
+
+    private void iniciarViagem() {
+        ViagemResponse viagem = new ViagemResponse();
+        viagem.setId(VIAGEM_ID);
+        viagem.setPassageiroId(PASSAGEIRO_ID);
+        viagem.setMarinheiroId(MARINHEIRO_ID);
+        viagem.setStatus(Viagem.StatusViagem.EM_ANDAMENTO);
+        rastreamento.onViagemAlterada(new ViagemAlteradaEvent(viagem));
+    }
+
+    // Posições com latitude 0, 1, 2..., cada uma com registradaEm maior que a anterior, como ficaram no buffer
+    private List<PosicaoResponse> registrar(int quantidade) {
+        List<PosicaoResponse> enviadas = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            PosicaoRequest request = new PosicaoRequest();
+            request.setLatitude((double) i);
+            request.setLongitude(-40.0);
+            rastreamento.registrar(VIAGEM_ID, MARINHEIRO_ID, request);
+            PosicaoResponse registrada = rastreamento.ultimaPosicao(VIAGEM_ID, PASSAGEIRO_ID).orElseThrow();
+            enviadas.add(registrada);
+            while (!LocalDateTime.now().isAfter(registrada.getRegistradaEm())) {
+                Thread.onSpinWait();
+            }
+        }
+        return enviadas;
+    }
+
+    private static PosicaoViagem gravada(PosicaoResponse posicao) {
+        Viagem viagem = new Viagem();
+        viagem.setId(posicao.getViagemId());
+        return new PosicaoViagem(null, viagem, posicao.getLatitude(), posicao.getLongitude(),
+                posicao.getVelocidadeNos(), posicao.getRumoGraus(), posicao.getRegistradaEm());
+    }
+
+    private static List<Double> latitudes(List<PosicaoResponse> posicoes) {
+        return posicoes.stream().map(PosicaoResponse::getLatitude).toList();
+    }
+}
@@ -46,6 +46,7 @@ interface Viagem {
   valor: number | null
   valorPropostoPassageiro: number | null
   valorContraPropostaMarinheiro: number | null
+  dataAtualizacao: string
 }
 
 const DetalhesViagemMarinheiroPage = () => {
@@ -59,25 +60,49 @@ const DetalhesViagemMarinheiroPage = () => {
   const [jaAvaliou, setJaAvaliou] = useState(false)
 
   useEffect(() => {
-    carregarViagem(true) // Primeira carga com loading
-    // Atualizar a cada 5 segundos para pegar mudanças de status
-    const interval = setInterval(() => carregarViagem(false), 5000)
-    return () => clearInterval(interval)
+    const controller = new AbortController()
+    acompanharViagem(controller.signal)
+    return () => controller.abort()
   }, [id])
 
-  const carregarViagem = async (isInitialLoad = false) => {
+  // Long-polling: o servidor segura a requisição até a viagem mudar (ou responde 304 no timeout)
+  const acompanharViagem = async (signal: AbortSignal) => {
+    let versao = await carregarViagem(true, null, signal)
+    while (!signal.aborted) {
+      const novaVersao = await carregarViagem(false, versao ?? null, signal)
+      if (novaVersao === undefined) {
+        // Erro: aguardar um pouco antes de tentar novamente
+        await new Promise((resolve) => setTimeout(resolve, 5000))
+      } else {
+        versao = novaVersao
+      }
+    }
+  }
+
+  // Retorna a versão (dataAtualizacao) da viagem exibida, ou undefined em caso de erro
+  const carregarViagem = async (
+    isInitialLoad = false,
+    versao: string | null = null,
+    signal?: AbortSignal
+  ): Promise<string | null | undefined> => {
     try {
       if (isInitialLoad) {
         setLoading(true)
       }
-      // Buscar com tamanho grande para garantir que encontre a viagem específica
-      const response = await axios.get('http://localhost:8080/api/marinheiro/viagens?page=0&size=100', {
+      const response = await axios.get(`http://localhost:8080/api/marinheiro/viagens/${id}`, {
+        params: versao ? { versao } : undefined,
+        signal,
+        validateStatus: (status) => status === 200 || status === 304 || status === 404,
         headers: {
           Authorization: `Bearer ${localStorage.getItem('token')}`
         }
       })
-      
-      const viagemEncontrada = response.data.content.find((v: Viagem) => v.id === Number(id))
+
+      if (response.status === 304) {
+        return versao
+      }
+
+      const viagemEncontrada: Viagem | null = response.status === 200 ? response.data : null
       if (viagemEncontrada) {
         setViagem(viagemEncontrada)
         setErro('')
@@ -120,6 +145,7 @@ const DetalhesViagemMarinheiroPage = () => {
             }
           }
         }
+        return viagemEncontrada.dataAtualizacao
       } else {
         // Se a viagem deixou de existir para este marinheiro (por exemplo, passageiro recusou a contra-proposta),
         // voltar para a lista de corridas em vez de exibir erro de "não encontrada"
@@ -129,13 +155,18 @@ const DetalhesViagemMarinheiroPage = () => {
               info: 'O passageiro recusou sua proposta.'
             }
           })
-          return
+          return undefined
         }
         setErro('Viagem não encontrada')
+        return undefined
       }
     } catch (error: any) {
+      if (axios.isCancel(error)) {
+        return versao
+      }
       setErro('Erro ao carregar viagem')
       console.error(error)
+      return undefined
     } finally {
       if (isInitialLoad) {
         setLoading(false)
@@ -222,6 +253,8 @@ const DetalhesViagemMarinheiroPage = () => {
         return 'Concluída'
       case 'CANCELADA':
         return 'Cancelada'
+      case 'EXPIRADA':
+        return 'Expirada'
       default:
         return status
     }
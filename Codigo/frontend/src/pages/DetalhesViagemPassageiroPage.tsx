@@ -50,6 +50,7 @@ interface Viagem {
   valor: number | null
   valorPropostoPassageiro: number | null
   valorContraPropostaMarinheiro: number | null
+  dataAtualizacao: string
 }
 
 const DetalhesViagemPassageiroPage = () => {
@@ -64,25 +65,49 @@ const DetalhesViagemPassageiroPage = () => {
   const [dialogContraPropostaAberto, setDialogContraPropostaAberto] = useState(false)
 
   useEffect(() => {
-    carregarViagem(true) // Primeira carga com loading
-    // Atualizar a cada 5 segundos para pegar mudanças de status (quando marinheiro aceita)
-    const interval = setInterval(() => carregarViagem(false), 5000)
-    return () => clearInterval(interval)
+    const controller = new AbortController()
+    acompanharViagem(controller.signal)
+    return () => controller.abort()
   }, [id])
 
-  const carregarViagem = async (isInitialLoad = false) => {
+  // Long-polling: o servidor segura a requisição até a viagem mudar (ou responde 304 no timeout)
+  const acompanharViagem = async (signal: AbortSignal) => {
+    let versao = await carregarViagem(true, null, signal)
+    while (!signal.aborted) {
+      const novaVersao = await carregarViagem(false, versao ?? null, signal)
+      if (novaVersao === undefined) {
+        // Erro: aguardar um pouco antes de tentar novamente
+        await new Promise((resolve) => setTimeout(resolve, 5000))
+      } else {
+        versao = novaVersao
+      }
+    }
+  }
+
+  // Retorna a versão (dataAtualizacao) da viagem exibida, ou undefined em caso de erro
+  const carregarViagem = async (
+    isInitialLoad = false,
+    versao: string | null = null,
+    signal?: AbortSignal
+  ): Promise<string | null | undefined> => {
     try {
       if (isInitialLoad) {
         setLoading(true)
       }
-      // Buscar com tamanho grande para garantir que encontre a viagem específica
-      const response = await axios.get('http://localhost:8080/api/passageiro/viagens?page=0&size=100', {
+      const response = await axios.get(`http://localhost:8080/api/passageiro/viagens/${id}`, {
+        params: versao ? { versao } : undefined,
+        signal,
+        validateStatus: (status) => status === 200 || status === 304 || status === 404,
         headers: {
           Authorization: `Bearer ${localStorage.getItem('token')}`
         }
       })
-      
-      const viagemEncontrada = response.data.content.find((v: Viagem) => v.id === Number(id))
+
+      if (response.status === 304) {
+        return versao
+      }
+
+      const viagemEncontrada: Viagem | null = response.status === 200 ? response.data : null
       if (viagemEncontrada) {
         setViagem(viagemEncontrada)
         setErro('')
@@ -132,12 +157,18 @@ const DetalhesViagemPassageiroPage = () => {
         } else {
           setDialogContraPropostaAberto(false)
         }
+        return viagemEncontrada.dataAtualizacao
       } else {
         setErro('Viagem não encontrada')
+        return undefined
       }
     } catch (error: any) {
+      if (axios.isCancel(error)) {
+        return versao
+      }
       setErro('Erro ao carregar viagem')
       console.error(error)
+      return undefined
     } finally {
       if (isInitialLoad) {
         setLoading(false)
@@ -178,6 +209,8 @@ const DetalhesViagemPassageiroPage = () => {
         return 'Concluída'
       case 'CANCELADA':
         return 'Cancelada'
+      case 'EXPIRADA':
+        return 'Expirada'
       default:
         return status
     }
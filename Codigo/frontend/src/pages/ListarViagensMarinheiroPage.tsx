@@ -107,6 +107,8 @@ const ListarViagensMarinheiroPage = () => {
         return 'Concluída'
       case 'CANCELADA':
         return 'Cancelada'
+      case 'EXPIRADA':
+        return 'Expirada'
       default:
         return status
     }
@@ -114,6 +114,8 @@ const ListarViagensPassageiroPage = () => {
         return 'Concluída'
       case 'CANCELADA':
         return 'Cancelada'
+      case 'EXPIRADA':
+        return 'Expirada'
       default:
         return status
     }
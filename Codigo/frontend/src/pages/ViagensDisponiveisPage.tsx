@@ -1,4 +1,4 @@
-import { useState, useEffect } from 'react'
+import { useState, useEffect, useRef } from 'react'
 import {
   Container,
   Box,
@@ -61,6 +61,8 @@ const ViagensDisponiveisPage = () => {
   const [dialogAberto, setDialogAberto] = useState(false)
   const [viagemSelecionada, setViagemSelecionada] = useState<Viagem | null>(null)
   const [novoValorCentavos, setNovoValorCentavos] = useState(0)
+  // Id do último evento do stream já refletido na lista (enviado como Last-Event-ID ao reconectar)
+  const ultimoEventoIdRef = useRef<string | null>(null)
 
   useEffect(() => {
     // Mensagem vinda de outras telas (por exemplo, passageiro recusou a proposta)
@@ -71,10 +73,10 @@ const ViagensDisponiveisPage = () => {
       window.history.replaceState({}, document.title)
     }
 
-    carregarViagens()
-    // Recarregar a cada 10 segundos para pegar novas viagens
-    const interval = setInterval(carregarViagens, 10000)
-    return () => clearInterval(interval)
+    // Carregar a lista uma vez e depois acompanhar as mudanças pelo stream de eventos do servidor
+    const controller = new AbortController()
+    carregarViagens().then(() => acompanharEventos(controller.signal))
+    return () => controller.abort()
   }, [location.state])
 
   // Esconder automaticamente mensagens de sucesso/info após alguns segundos
@@ -123,6 +125,7 @@ const ViagensDisponiveisPage = () => {
           }
         })
         setViagens(response.data)
+        ultimoEventoIdRef.current = response.headers['x-ultimo-evento-id'] ?? null
       }
       setErro('')
     } catch (error: any) {
@@ -133,6 +136,80 @@ const ViagensDisponiveisPage = () => {
     }
   }
 
+  // Stream (SSE) de viagens que entram e saem do quadro. Usa fetch em vez de EventSource porque
+  // o EventSource não permite enviar o header Authorization
+  const acompanharEventos = async (signal: AbortSignal) => {
+    while (!signal.aborted) {
+      try {
+        const headers: Record<string, string> = {
+          Authorization: `Bearer ${localStorage.getItem('token')}`
+        }
+        if (ultimoEventoIdRef.current) {
+          headers['Last-Event-ID'] = ultimoEventoIdRef.current
+        }
+        const response = await fetch('http://localhost:8080/api/marinheiro/viagens/eventos', { headers, signal })
+        if (!response.ok || !response.body) {
+          throw new Error(`Falha ao conectar no stream de viagens (${response.status})`)
+        }
+
+        const reader = response.body.pipeThrough(new TextDecoderStream()).getReader()
+        let buffer = ''
+        while (true) {
+          const { value, done } = await reader.read()
+          if (done) break
+          buffer += value
+          // Eventos SSE são separados por uma linha em branco
+          let fim
+          while ((fim = buffer.indexOf('\n\n')) >= 0) {
+            const bloco = buffer.slice(0, fim)
+            buffer = buffer.slice(fim + 2)
+            await tratarEvento(bloco)
+          }
+        }
+      } catch (error) {
+        if (signal.aborted) return
+        console.error(error)
+      }
+      // Conexão encerrada (timeout do servidor, rede ou cliente lento): reconectar com Last-Event-ID
+      await new Promise((resolve) => setTimeout(resolve, 3000))
+    }
+  }
+
+  const tratarEvento = async (bloco: string) => {
+    let id: string | null = null
+    let tipo = 'message'
+    let dados = ''
+    for (const linha of bloco.split('\n')) {
+      if (linha.startsWith('id:')) id = linha.slice(3).trim()
+      else if (linha.startsWith('event:')) tipo = linha.slice(6).trim()
+      else if (linha.startsWith('data:')) dados += linha.slice(5)
+    }
+    // Linhas de comentário (heartbeat) não têm id nem dados
+    if (!id) return
+
+    switch (tipo) {
+      case 'viagem-disponivel': {
+        const viagem: Viagem = JSON.parse(dados)
+        setViagens((atuais) =>
+          [viagem, ...atuais.filter((v) => v.id !== viagem.id)].sort((a, b) => b.id - a.id)
+        )
+        break
+      }
+      case 'viagem-aceita':
+      case 'viagem-cancelada':
+      case 'viagem-recusada': {
+        const { viagemId } = JSON.parse(dados)
+        setViagens((atuais) => atuais.filter((v) => v.id !== viagemId))
+        break
+      }
+      case 'sincronizar':
+        // O servidor não tem mais os eventos perdidos: recarregar a lista inteira
+        await carregarViagens()
+        return
+    }
+    ultimoEventoIdRef.current = id
+  }
+
   const abrirDialog = (viagem: Viagem) => {
     setViagemSelecionada(viagem)
     const base = viagem.valorPropostoPassageiro != null ? Math.round(viagem.valorPropostoPassageiro * 100) : 0
@@ -186,8 +263,8 @@ const ViagensDisponiveisPage = () => {
       setSucesso('Viagem recusada com sucesso!')
       setAlertSeverity('success')
       fecharDialog()
-      // Recarregar lista para remover a viagem recusada
-      carregarViagens()
+      // Remover da lista (o stream também envia viagem-recusada para as outras abas)
+      setViagens((atuais) => atuais.filter((v) => v.id !== viagem.id))
     } catch (error: any) {
       setErro(error.response?.data?.message || 'Erro ao recusar viagem')
       fecharDialog()